@@ -0,0 +1,107 @@
+package com.jisj.archtools.bench;
+
+import com.jisj.archtools.Extractor;
+import com.jisj.archtools.Packer;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.cmd.ZipCmd;
+import com.jisj.archtools.conv.Converter;
+import com.jisj.archtools.conv.UtilProvider;
+import com.jisj.archtools.impl.ExtractorNative;
+import com.jisj.archtools.impl.PackerNative;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Converter#convert()} with 7z to ZIP conversion.
+ * <p>The native util is replaced by the shell script {@value #STAND_IN} which supports {@code l}, {@code x} and {@code a}
+ * commands of 7z and stores "archives" as TAR files, so the benchmark runs on any Linux with {@code sh} and {@code tar}.
+ * The benchmark measures the conversion pipeline: process starts, listing, temporary folder and file operations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+    static final String STAND_IN = "fake-7z.sh";
+    private static final String SCRIPT = """
+            #!/bin/sh
+            # Stand-in for 7z: archives are TAR files
+            cmd=$1; shift
+            while [ "${1#-}" != "$1" ]; do shift; done
+            case "$cmd" in
+              l) tar -tf "$1" ;;
+              x) tar -xf "$1" -C "${2#-o}" ;;
+              a) cd "${2%/\\*}" && tar -cf "$1" -- * ;;
+              *) echo "Unsupported command: $cmd" >&2; exit 7 ;;
+            esac
+            """;
+
+    @Param({"100", "1000"})
+    public int entries;
+
+    private Path folder;
+    private Path source;
+    private Path destination;
+    private Path temporary;
+    private UtilProvider provider;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("converter-bench");
+        Path script = folder.resolve(STAND_IN);
+        Files.writeString(script, SCRIPT);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        provider = new StandInProvider(script);
+
+        Path tar = folder.resolve("source.tar");
+        CorpusGenerator.generateTar(tar, entries, entries * 4096L);
+        source = Files.move(tar, folder.resolve("source.7z"));
+        destination = folder.resolve("out");
+        temporary = folder.resolve("tmp");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.deleteFolder(folder);
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() throws IOException {
+        CorpusGenerator.deleteFolder(destination);
+        CorpusGenerator.deleteFolder(temporary);
+    }
+
+    @Benchmark
+    public Converter convert() {
+        Converter converter = Converter.builder(provider)
+                .sourceArchive(source)
+                .destinationFolder(destination)
+                .targetFormat(Type.ZIP)
+                .temporaryFolder(temporary)
+                .options(Converter.Options.COMPARE)
+                .build();
+        if (!converter.convert())
+            throw new IllegalStateException("Conversion failed: " + converter.getState());
+        return converter;
+    }
+
+    private record StandInProvider(Path script) implements UtilProvider {
+        @Override
+        public Optional<Packer> getPacker(Type archiveType) {
+            return Optional.of(new PackerNative(new ZipCmd(script)));
+        }
+
+        @Override
+        public Optional<Extractor> getExtractor(Type archiveType) {
+            return Optional.of(new ExtractorNative(new ZipCmd(script)));
+        }
+    }
+}
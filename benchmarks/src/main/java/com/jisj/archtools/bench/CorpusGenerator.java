@@ -0,0 +1,182 @@
+package com.jisj.archtools.bench;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.impl.PackerTar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generator of synthetic archive corpora for benchmarks.
+ * <p>Files are spread over sub folders of {@value #FOLDER_SIZE} entries. Even files contain random (incompressible) bytes,
+ * odd files contain repeated text. Content is reproducible for the same seed.
+ * Usage: <pre>{@code
+ *     java -cp benchmarks.jar com.jisj.archtools.bench.CorpusGenerator <folder|zip|tar|tar.gz|tar.zst> <output> <entries> <bytes>
+ * }</pre>
+ */
+public final class CorpusGenerator {
+    static final int FOLDER_SIZE = 100;
+    private static final long SEED = 20240101L;
+    private static final byte[] TEXT = "The quick brown fox jumps over the lazy dog. 0123456789\n".getBytes();
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: CorpusGenerator <folder|zip|tar|tar.gz|tar.zst> <output> <entries> <bytes>");
+            System.exit(1);
+        }
+        Path output = Path.of(args[1]);
+        int entries = Integer.parseInt(args[2]);
+        long bytes = Long.parseLong(args[3]);
+        switch (args[0]) {
+            case "folder" -> generateFolder(output, entries, bytes);
+            case "zip" -> generateZip(output, entries, bytes);
+            case "tar", "tar.gz", "tar.zst" -> generateTar(output, entries, bytes);
+            default -> throw new IllegalArgumentException("Unknown format: " + args[0]);
+        }
+        System.out.println("Generated " + output.toAbsolutePath());
+    }
+
+    /**
+     * Creates folder with files
+     *
+     * @param folder     target folder. Will be created if not exists
+     * @param entries    count of files
+     * @param totalBytes total size of files
+     * @throws IOException on file operations
+     */
+    public static void generateFolder(Path folder, int entries, long totalBytes) throws IOException {
+        Random random = new Random(SEED);
+        for (int i = 0; i < entries; i++) {
+            Path file = folder.resolve(entryName(i));
+            Files.createDirectories(file.getParent());
+            try (OutputStream os = Files.newOutputStream(file)) {
+                writeContent(os, i, entrySize(i, entries, totalBytes), random);
+            }
+        }
+    }
+
+    /**
+     * Creates ZIP archive with deflated entries
+     *
+     * @param archive    target archive
+     * @param entries    count of files
+     * @param totalBytes total uncompressed size of files
+     * @throws IOException on file operations
+     */
+    public static void generateZip(Path archive, int entries, long totalBytes) throws IOException {
+        Random random = new Random(SEED);
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int i = 0; i < entries; i++) {
+                zos.putNextEntry(new ZipEntry(entryName(i)));
+                writeContent(zos, i, entrySize(i, entries, totalBytes), random);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Creates TAR archive. The compression is selected by the archive extension: {@code .tar}, {@code .tar.gz}, {@code .tar.zst}
+     *
+     * @param archive    target archive
+     * @param entries    count of files
+     * @param totalBytes total uncompressed size of files
+     * @throws IOException on file operations
+     */
+    public static void generateTar(Path archive, int entries, long totalBytes) throws IOException {
+        Path folder = Files.createTempDirectory("corpus");
+        try {
+            generateFolder(folder, entries, totalBytes);
+            new PackerTar().packOfFolder(archive, folder);
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    /**
+     * Creates ZIP archive with nested ZIP archives: {@code archive/level1.zip/level2.zip/.../levelN.zip/file.txt}
+     *
+     * @param archive target archive
+     * @param depth   count of nested archives
+     * @return names of nested archives for {@link com.jisj.archtools.NestedZipPath#newPath(Path, String...)}
+     * @throws IOException on file operations
+     */
+    public static String[] generateNestedZip(Path archive, int depth) throws IOException {
+        String[] names = new String[depth];
+        for (int i = 0; i < depth; i++) names[i] = "level" + (i + 1) + ".zip";
+        byte[] content = zipOf("file.txt", TEXT);
+        for (int i = depth - 1; i >= 0; i--)
+            content = zipOf(names[i], content);
+        Files.write(archive, content);
+        return names;
+    }
+
+    /**
+     * Deletes folder with content
+     *
+     * @param folder folder to delete
+     * @throws IOException on file operations
+     */
+    public static void deleteFolder(Path folder) throws IOException {
+        if (!Files.exists(folder)) return;
+        try (var paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(java.util.Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    /**
+     * Copies the file replacing existing target
+     *
+     * @param source source file
+     * @param target target file
+     * @throws ArchiveException on file operations
+     */
+    public static void copy(Path source, Path target) throws ArchiveException {
+        try {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+    }
+
+    static String entryName(int index) {
+        return "d%04d/f%06d.%s".formatted(index / FOLDER_SIZE, index, index % 2 == 0 ? "bin" : "txt");
+    }
+
+    private static long entrySize(int index, int entries, long totalBytes) {
+        long size = totalBytes / entries;
+        return index < totalBytes % entries ? size + 1 : size;
+    }
+
+    private static void writeContent(OutputStream os, int index, long size, Random random) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(size, 64 * 1024)];
+        long left = size;
+        while (left > 0) {
+            int n = (int) Math.min(left, buffer.length);
+            if (index % 2 == 0) random.nextBytes(buffer);
+            else for (int i = 0; i < n; i++) buffer[i] = TEXT[i % TEXT.length];
+            os.write(buffer, 0, n);
+            left -= n;
+        }
+    }
+
+    private static byte[] zipOf(String name, byte[] content) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+            zos.putNextEntry(new ZipEntry(name));
+            zos.write(content);
+            zos.closeEntry();
+        }
+        return bos.toByteArray();
+    }
+}
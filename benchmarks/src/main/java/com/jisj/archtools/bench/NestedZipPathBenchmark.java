@@ -0,0 +1,46 @@
+package com.jisj.archtools.bench;
+
+import com.jisj.archtools.NestedZipPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link NestedZipPath#newPath(Path, String...)} with reading of the innermost file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedZipPathBenchmark {
+    @Param({"1", "3", "5"})
+    public int depth;
+
+    private Path folder;
+    private Path archive;
+    private String[] nested;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("nested-bench");
+        archive = folder.resolve("nested-archive.zip");
+        nested = CorpusGenerator.generateNestedZip(archive, depth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public long newPath() throws IOException {
+        try (var zp = NestedZipPath.newPath(archive, nested)) {
+            return Files.size(zp.getPath("file.txt"));
+        }
+    }
+}
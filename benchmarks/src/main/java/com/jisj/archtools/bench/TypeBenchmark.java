@@ -0,0 +1,33 @@
+package com.jisj.archtools.bench;
+
+import com.jisj.archtools.Type;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Type#getType(Path)}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeBenchmark {
+    @Param({"archive.zip", "ARCHIVE.RAR", "archive.tar.gz", "archive.unknown"})
+    public String fileName;
+
+    private Path path;
+
+    @Setup
+    public void setUp() {
+        path = Path.of("/data/archives").resolve(fileName);
+    }
+
+    @Benchmark
+    public Type getType() {
+        return Type.getType(path);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jisj.archtools.bench;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.Controller;
+import com.jisj.archtools.impl.ZipFileSystemController;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ZipFileSystemController} by count of archive entries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipFileSystemControllerBenchmark {
+    private static final int CHANGED_ENTRIES = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int entries;
+
+    private final ZipFileSystemController controller = new ZipFileSystemController();
+    private Path folder;
+    private Path archive;
+    private Path workArchive;
+    private final List<Path> filesToAdd = new ArrayList<>();
+    private final List<String> entriesToRemove = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("zipfs-bench");
+        archive = folder.resolve("archive.zip");
+        workArchive = folder.resolve("work.zip");
+        CorpusGenerator.generateZip(archive, entries, entries * 4096L);
+        Path addFolder = folder.resolve("add");
+        CorpusGenerator.generateFolder(addFolder, CHANGED_ENTRIES, CHANGED_ENTRIES * 4096L);
+        try (var files = Files.walk(addFolder)) {
+            files.filter(Files::isRegularFile).forEach(filesToAdd::add);
+        }
+        for (int i = 0; i < CHANGED_ENTRIES; i++)
+            entriesToRemove.add(CorpusGenerator.entryName(i * (entries / CHANGED_ENTRIES)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.deleteFolder(folder);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyArchive() throws ArchiveException {
+        CorpusGenerator.copy(archive, workArchive);
+    }
+
+    @Benchmark
+    public List<String> getFileList() throws ArchiveException {
+        return controller.getFileList(archive);
+    }
+
+    @Benchmark
+    public List<Path> addFiles() throws ArchiveException {
+        return controller.addFiles(workArchive, filesToAdd, "/", Controller.CopyOptions.REPLACE_EXISTING);
+    }
+
+    @Benchmark
+    public List<String> removeFiles() throws ArchiveException {
+        return controller.removeFiles(workArchive, entriesToRemove);
+    }
+}
@@ -0,0 +1,25 @@
+package com.jisj.archtools;
+
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Entry of archive listing
+ *
+ * @param name             entry path in archive with {@code /} or native separators, without leading and trailing separator
+ * @param size             uncompressed size in bytes. {@code -1} if unknown
+ * @param lastModifiedTime last modified time | null if unknown
+ * @param directory        {@code true} for directory entry
+ */
+public record ArchiveEntry(String name, long size, FileTime lastModifiedTime, boolean directory) {
+
+    /**
+     * Creates entry by the name only
+     *
+     * @param name entry path in archive. Directories are recognized by trailing {@code /}
+     * @return entry with unknown size and time
+     */
+    public static ArchiveEntry of(String name) {
+        boolean directory = name.endsWith("/");
+        return new ArchiveEntry(directory ? name.substring(0, name.length() - 1) : name, -1, null, directory);
+    }
+}
@@ -0,0 +1,205 @@
+package com.jisj.archtools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link CompletableFuture} of archive operation with cancellation support.
+ * <p>Cancelling of the future kills native processes started by the operation with their children,
+ * interrupts the operation thread and runs registered clean up actions when the operation thread is finished.
+ * Native archive utils register their processes by {@link #register(Process)}.
+ * <p>Dependent stages ({@code thenApply} etc.) are ordinary {@code CompletableFuture}: cancel this future to break the operation
+ * <pre>{@code
+ *     CompletableFuture<Void> future = extractor.extractToAsync(archive, destination);
+ *     ...
+ *     future.cancel(true); //kills the native util and removes extracted files
+ * }</pre>
+ *
+ * @param <T> result type
+ */
+public class ArchiveFuture<T> extends CompletableFuture<T> {
+    private static final Logger log = Logger.getLogger(ArchiveFuture.class.getName());
+    private static final ThreadLocal<ArchiveFuture<?>> CURRENT = new ThreadLocal<>();
+    private static final Executor DEFAULT_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("archive-operation-", 0).factory());
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Action> cleanups = new ArrayList<>();
+    private Thread worker;
+
+    /**
+     * Operation with result
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Operation without result
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the task asynchronously in a virtual thread
+     *
+     * @param task archive operation
+     * @param <T>  result type
+     * @return future of the task result
+     */
+    public static <T> ArchiveFuture<T> callAsync(Task<T> task) {
+        return callAsync(task, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Runs the task asynchronously by the executor
+     *
+     * @param task     archive operation
+     * @param executor executor of the task
+     * @param <T>      result type
+     * @return future of the task result
+     */
+    public static <T> ArchiveFuture<T> callAsync(Task<T> task, Executor executor) {
+        ArchiveFuture<T> future = new ArchiveFuture<>();
+        executor.execute(() -> future.run(task));
+        return future;
+    }
+
+    /**
+     * Runs the action asynchronously in a virtual thread
+     *
+     * @param action archive operation
+     * @return future completed with {@code null} after the action
+     */
+    public static ArchiveFuture<Void> execAsync(Action action) {
+        return callAsync(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Registers native process of the current asynchronous operation. If the operation is cancelled the process
+     * and its children are killed. Does nothing if the current thread does not run an {@code ArchiveFuture} operation
+     *
+     * @param process started process
+     */
+    public static void register(Process process) {
+        ArchiveFuture<?> future = CURRENT.get();
+        if (future != null) future.addProcess(process);
+    }
+
+    /**
+     * Registers clean up action of the current asynchronous operation.
+     * The action runs in the operation thread after the operation if the future was cancelled.
+     * Does nothing if the current thread does not run an {@code ArchiveFuture} operation
+     *
+     * @param cleanup clean up action: partial output removing etc.
+     */
+    public static void onCancelled(Action cleanup) {
+        ArchiveFuture<?> future = CURRENT.get();
+        if (future != null) future.addCleanup(cleanup);
+    }
+
+    /**
+     * Checks cancellation of the current asynchronous operation
+     *
+     * @return {@code true} if the current thread runs an {@code ArchiveFuture} operation and the future is cancelled
+     */
+    public static boolean isCurrentCancelled() {
+        ArchiveFuture<?> future = CURRENT.get();
+        return future != null && future.isCancelled();
+    }
+
+    /**
+     * Breaks the current asynchronous operation if it is cancelled. Pure Java operations call it per entry,
+     * because they have no native process to kill
+     *
+     * @throws CancellationException if the current thread runs an {@code ArchiveFuture} operation and the future is cancelled
+     */
+    public static void checkCancelled() {
+        if (isCurrentCancelled()) throw new CancellationException("Archive operation is cancelled");
+    }
+
+    /**
+     * Kills the process and all its descendants
+     *
+     * @param process native process
+     */
+    public static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Kills registered native processes and interrupts the operation thread
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            synchronized (this) {
+                processes.forEach(ArchiveFuture::destroyTree);
+                if (worker != null) worker.interrupt();
+            }
+        }
+        return cancelled;
+    }
+
+    private void run(Task<T> task) {
+        if (isDone()) return;
+        CURRENT.set(this);
+        synchronized (this) {
+            worker = Thread.currentThread();
+        }
+        try {
+            complete(task.call());
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                worker = null;
+            }
+            CURRENT.remove();
+            //noinspection ResultOfMethodCallIgnored
+            Thread.interrupted();
+            if (isCancelled()) runCleanups();
+        }
+    }
+
+    private synchronized void addProcess(Process process) {
+        if (isCancelled()) destroyTree(process);
+        else processes.add(process);
+    }
+
+    private synchronized void addCleanup(Action cleanup) {
+        cleanups.add(cleanup);
+    }
+
+    private void runCleanups() {
+        List<Action> actions;
+        synchronized (this) {
+            actions = List.copyOf(cleanups);
+        }
+        for (Action action : actions) {
+            try {
+                action.run();
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.WARNING, "Clean up of cancelled archive operation failed", e);
+            }
+        }
+    }
+}
@@ -17,4 +17,12 @@ public interface Archiver {
      * @param messageListener {@code Consumer<String>}
      */
     void setMessageListener(Consumer<String> messageListener);
+
+    /**
+     * Sets progress listener in bytes. For native utils the bytes are calculated by the percentage output of {@code Process}
+     * @param bytesProgressListener {@link BytesProgressListener}
+     * @implSpec The default implementation ignores the listener
+     */
+    default void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+    }
 }
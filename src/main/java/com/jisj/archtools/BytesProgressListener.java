@@ -0,0 +1,15 @@
+package com.jisj.archtools;
+
+/**
+ * Listener of the progress measured in bytes
+ */
+@FunctionalInterface
+public interface BytesProgressListener {
+    /**
+     * Gets new progress
+     *
+     * @param bytesDone  processed bytes
+     * @param bytesTotal total bytes of the operation. {@code 0} if unknown
+     */
+    void progress(long bytesDone, long bytesTotal);
+}
@@ -0,0 +1,19 @@
+package com.jisj.archtools;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Handler of archive entry content
+ */
+@FunctionalInterface
+public interface EntryHandler {
+    /**
+     * Handles the entry content
+     *
+     * @param entry   archive entry
+     * @param content content of entry. The stream is valid in the call only and is closed by the caller
+     * @throws IOException on handling errors. The reading of other entries is broken
+     */
+    void accept(ArchiveEntry entry, InputStream content) throws IOException;
+}
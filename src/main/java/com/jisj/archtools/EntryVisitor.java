@@ -0,0 +1,30 @@
+package com.jisj.archtools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Visitor of archive files in order of archive, see {@link Extractor#forEachEntry(Path, EntryVisitor)}
+ */
+@FunctionalInterface
+public interface EntryVisitor {
+    /**
+     * Decides whether the content of file is needed. The skipped content is not decoded where the format allows
+     *
+     * @param entry archive entry
+     * @return {@code false} to skip the file. Default {@code true}
+     */
+    default boolean readContent(ArchiveEntry entry) {
+        return true;
+    }
+
+    /**
+     * Visits the file content
+     *
+     * @param entry   archive entry
+     * @param content content of file. The stream is valid in the call only and is closed by the caller
+     * @throws IOException on visiting errors. The visiting of other files is broken
+     */
+    void visit(ArchiveEntry entry, InputStream content) throws IOException;
+}
@@ -1,7 +1,22 @@
 package com.jisj.archtools;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 /**
  * The interface for archives extractors
@@ -30,4 +45,155 @@ public interface Extractor extends Archiver {
      * @throws ArchiveException when archive file not found, or archive extracting errors
      */
     void test(Path archive) throws ArchiveException;
+
+    /**
+     * Opens lazy stream of archive entries. Entries are read from the archive by the stream consumption.
+     * The stream must be closed: closing breaks the listing and kills the native process
+     * <pre>{@code
+     *     try (Stream<ArchiveEntry> entries = extractor.streamEntries(archive)) {
+     *         entries.filter(e -> e.name().endsWith(".xml")).findFirst();
+     *     }
+     * }</pre>
+     * @param archive archive file path
+     * @return stream of entries. Reading errors are thrown as {@link java.io.UncheckedIOException} with {@link ArchiveException} cause
+     * @throws ArchiveException when archive file not found, the listing cannot be started
+     * @implSpec The default implementation streams the result of {@link #getFileList(Path)}
+     */
+    default Stream<ArchiveEntry> streamEntries(Path archive) throws ArchiveException {
+        return getFileList(archive).stream().map(ArchiveEntry::of);
+    }
+
+    /**
+     * Returns publisher of archive entries with demand-driven backpressure. See {@link StreamPublisher}
+     * @param archive archive file path
+     * @return cold publisher: each subscriber gets the new listing of {@link #streamEntries(Path)}
+     */
+    default Flow.Publisher<ArchiveEntry> publishEntries(Path archive) {
+        return new StreamPublisher<>(() -> streamEntries(archive));
+    }
+
+    /**
+     * Reads several entries of archive by one pass and passes their content to the handler.
+     * Use it instead of single entry reads: an entry of solid archive is decompressed with all previous entries of its block
+     * <pre>{@code
+     *     extractor.readEntries(archive, List.of("doc/a.xml", "doc/b.xml"), (entry, content) -> parse(content));
+     * }</pre>
+     * @param archive archive file path
+     * @param names names of entries with {@code /} or native separators
+     * @param handler handler of entry content. Is called in the thread of this method
+     * @throws ArchiveException on archive extracting errors, if some entries not found after the handling of found ones,
+     * on handler errors
+     * @implSpec The default implementation extracts the archive to a temporary folder and passes the files in order of names
+     */
+    default void readEntries(Path archive, Collection<String> names, EntryHandler handler) throws ArchiveException {
+        Path folder;
+        try {
+            folder = Files.createTempDirectory("arch-tools-read");
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+        try {
+            extractTo(archive, folder);
+            List<String> missing = new ArrayList<>();
+            for (String name : new LinkedHashSet<>(names)) {
+                Path file = folder.resolve(name.replace('\\', '/'));
+                if (!Files.isRegularFile(file)) {
+                    missing.add(name);
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                try (InputStream content = Files.newInputStream(file)) {
+                    handler.accept(new ArchiveEntry(name, attributes.size(), attributes.lastModifiedTime(), false), content);
+                }
+            }
+            if (!missing.isEmpty()) throw new ArchiveException("Entries not found in " + archive + ": " + missing);
+        } catch (IOException e) {
+            throw e instanceof ArchiveException ae ? ae : new ArchiveException(e);
+        } finally {
+            try {
+                Utils.removeNotEmptyFolder(folder);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Passes each file of archive to the visitor in order of archive by one pass. Directories are not visited
+     * <pre>{@code
+     *     extractor.forEachEntry(archive, (entry, content) -> digests.put(entry.name(), sha256(content)));
+     * }</pre>
+     * @param archive archive file path
+     * @param visitor visitor of files. Is called in the thread of this method
+     * @throws ArchiveException on archive extracting errors, on visitor errors
+     * @implSpec The default implementation lists the archive by {@link #streamEntries(Path)} and
+     * reads the needed files by {@link #readEntries(Path, Collection, EntryHandler)}
+     */
+    default void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+        List<String> names = new ArrayList<>();
+        try (Stream<ArchiveEntry> entries = streamEntries(archive)) {
+            for (ArchiveEntry entry : (Iterable<ArchiveEntry>) entries::iterator)
+                if (!entry.directory() && visitor.readContent(entry)) names.add(entry.name());
+        }
+        if (!names.isEmpty()) readEntries(archive, names, visitor::visit);
+    }
+
+    /**
+     * Extracts files of small archive to memory. Directories are not included
+     * <pre>{@code
+     *     Map<String, ByteBuffer> files = extractor.extractToMemory(bundle, 4 * 1024 * 1024);
+     *     ByteBuffer manifest = files.get("META-INF/MANIFEST.MF");
+     * }</pre>
+     * @param archive archive file path
+     * @param maxBytes max total size of files
+     * @return unmodifiable map of entry names with {@code /} separators to read-only buffers in order of archive
+     * @throws ArchiveException on archive extracting errors, if total size of files is larger than maxBytes
+     * @implSpec The default implementation lists the archive by {@link #streamEntries(Path)}, checks the known sizes and
+     * reads the files by {@link #readEntries(Path, Collection, EntryHandler)}
+     */
+    default Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+        List<String> names = new ArrayList<>();
+        long known = 0;
+        try (Stream<ArchiveEntry> entries = streamEntries(archive)) {
+            for (ArchiveEntry entry : (Iterable<ArchiveEntry>) entries::iterator) {
+                if (entry.directory()) continue;
+                names.add(entry.name());
+                known += Math.max(entry.size(), 0);
+            }
+        }
+        if (known > maxBytes) throw new ArchiveException("Archive content " + known + " bytes is larger than limit " + maxBytes);
+        Map<String, ByteBuffer> result = new LinkedHashMap<>();
+        long[] remaining = {maxBytes};
+        readEntries(archive, names, (entry, content) -> {
+            ByteBuffer buffer = Utils.readToBuffer(content, remaining[0]);
+            remaining[0] -= buffer.remaining();
+            result.put(entry.name().replace('\\', '/'), buffer);
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Extracts files from archive asynchronously.
+     * Cancelling of the returned future breaks extraction and removes files added to the destination directory
+     * @param archive archive file path
+     * @param destination destination directory path
+     * @return {@link ArchiveFuture} completed after extraction
+     * @see #extractTo(Path, Path)
+     */
+    default CompletableFuture<Void> extractToAsync(Path archive, Path destination) {
+        return ArchiveFuture.execAsync(() -> {
+            Set<Path> existing = Utils.listFolder(destination);
+            ArchiveFuture.onCancelled(() -> Utils.removeAddedFiles(destination, existing));
+            extractTo(archive, destination);
+        });
+    }
+
+    /**
+     * Gets file list from specified archive asynchronously
+     * @param archive archive file path
+     * @return {@link ArchiveFuture} of archive file list
+     * @see #getFileList(Path)
+     */
+    default CompletableFuture<List<String>> getFileListAsync(Path archive) {
+        return ArchiveFuture.callAsync(() -> getFileList(archive));
+    }
 }
@@ -1,6 +1,8 @@
 package com.jisj.archtools;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The interface for archives packer utils
@@ -13,4 +15,22 @@ public interface Packer extends Archiver {
      * @throws ArchiveException if folder with files for archiving not found, during files operations
      */
     void packOfFolder(Path archive, Path filesFolder) throws ArchiveException;
+
+    /**
+     * Creates archive of files in the specified folder asynchronously.
+     * Cancelling of the returned future breaks packing and deletes the new archive file
+     * @param archive archive name
+     * @param filesFolder folder with files for archiving
+     * @return {@link ArchiveFuture} completed after packing
+     * @see #packOfFolder(Path, Path)
+     */
+    default CompletableFuture<Void> packOfFolderAsync(Path archive, Path filesFolder) {
+        return ArchiveFuture.execAsync(() -> {
+            boolean existed = Files.exists(archive);
+            ArchiveFuture.onCancelled(() -> {
+                if (!existed) Files.deleteIfExists(archive);
+            });
+            packOfFolder(archive, filesFolder);
+        });
+    }
 }
@@ -0,0 +1,123 @@
+package com.jisj.archtools;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cold {@link Flow.Publisher} over a closeable {@link Stream}. Each subscriber gets the new stream.
+ * <p>Items are pulled from the stream only by the subscriber demand, so the stream source (native process output etc.)
+ * is blocked while the subscriber does not request items. Cancelling of the subscription closes the stream.
+ * Errors of the stream ({@link UncheckedIOException} is unwrapped) are passed to {@link Flow.Subscriber#onError(Throwable)}
+ *
+ * @param <T> item type
+ */
+public class StreamPublisher<T> implements Flow.Publisher<T> {
+    private static final Executor DEFAULT_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("stream-publisher-", 0).factory());
+
+    private final ArchiveFuture.Task<Stream<T>> opener;
+    private final Executor executor;
+
+    /**
+     * @param opener opens new stream for subscriber. Called in a virtual thread on the first request
+     */
+    public StreamPublisher(ArchiveFuture.Task<Stream<T>> opener) {
+        this(opener, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param opener   opens new stream for subscriber. Called by executor on the first request
+     * @param executor executor of the item delivery
+     */
+    public StreamPublisher(ArchiveFuture.Task<Stream<T>> opener, Executor executor) {
+        this.opener = opener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new StreamSubscription(subscriber));
+    }
+
+    private class StreamSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile Stream<T> stream;
+        private Iterator<T> iterator;
+
+        StreamSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) return;
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            if (wip.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            close();
+        }
+
+        private void drain() {
+            int missed = 1;
+            try {
+                do {
+                    if (iterator == null && !cancelled) {
+                        stream = opener.call();
+                        if (cancelled) close();
+                        iterator = stream.iterator();
+                    }
+                    while (!cancelled && demand.get() > 0) {
+                        if (!iterator.hasNext()) {
+                            cancelled = true;
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        T item = iterator.next();
+                        demand.decrementAndGet();
+                        subscriber.onNext(item);
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            } catch (Throwable e) {
+                if (cancelled) return;
+                cancelled = true;
+                close();
+                subscriber.onError(e instanceof UncheckedIOException u ? u.getCause() : e);
+            }
+        }
+
+        private void close() {
+            Stream<T> s = stream;
+            if (s != null && closed.compareAndSet(false, true)) {
+                try {
+                    s.close();
+                } catch (RuntimeException ignored) {
+                    //the stream is closed after completion or cancellation: nothing to report
+                }
+            }
+        }
+    }
+}
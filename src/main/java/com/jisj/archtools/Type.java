@@ -2,6 +2,7 @@ package com.jisj.archtools;
 
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Comparator;
 
 /**
  * Types of supported archives
@@ -19,6 +20,18 @@ public enum Type {
      * 7z archive format
      */
     S7Z("7z"),
+    /**
+     * Uncompressed TAR archive format
+     */
+    TAR("tar"),
+    /**
+     * TAR archive compressed by gzip
+     */
+    TAR_GZ("tar.gz"),
+    /**
+     * TAR archive compressed by Zstandard
+     */
+    TAR_ZST("tar.zst"),
     /**
      * Unknown archive format
      */
@@ -31,14 +44,29 @@ public enum Type {
     }
 
     /**
-     * Gets type of archive by file extension
+     * Gets type of archive by file extension. The longest matching extension wins: {@code file.tar.gz} is {@link #TAR_GZ}
      * @param fileName {@code Path} of archive
      * @return archive {@link Type}
      */
     public static Type getType(Path fileName) {
+        String name = fileName.getFileName().toString().toLowerCase();
         return Arrays.stream(values())
-                .filter(value -> Utils.getFileExtension(fileName, false).equalsIgnoreCase(value.ext))
-                .findFirst().orElse(UNKNOWN);
+                .filter(value -> value != UNKNOWN && name.endsWith(value.getExt()))
+                .max(Comparator.comparingInt(value -> value.ext.length()))
+                .orElse(UNKNOWN);
+    }
+
+    /**
+     * Returns the archive file name without the archive extension. Compound extensions like {@code .tar.gz} are removed entirely
+     * @param fileName {@code Path} of archive
+     * @return file name without extension and parent path
+     * @see Utils#getNoExtName(Path)
+     */
+    public static String getBaseName(Path fileName) {
+        Type type = getType(fileName);
+        if (type == UNKNOWN) return Utils.getNoExtName(fileName);
+        String name = fileName.getFileName().toString();
+        return name.substring(0, name.length() - type.getExt().length()).trim();
     }
 
     /**
@@ -2,9 +2,13 @@ package com.jisj.archtools;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -25,6 +29,30 @@ public class Utils {
         }
     }
 
+    /**
+     * Returns children of the folder
+     * @param folder folder {@code Path}
+     * @return set of children paths. Empty set if the folder is not a directory
+     * @throws IOException during file operations
+     */
+    public static Set<Path> listFolder(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) return Set.of();
+        try (Stream<Path> paths = Files.list(folder)) {
+            return paths.collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Deletes children of the folder which are absent in the specified set with all their content
+     * @param folder folder {@code Path}
+     * @param existing children to keep. See {@link #listFolder(Path)}
+     * @throws IOException during file operations
+     */
+    public static void removeAddedFiles(Path folder, Set<Path> existing) throws IOException {
+        for (Path path : listFolder(folder))
+            if (!existing.contains(path)) removeNotEmptyFolder(path);
+    }
+
     /**
      * Gets file extension. Extension excludes from last chars after dot in the file name
      * @param fileName file name
@@ -58,4 +86,18 @@ public class Utils {
         return path.getFileName().toString()
                 .substring(0, path.getFileName().toString().lastIndexOf(".")).trim();
     }
+
+    /**
+     * Reads the stream to the end into read-only buffer
+     * @param content source stream
+     * @param limit max size of content
+     * @return read-only buffer of content
+     * @throws IOException on reading errors
+     * @throws ArchiveException if the content is larger than limit
+     */
+    public static ByteBuffer readToBuffer(InputStream content, long limit) throws IOException {
+        byte[] bytes = content.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+        if (bytes.length > limit) throw new ArchiveException("Content is larger than limit " + limit + " bytes");
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
 }
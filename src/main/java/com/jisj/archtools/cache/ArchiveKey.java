@@ -0,0 +1,39 @@
+package com.jisj.archtools.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identity of the archive file content. The key is changed when the archive is replaced or modified
+ *
+ * @param realPath     real path of archive
+ * @param size         file size in bytes
+ * @param lastModified last modified time in microseconds since the epoch
+ * @param fileKey      string of {@link BasicFileAttributes#fileKey()} | {@code "null"} if the file system has no file keys
+ */
+public record ArchiveKey(String realPath, long size, long lastModified, String fileKey) {
+
+    /**
+     * Reads the key of archive file
+     *
+     * @param archive archive path
+     * @return archive key
+     * @throws IOException if the file not found or attributes cannot be read
+     */
+    public static ArchiveKey of(Path archive) throws IOException {
+        Path real = archive.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(real, BasicFileAttributes.class);
+        return new ArchiveKey(real.toString(), attributes.size(),
+                attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS), String.valueOf(attributes.fileKey()));
+    }
+
+    /**
+     * @return single line text of the key
+     */
+    public String id() {
+        return realPath + "|" + size + "|" + lastModified + "|" + fileKey;
+    }
+}
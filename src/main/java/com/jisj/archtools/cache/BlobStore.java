@@ -0,0 +1,264 @@
+package com.jisj.archtools.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Content-addressed store of file contents shared by conversions.
+ * <p>The blob is identified by size, CRC32 and SHA-256 of content and is stored once in the store folder.
+ * The files are added by hard links, so the store costs no copies on the same volume. The copy is used
+ * when the link is not supported. The added files must not be modified.
+ * The blobs are taken by copies with own modification time, see {@link #copyTo(BlobKey, Path, FileTime)}:
+ * a link would share the time and attributes of the file first stored
+ * <p>The blob can be found by size and CRC32 from the archive listing before the extraction, see {@link #find(long, long)}.
+ * Different contents with the same size and CRC32 are not distinguished by this lookup
+ * <pre>{@code
+ *     BlobStore store = new BlobStore(Path.of("/data/blobs"));
+ *     Converter converter = Converter.builder().blobStore(store, true)...build();
+ *     converter.convert();
+ *     log.info("Dedupe ratio " + store.getDedupeRatio());
+ * }</pre>
+ * The store is thread-safe. The store folder is indexed on the first call
+ */
+public class BlobStore {
+    private static final String EXTENSION = ".blob";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Path folder;
+    private Map<String, BlobKey> blobs;
+    private final Map<Long, List<BlobKey>> bySizeAndCrc = new HashMap<>();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder logicalBytes = new LongAdder();
+    private final LongAdder reusedBytes = new LongAdder();
+
+    /**
+     * Key of blob
+     *
+     * @param size   content size in bytes
+     * @param crc32  CRC32 of content
+     * @param sha256 SHA-256 of content, lower case hex
+     */
+    public record BlobKey(long size, long crc32, String sha256) {
+        private String fileName() {
+            return sha256 + "-" + size + "-" + String.format("%08x", crc32) + EXTENSION;
+        }
+
+        private static BlobKey parse(String fileName) {
+            String[] parts = fileName.substring(0, fileName.length() - EXTENSION.length()).split("-");
+            if (parts.length != 3) return null;
+            try {
+                return new BlobKey(Long.parseLong(parts[1]), Long.parseLong(parts[2], 16), parts[0]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Creates store
+     *
+     * @param folder store folder. The folder is created on the first put
+     */
+    public BlobStore(Path folder) {
+        this.folder = Objects.requireNonNull(folder);
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Finds blob by size and CRC32 of content
+     *
+     * @param size  content size
+     * @param crc32 CRC32 of content
+     * @return key of blob | empty if not found
+     * @throws IOException on reading of the store folder
+     */
+    public synchronized Optional<BlobKey> find(long size, long crc32) throws IOException {
+        List<BlobKey> keys = index().isEmpty() ? null : bySizeAndCrc.get(lookupKey(size, crc32));
+        if (keys == null) return Optional.empty();
+        return keys.stream().filter(key -> key.size() == size && key.crc32() == crc32).findFirst();
+    }
+
+    /**
+     * Checks the blob
+     *
+     * @param key key of blob
+     * @return {@code true} if the blob is stored
+     * @throws IOException on reading of the store folder
+     */
+    public synchronized boolean contains(BlobKey key) throws IOException {
+        return index().containsKey(key.sha256() + "-" + key.size());
+    }
+
+    /**
+     * Adds content of the file to the store. The existing blob is not replaced
+     *
+     * @param file file path
+     * @return key of blob
+     * @throws IOException on reading or writing errors
+     */
+    public BlobKey put(Path file) throws IOException {
+        BlobKey key = hash(file);
+        logicalBytes.add(key.size());
+        if (contains(key)) {
+            reusedBytes.add(key.size());
+            return key;
+        }
+        Path blob = blobOf(key);
+        Files.createDirectories(blob.getParent());
+        Path tmp = blob.resolveSibling(blob.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            try {
+                Files.createLink(tmp, file);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized (this) {
+            if (add(key)) storedBytes.add(key.size());
+        }
+        return key;
+    }
+
+    /**
+     * Creates the file with content of blob. The parent directories are created. The file is a copy, so its
+     * modification time and attributes are own and do not change the blob
+     *
+     * @param key          key of blob
+     * @param target       file path. The existing file is replaced
+     * @param lastModified modification time of the file | null for the current time
+     * @throws IOException if the blob not found, on writing errors
+     */
+    public void copyTo(BlobKey key, Path target, FileTime lastModified) throws IOException {
+        Path blob = blobOf(key);
+        if (!contains(key)) throw new NoSuchFileException(blob.toString(), null, "Blob not found");
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        if (lastModified != null) Files.setLastModifiedTime(target, lastModified);
+        logicalBytes.add(key.size());
+        reusedBytes.add(key.size());
+    }
+
+    /**
+     * Calculates key of the file content by one read
+     *
+     * @param file file path
+     * @return key of content
+     * @throws IOException on reading errors
+     */
+    public static BlobKey hash(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, count);
+                sha256.update(buffer, 0, count);
+                size += count;
+            }
+        }
+        return new BlobKey(size, crc.getValue(), HexFormat.of().formatHex(sha256.digest()));
+    }
+
+    /**
+     * Returns size of the stored blobs added by this instance
+     *
+     * @return bytes
+     */
+    public long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    /**
+     * Returns size of all contents put and taken by this instance
+     *
+     * @return bytes
+     */
+    public long getLogicalBytes() {
+        return logicalBytes.sum();
+    }
+
+    /**
+     * Returns size of the contents found in the store: not stored again and not extracted
+     *
+     * @return bytes
+     */
+    public long getReusedBytes() {
+        return reusedBytes.sum();
+    }
+
+    /**
+     * Returns dedupe ratio: logical bytes per stored byte. The blobs stored before this instance are not counted as stored
+     *
+     * @return ratio, {@code 1.0} if nothing is stored
+     */
+    public double getDedupeRatio() {
+        long stored = getStoredBytes();
+        long logical = getLogicalBytes();
+        if (logical == 0) return 1.0;
+        return stored == 0 ? Double.POSITIVE_INFINITY : (double) logical / stored;
+    }
+
+    private Path blobOf(BlobKey key) {
+        return folder.resolve(key.sha256().substring(0, 2)).resolve(key.fileName());
+    }
+
+    private Map<String, BlobKey> index() throws IOException {
+        if (blobs != null) return blobs;
+        blobs = new HashMap<>();
+        if (Files.isDirectory(folder)) {
+            try (Stream<Path> files = Files.walk(folder, 2)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (!name.endsWith(EXTENSION)) continue;
+                    BlobKey key = BlobKey.parse(name);
+                    if (key != null) add(key);
+                }
+            }
+        }
+        return blobs;
+    }
+
+    private boolean add(BlobKey key) {
+        if (blobs.putIfAbsent(key.sha256() + "-" + key.size(), key) != null) return false;
+        bySizeAndCrc.computeIfAbsent(lookupKey(key.size(), key.crc32()), k -> new ArrayList<>()).add(key);
+        return true;
+    }
+
+    private static long lookupKey(long size, long crc32) {
+        return size * 31 + crc32;
+    }
+
+    @Override
+    public String toString() {
+        return "BlobStore{" +
+                "folder=" + folder +
+                ", storedBytes=" + getStoredBytes() +
+                ", logicalBytes=" + getLogicalBytes() +
+                ", dedupeRatio=" + getDedupeRatio() +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.jisj.archtools.cache;
+
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.BytesProgressListener;
+import com.jisj.archtools.EntryHandler;
+import com.jisj.archtools.EntryVisitor;
+import com.jisj.archtools.Extractor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link Extractor} decorator with {@link ListingCache} for {@link #getFileList(Path)}.
+ * Other commands are passed to the decorated extractor
+ * <pre>{@code
+ *     UtilProvider provider = new NativeProvider().withListingCache(new ListingCache());
+ * }</pre>
+ */
+public class CachingExtractor implements Extractor {
+    private final Extractor delegate;
+    private final ListingCache cache;
+
+    /**
+     * @param delegate decorated extractor
+     * @param cache    listing cache. May be shared between extractors
+     */
+    public CachingExtractor(Extractor delegate, ListingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * @return decorated extractor
+     */
+    public Extractor getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return listing cache
+     */
+    public ListingCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void extractTo(Path archive, Path destination) throws ArchiveException {
+        delegate.extractTo(archive, destination);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote On the cache hit listeners are not notified
+     */
+    @Override
+    public List<String> getFileList(Path archive) throws ArchiveException {
+        ArchiveKey key;
+        try {
+            key = ArchiveKey.of(archive);
+        } catch (IOException e) {
+            return delegate.getFileList(archive);
+        }
+        Optional<List<String>> cached = cache.get(key);
+        if (cached.isPresent()) return cached.get();
+        List<String> names = delegate.getFileList(archive);
+        cache.put(key, names);
+        return names;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Streams of entries are not cached
+     */
+    @Override
+    public Stream<ArchiveEntry> streamEntries(Path archive) throws ArchiveException {
+        return delegate.streamEntries(archive);
+    }
+
+    @Override
+    public void readEntries(Path archive, Collection<String> names, EntryHandler handler) throws ArchiveException {
+        delegate.readEntries(archive, names, handler);
+    }
+
+    @Override
+    public void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+        delegate.forEachEntry(archive, visitor);
+    }
+
+    @Override
+    public Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+        return delegate.extractToMemory(archive, maxBytes);
+    }
+
+    @Override
+    public void test(Path archive) throws ArchiveException {
+        delegate.test(archive);
+    }
+
+    @Override
+    public void setProgressListener(Consumer<Long> consumer) {
+        delegate.setProgressListener(consumer);
+    }
+
+    @Override
+    public void setMessageListener(Consumer<String> consumer) {
+        delegate.setMessageListener(consumer);
+    }
+
+    @Override
+    public void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        delegate.setBytesProgressListener(bytesProgressListener);
+    }
+
+    @Override
+    public String toString() {
+        return "CachingExtractor{" +
+                "delegate=" + delegate +
+                ", cache=" + cache +
+                '}';
+    }
+}
@@ -0,0 +1,138 @@
+package com.jisj.archtools.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of decoded content of small archive entries by {@link ArchiveKey} and entry name.
+ * <p>LRU bounded by total size of the cached content. Entries larger than {@link #getMaxEntrySize() max entry size}
+ * are not cached. The cache is thread-safe
+ */
+public class EntryCache {
+    private final long maxBytes;
+    private final int maxEntrySize;
+    private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesInMemory;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Key(ArchiveKey archive, String name) {
+    }
+
+    /**
+     * Creates cache of 64MB with entries up to 256KB
+     */
+    public EntryCache() {
+        this(64 * 1024 * 1024, 256 * 1024);
+    }
+
+    /**
+     * Creates cache
+     *
+     * @param maxBytes     max total size of cached content
+     * @param maxEntrySize max size of cached entry
+     * @throws IllegalArgumentException if a size is negative
+     */
+    public EntryCache(long maxBytes, int maxEntrySize) {
+        if (maxBytes < 0 || maxEntrySize < 0)
+            throw new IllegalArgumentException("Negative cache size: " + maxBytes + ", " + maxEntrySize);
+        this.maxBytes = maxBytes;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Returns cached content of entry
+     *
+     * @param archive archive key
+     * @param name    entry name
+     * @return content | empty on miss. The array must not be modified
+     */
+    public synchronized Optional<byte[]> get(ArchiveKey archive, String name) {
+        byte[] content = memory.get(new Key(archive, name));
+        if (content == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(content);
+    }
+
+    /**
+     * Adds content of entry. Content larger than max entry size is ignored
+     *
+     * @param archive archive key
+     * @param name    entry name
+     * @param content entry content. The array must not be modified after adding
+     * @return {@code true} if the content is cached
+     */
+    public synchronized boolean put(ArchiveKey archive, String name, byte[] content) {
+        if (content.length > maxEntrySize || content.length > maxBytes) return false;
+        byte[] previous = memory.put(new Key(archive, name), content);
+        if (previous != null) bytesInMemory -= previous.length;
+        bytesInMemory += content.length;
+        var iterator = memory.entrySet().iterator();
+        while (bytesInMemory > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, byte[]> eldest = iterator.next();
+            bytesInMemory -= eldest.getValue().length;
+            iterator.remove();
+            evictions.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Clears the cache. Counters are not reset
+     */
+    public synchronized void clear() {
+        memory.clear();
+        bytesInMemory = 0;
+    }
+
+    /**
+     * @return max size of cached entry
+     */
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * @return total size of cached content
+     */
+    public synchronized long getBytes() {
+        return bytesInMemory;
+    }
+
+    /**
+     * @return count of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return count of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return count of evicted entries
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EntryCache{" +
+                "entries=" + memory.size() +
+                ", bytes=" + bytesInMemory + "/" + maxBytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+}
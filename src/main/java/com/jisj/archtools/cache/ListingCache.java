@@ -0,0 +1,234 @@
+package com.jisj.archtools.cache;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of archive file lists by {@link ArchiveKey}.
+ * <p>The memory tier is LRU bounded by total count of the cached names. The optional persistent tier
+ * stores every listing to a file in {@link #setPersistentFolder(Path) persistent folder} and is read on the memory miss
+ * <p>The cache is thread-safe. Concurrent misses of the same archive are not coalesced: each caller lists the archive
+ */
+public class ListingCache {
+    private static final int FORMAT = 0x4c535431; //LST1
+    private final long maxNames;
+    private final LinkedHashMap<ArchiveKey, List<String>> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long namesInMemory;
+    private Path persistentFolder;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates cache with memory tier of 1 000 000 names
+     */
+    public ListingCache() {
+        this(1_000_000);
+    }
+
+    /**
+     * Creates cache
+     *
+     * @param maxNames max total count of names in the memory tier. The last added listing is kept even if it is larger
+     * @throws IllegalArgumentException if maxNames is negative
+     */
+    public ListingCache(long maxNames) {
+        if (maxNames < 0) throw new IllegalArgumentException("Negative cache size: " + maxNames);
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * Sets folder of the persistent tier. The folder is created on the first write
+     *
+     * @param persistentFolder folder path | null to switch off the persistent tier. Default null
+     */
+    public synchronized void setPersistentFolder(Path persistentFolder) {
+        this.persistentFolder = persistentFolder;
+    }
+
+    /**
+     * Returns cached file list
+     *
+     * @param key archive key
+     * @return unmodifiable file list | empty on miss
+     */
+    public Optional<List<String>> get(ArchiveKey key) {
+        Path folder;
+        synchronized (this) {
+            List<String> names = memory.get(key);
+            if (names != null) {
+                hits.increment();
+                return Optional.of(names);
+            }
+            folder = persistentFolder;
+        }
+        if (folder != null) {
+            List<String> names = load(folder, key);
+            if (names != null) {
+                hits.increment();
+                persistentHits.increment();
+                putInMemory(key, names);
+                return Optional.of(names);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Adds file list to the cache
+     *
+     * @param key   archive key
+     * @param names file list
+     */
+    public void put(ArchiveKey key, List<String> names) {
+        List<String> copy = List.copyOf(names);
+        putInMemory(key, copy);
+        Path folder;
+        synchronized (this) {
+            folder = persistentFolder;
+        }
+        if (folder != null) store(folder, key, copy);
+    }
+
+    /**
+     * Removes all cached listings of the archive path from the memory tier.
+     * Persistent listings of changed archives are not read because of the other key
+     *
+     * @param archive archive path
+     */
+    public synchronized void invalidate(Path archive) {
+        String path;
+        try {
+            path = archive.toRealPath().toString();
+        } catch (IOException e) {
+            path = archive.toAbsolutePath().toString();
+        }
+        String realPath = path;
+        memory.entrySet().removeIf(entry -> {
+            if (!entry.getKey().realPath().equals(realPath)) return false;
+            namesInMemory -= entry.getValue().size();
+            return true;
+        });
+    }
+
+    /**
+     * Clears the memory tier. Counters are not reset
+     */
+    public synchronized void clear() {
+        memory.clear();
+        namesInMemory = 0;
+    }
+
+    /**
+     * @return count of hits of both tiers
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return count of hits of the persistent tier
+     */
+    public long getPersistentHits() {
+        return persistentHits.sum();
+    }
+
+    /**
+     * @return count of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return count of listings evicted from the memory tier
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return count of listings in the memory tier
+     */
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    private synchronized void putInMemory(ArchiveKey key, List<String> names) {
+        List<String> previous = memory.put(key, names);
+        if (previous != null) namesInMemory -= previous.size();
+        namesInMemory += names.size();
+        Iterator<Map.Entry<ArchiveKey, List<String>>> iterator = memory.entrySet().iterator();
+        while (namesInMemory > maxNames && memory.size() > 1) {
+            Map.Entry<ArchiveKey, List<String>> eldest = iterator.next();
+            namesInMemory -= eldest.getValue().size();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static List<String> load(Path folder, ArchiveKey key) {
+        Path file = fileOf(folder, key);
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT || !in.readUTF().equals(key.id())) return null;
+            int count = in.readInt();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) names.add(in.readUTF());
+            return Collections.unmodifiableList(names);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void store(Path folder, ArchiveKey key, List<String> names) {
+        Path file = fileOf(folder, key);
+        Path tmp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            Files.createDirectories(folder);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(key.id());
+                out.writeInt(names.size());
+                for (String name : names) out.writeUTF(name);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            //the persistent tier is optional: the listing stays in the memory tier
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Path fileOf(Path folder, ArchiveKey key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.id().getBytes(StandardCharsets.UTF_8));
+            return folder.resolve(HexFormat.of().formatHex(digest) + ".lst");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListingCache{" +
+                "maxNames=" + maxNames +
+                ", size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                ", persistentFolder=" + persistentFolder +
+                '}';
+    }
+}
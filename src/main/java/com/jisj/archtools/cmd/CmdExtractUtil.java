@@ -1,6 +1,11 @@
 package com.jisj.archtools.cmd;
 
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.UnsupportedCommand;
+
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Common interface for extract commands of archive utils
@@ -27,4 +32,120 @@ public interface CmdExtractUtil extends CmdUtil {
      */
     String getFileListCmd(Path archive);
 
+    /**
+     * Parses line of the {@link #getFileListCmd(Path) file list} output
+     *
+     * @param line not blank output line
+     * @return archive entry
+     * @implSpec The default implementation takes the line as entry name
+     */
+    default ArchiveEntry parseListLine(String line) {
+        return ArchiveEntry.of(line);
+    }
+
+    /**
+     * Creates string command for extraction of several archives by one process.
+     * Each archive is extracted to the subfolder of destination named by the archive name without last extension.
+     * Output and error streams of the process are expected merged
+     *
+     * @param archives    source archives
+     * @param listFile    file for archive paths. The caller writes the paths one per line in UTF-8 before the start
+     * @param destination root destination folder
+     * @return command string | empty if the util cannot extract these archives by one process
+     * @implSpec The default implementation returns empty
+     */
+    default Optional<String> extractBatchCmd(List<Path> archives, Path listFile, Path destination) {
+        return Optional.empty();
+    }
+
+    /**
+     * Parses line of the {@link #extractBatchCmd(List, Path, Path) batch extraction} output
+     * for the start of next archive
+     *
+     * @param line output line
+     * @return path of archive as printed by util | null if the line does not start next archive
+     * @implSpec The default implementation returns null
+     */
+    default String parseBatchArchive(String line) {
+        return null;
+    }
+
+    /**
+     * Checks line of the {@link #extractBatchCmd(List, Path, Path) batch extraction} output for error
+     * of the current archive
+     *
+     * @param line output line
+     * @return {@code true} if the line reports error
+     * @implSpec The default implementation returns {@code false}
+     */
+    default boolean isBatchError(String line) {
+        return false;
+    }
+
+    /**
+     * Checks support of {@link #extractEntriesCmd(Path, Path, Path) extraction of the listed entries}
+     *
+     * @return {@code true} if the util extracts selected entries
+     * @implSpec The default implementation returns {@code false}
+     */
+    default boolean supportsEntryExtraction() {
+        return false;
+    }
+
+    /**
+     * Creates string command for extraction of the listed entries from archive to destination folder
+     *
+     * @param archive     source archive
+     * @param listFile    file with entry names. The caller writes the names one per line in UTF-8 before the start
+     * @param destination destination folder
+     * @return command string | empty if the util cannot extract selected entries
+     * @implSpec The default implementation returns empty
+     */
+    default Optional<String> extractEntriesCmd(Path archive, Path listFile, Path destination) {
+        return Optional.empty();
+    }
+
+    /**
+     * Checks support of {@link #getTechnicalListCmd(Path) technical listing}
+     *
+     * @return {@code true} if the util has technical listing
+     * @implSpec The default implementation returns {@code false}
+     */
+    default boolean supportsTechnicalList() {
+        return false;
+    }
+
+    /**
+     * Creates string command for technical listing of archive with solid flag and blocks of entries
+     *
+     * @param archive source archive
+     * @return command string | empty if the util has no technical listing
+     * @implSpec The default implementation returns empty
+     */
+    default Optional<String> getTechnicalListCmd(Path archive) {
+        return Optional.empty();
+    }
+
+    /**
+     * Parses output of the {@link #getTechnicalListCmd(Path) technical listing}
+     *
+     * @param lines output lines
+     * @return listing
+     * @throws UnsupportedCommand if the util has no technical listing, see {@link #supportsTechnicalList()}
+     */
+    default TechnicalListing parseTechnicalList(List<String> lines) throws UnsupportedCommand {
+        throw new UnsupportedCommand();
+    }
+
+    /**
+     * Creates string command for extraction of all files of archive to the standard output.
+     * The contents of files are written one after another in order of the {@link #getTechnicalListCmd(Path) technical listing}
+     *
+     * @param archive source archive
+     * @return command string | empty if the util cannot extract to the standard output
+     * @implSpec The default implementation returns empty
+     */
+    default Optional<String> extractToStdoutCmd(Path archive) {
+        return Optional.empty();
+    }
 }
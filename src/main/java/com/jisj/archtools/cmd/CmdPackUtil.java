@@ -1,6 +1,7 @@
 package com.jisj.archtools.cmd;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * Common interface for extract commands of archive utils
@@ -16,4 +17,17 @@ public interface CmdPackUtil extends CmdUtil {
      */
     String packOfFolderCmd(Path archive, Path sourceFolder);
 
+    /**
+     * Creates string command for adding files of list file to archive. The command is run in the folder of files.
+     * The existing archive is updated
+     *
+     * @param archive  target archive
+     * @param listFile UTF-8 file with paths relative to the folder of files, one per line, in order of packing
+     * @param store    {@code true} stores the files without compression
+     * @return command string | empty if the util does not support list files
+     */
+    default Optional<String> packOfListCmd(Path archive, Path listFile, boolean store) {
+        return Optional.empty();
+    }
+
 }
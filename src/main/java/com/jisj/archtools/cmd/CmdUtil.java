@@ -1,6 +1,8 @@
 package com.jisj.archtools.cmd;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Common interface for commands of archives utils
@@ -15,6 +17,37 @@ public interface CmdUtil {
         return "\"" + str + "\"";
     }
 
+    /**
+     * Splits the command string to the command and arguments for {@link ProcessBuilder}.
+     * The strings are separated by whitespaces outside of quoter marks. Quoter marks are removed.
+     * Backslashes are not escape characters, so Windows paths are kept as is
+     *
+     * @param command command string: {@code "C:\Program Files\7-Zip\7z.exe" x -y "archive.zip" -o"destination"}
+     * @return command and arguments: {@code [C:\Program Files\7-Zip\7z.exe, x, -y, archive.zip, -odestination]}
+     */
+    static List<String> splitCommand(String command) {
+        List<String> result = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) result.add(token.toString());
+                token.setLength(0);
+                inToken = false;
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (inToken) result.add(token.toString());
+        return result;
+    }
+
     /**
      * Returns {@code Path} of the executive util file
      * @return util path
@@ -0,0 +1,62 @@
+package com.jisj.archtools.cmd;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Parser of the percentage progress in the output of native utils: {@code 7z -bsp1} and {@code unrar}.
+ * <p>The parser gets bytes of the output as is, including backspaces and carriage returns.
+ * The number of 1-3 digits followed by {@code %} and preceded by the start of output or by whitespace/control char
+ * is the percentage. The listener is called on each change of the percentage.
+ * The parser does not allocate memory and is not thread-safe
+ */
+public final class PercentParser {
+    private final IntConsumer listener;
+    private int value = -1;
+    private boolean boundary = true;
+    private int last = -1;
+
+    /**
+     * @param listener gets percentage 0-100
+     */
+    public PercentParser(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parses part of output
+     *
+     * @param buffer output bytes
+     * @param offset start offset
+     * @param length count of bytes
+     */
+    public void accept(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) accept(buffer[i]);
+    }
+
+    /**
+     * Parses next byte of output
+     *
+     * @param b output byte
+     */
+    public void accept(byte b) {
+        if (b >= '0' && b <= '9') {
+            if (value >= 0) value = value < 1000 ? value * 10 + (b - '0') : value;
+            else if (boundary) value = b - '0';
+            boundary = false;
+            return;
+        }
+        if (b == '%' && value >= 0 && value <= 100 && value != last) {
+            last = value;
+            listener.accept(value);
+        }
+        value = -1;
+        boundary = b <= ' ';
+    }
+
+    /**
+     * @return last percentage | -1 if not parsed yet
+     */
+    public int getLast() {
+        return last;
+    }
+}
@@ -1,6 +1,22 @@
 package com.jisj.archtools.cmd;
 
+import com.jisj.archtools.ArchiveEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 
 import static com.jisj.archtools.cmd.CmdExtractUtil.encloseInQuotations;
 
@@ -13,6 +29,18 @@ import static com.jisj.archtools.cmd.CmdExtractUtil.encloseInQuotations;
  * @param utilPath path to extract util. Default: {@code C:/Program Files/WinRAR/unrar.exe}
  */
 public record RarExtractCmd(Path utilPath) implements CmdExtractUtil {
+    private static final String BATCH_ARCHIVE = "Extracting from ";
+    /**
+     * Starts of unrar diagnostic lines
+     */
+    private static final List<String> BATCH_ERROR_PREFIXES = List.of("checksum error in ", "crc failed in ",
+            "cannot open ", "cannot create ", "unexpected end of archive", "corrupt header", "the archive is corrupt",
+            "data error in ", "error:");
+    /**
+     * Diagnostics printed after the file or archive name
+     */
+    private static final List<String> BATCH_ERROR_PARTS = List.of(" - checksum error", " - crc failed",
+            " is not rar archive");
 
     /**
      * Default constructor: "C:/Program Files/WinRAR/unrar.exe"
@@ -50,6 +78,180 @@ public record RarExtractCmd(Path utilPath) implements CmdExtractUtil {
                 .formatted(encloseInQuotations(archive.toAbsolutePath().toString()));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>unrar has no list file of archives, so the wildcard {@code <folder>/*.rar} is used. The command is created
+     * only if the archives are all the {@code *.rar} files of one folder. The list file is not used.
+     * Additional keys:
+     * <ul style="list-style-type:none">
+     * <li>-ad Append archive name to destination path</li>
+     * </ul>
+     *
+     * @return {@code unrar x -y -ad <folder>/*.rar <destination>/}
+     */
+    @Override
+    public Optional<String> extractBatchCmd(List<Path> archives, Path listFile, Path destination) {
+        if (archives.isEmpty()) return Optional.empty();
+        Path folder = archives.getFirst().toAbsolutePath().getParent();
+        Set<Path> requested = new HashSet<>();
+        for (Path archive : archives) {
+            Path absolute = archive.toAbsolutePath().normalize();
+            if (!absolute.getParent().equals(folder.normalize())
+                    || !absolute.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".rar"))
+                return Optional.empty();
+            requested.add(absolute);
+        }
+        Set<Path> matched = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.{rar,RAR,Rar}")) {
+            files.forEach(file -> matched.add(file.toAbsolutePath().normalize()));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        if (!matched.equals(requested)) return Optional.empty();
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y -ad %s %s"
+                .formatted(encloseInQuotations(folder + File.separator + "*.rar"),
+                        encloseInQuotations(destination.toAbsolutePath() + File.separator)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return path of {@code Extracting from <path>} line
+     */
+    @Override
+    public String parseBatchArchive(String line) {
+        return line.startsWith(BATCH_ARCHIVE) ? line.substring(BATCH_ARCHIVE.length()).trim() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The per-file {@code Extracting <name> OK} lines are not errors whatever the file name is
+     *
+     * @return {@code true} for checksum, CRC, open and corruption diagnostics of unrar
+     */
+    @Override
+    public boolean isBatchError(String line) {
+        String trimmed = line.strip();
+        if (trimmed.startsWith("Extracting ") && trimmed.endsWith("OK")) return false;
+        String lower = trimmed.toLowerCase(Locale.ROOT);
+        for (String prefix : BATCH_ERROR_PREFIXES) if (lower.startsWith(prefix)) return true;
+        for (String part : BATCH_ERROR_PARTS) if (lower.contains(part)) return true;
+        return false;
+    }
+
+    @Override
+    public boolean supportsEntryExtraction() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Additional keys:
+     * <ul style="list-style-type:none">
+     * <li>-scfl UTF-8 charset of list file</li>
+     * </ul>
+     *
+     * @return {@code unrar x -y -scfl <archive> @<listFile> <destination>/}
+     */
+    @Override
+    public Optional<String> extractEntriesCmd(Path archive, Path listFile, Path destination) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y -scfl %s @%s %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString()),
+                        encloseInQuotations(listFile.toAbsolutePath().toString()),
+                        encloseInQuotations(destination.toAbsolutePath() + File.separator)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Additional keys:
+     * <ul style="list-style-type:none">
+     * <li>-inul Disable all messages</li>
+     * </ul>
+     *
+     * @return {@code unrar p -inul -y <archive>}
+     */
+    @Override
+    public Optional<String> extractToStdoutCmd(Path archive) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " p -inul -y %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString())));
+    }
+
+    @Override
+    public boolean supportsTechnicalList() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code unrar lt <archive>}
+     */
+    @Override
+    public Optional<String> getTechnicalListCmd(Path archive) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " lt %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString())));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Parses {@code key: value} lines of {@code lt} output. The {@code Details:} line of archive has
+     * {@code solid} for solid archives. An entry starts with {@code Name:} line and has {@code Type}, {@code Size},
+     * {@code CRC32} and {@code mtime}. RAR has no blocks: all files of solid archive are in block 0
+     */
+    @Override
+    public TechnicalListing parseTechnicalList(List<String> lines) {
+        boolean solid = false;
+        List<TechnicalListing.Entry> entries = new ArrayList<>();
+        String name = null;
+        long size = -1;
+        long crc = -1;
+        boolean directory = false;
+        FileTime time = null;
+        for (String line : lines) {
+            int separator = line.indexOf(": ");
+            if (separator < 0) continue;
+            String key = line.substring(0, separator).trim();
+            String value = line.substring(separator + 2).trim();
+            switch (key) {
+                case "Details" -> solid = value.toLowerCase(Locale.ROOT).contains("solid");
+                case "Name" -> {
+                    if (name != null) entries.add(technicalEntry(name, size, crc, time, directory, solid, entries.size()));
+                    name = value;
+                    size = -1;
+                    crc = -1;
+                    directory = false;
+                    time = null;
+                }
+                case "Type" -> directory = value.equalsIgnoreCase("Directory");
+                case "CRC32" -> crc = ZipCmd.parseCrc(value);
+                case "Size" -> {
+                    try {
+                        size = Long.parseLong(value);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                case "mtime" -> {
+                    if (value.length() >= 19) {
+                        try {
+                            time = FileTime.from(LocalDateTime.parse(value.substring(0, 19).replace(' ', 'T'))
+                                    .atZone(ZoneId.systemDefault()).toInstant());
+                        } catch (DateTimeParseException ignored) {
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (name != null) entries.add(technicalEntry(name, size, crc, time, directory, solid, entries.size()));
+        return new TechnicalListing(solid, entries);
+    }
+
+    private static TechnicalListing.Entry technicalEntry(String name, long size, long crc, FileTime time, boolean directory,
+                                                         boolean solid, int index) {
+        return new TechnicalListing.Entry(new ArchiveEntry(name, size, time, directory), directory ? -1 : solid ? 0 : index, crc);
+    }
+
     @Override
     public Path getUtilPath() {
         return utilPath;
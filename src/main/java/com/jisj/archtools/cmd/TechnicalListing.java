@@ -0,0 +1,40 @@
+package com.jisj.archtools.cmd;
+
+import com.jisj.archtools.ArchiveEntry;
+
+import java.util.List;
+
+/**
+ * Technical listing of archive: solid flag and entries with numbers of solid blocks
+ *
+ * @param solid   {@code true} if the archive is solid: entries of one block are decompressed sequentially
+ * @param entries entries of archive in order of listing
+ */
+public record TechnicalListing(boolean solid, List<Entry> entries) {
+
+    /**
+     * Creates listing
+     */
+    public TechnicalListing {
+        entries = List.copyOf(entries);
+    }
+
+    /**
+     * Entry with number of block
+     *
+     * @param entry entry of listing
+     * @param block number of solid block. Every entry of not solid archive has own block. {@code -1} for directories
+     * @param crc   CRC32 of entry content | {@code -1} if unknown
+     */
+    public record Entry(ArchiveEntry entry, long block, long crc) {
+        /**
+         * Creates entry with unknown CRC32
+         *
+         * @param entry entry of listing
+         * @param block number of solid block
+         */
+        public Entry(ArchiveEntry entry, long block) {
+            this(entry, block, -1);
+        }
+    }
+}
@@ -1,6 +1,18 @@
 package com.jisj.archtools.cmd;
 
+import com.jisj.archtools.ArchiveEntry;
+
+import java.io.File;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static com.jisj.archtools.cmd.CmdExtractUtil.encloseInQuotations;
 
@@ -10,9 +22,11 @@ import static com.jisj.archtools.cmd.CmdExtractUtil.encloseInQuotations;
  *                  <path_to_extract\>}
  * </pre>
  *
- * @param utilPath path to extract util. Default: {@code C:/Program Files/7-Zip/7z.ex}
+ * @param utilPath       path to extract util. Default: {@code C:/Program Files/7-Zip/7z.ex}
+ * @param progressSwitch {@code true} to pass {@code -bsp1} switch (7-Zip 15 and later)
  */
-public record ZipCmd(Path utilPath) implements CmdExtractUtil, CmdPackUtil {
+public record ZipCmd(Path utilPath, boolean progressSwitch) implements CmdExtractUtil, CmdPackUtil {
+    private static final String BATCH_ARCHIVE = "Extracting archive: ";
 
     /**
      * Default constructor: "C:/Program Files/WinRAR/unrar.exe"
@@ -21,20 +35,30 @@ public record ZipCmd(Path utilPath) implements CmdExtractUtil, CmdPackUtil {
         this(Path.of("C:/Program Files/7-Zip/7z.exe"));
     }
 
+    /**
+     * Creates command with {@code -bsp1} switch
+     *
+     * @param utilPath path to util
+     */
+    public ZipCmd(Path utilPath) {
+        this(utilPath, true);
+    }
+
     /**
      * {@inheritDoc}
      * <p>Additional keys:
      * <ul style="list-style-type:none">
      * <li>-y Assume Yes on all queries</li>
+     * <li>-bsp1 Progress percentage to output stream, if {@link #progressSwitch()}</li>
      * </ul>
      *
      * @param archive     source archive
      * @param destination destination folder
-     * @return {@code 7z x -y <archive> -o<destination>}
+     * @return {@code 7z x -y -bsp1 <archive> -o<destination>}
      */
     @Override
     public String extractToDestinationCmd(Path archive, Path destination) {
-        return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y %s -o%s"
+        return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y" + progressKey() + " %s -o%s"
                 .formatted(encloseInQuotations(archive.toAbsolutePath().toString()),
                         encloseInQuotations(destination.toAbsolutePath().toString()));
     }
@@ -50,6 +74,196 @@ public record ZipCmd(Path utilPath) implements CmdExtractUtil, CmdPackUtil {
                 .formatted(encloseInQuotations(archive.toAbsolutePath().toString()));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>Parses the columns of {@code l -ba} output:
+     * <pre>{@code 2024-01-31 12:00:00 ....A         1234          567  folder\file.txt}</pre>
+     * Date, attributes, size, compressed size, name. Lines of other format are taken as entry name
+     */
+    @Override
+    public ArchiveEntry parseListLine(String line) {
+        if (line.length() <= 53 || line.charAt(19) != ' ' || line.charAt(25) != ' ')
+            return ArchiveEntry.of(line);
+        String sizeColumn = line.substring(26, 38).trim();
+        String dateColumn = line.substring(0, 19).trim();
+        long size = -1;
+        FileTime time = null;
+        try {
+            if (!sizeColumn.isEmpty()) size = Long.parseLong(sizeColumn);
+            if (!dateColumn.isEmpty())
+                time = FileTime.from(LocalDateTime.parse(dateColumn.replace(' ', 'T'))
+                        .atZone(ZoneId.systemDefault()).toInstant());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return ArchiveEntry.of(line);
+        }
+        return new ArchiveEntry(line.substring(53), size, time, line.charAt(20) == 'D');
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Additional keys:
+     * <ul style="list-style-type:none">
+     * <li>-bse1 Error messages to output stream</li>
+     * <li>-an -ai@listfile Archive names from list file</li>
+     * <li>-o&lt;destination&gt;/* Subfolder per archive</li>
+     * </ul>
+     *
+     * @return {@code 7z x -y -bse1 -scsUTF-8 -an -ai@<listFile> -o<destination>/*}
+     */
+    @Override
+    public Optional<String> extractBatchCmd(List<Path> archives, Path listFile, Path destination) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y -bse1 -scsUTF-8 -an -ai@%s -o%s"
+                .formatted(encloseInQuotations(listFile.toAbsolutePath().toString()),
+                        encloseInQuotations(destination.toAbsolutePath() + File.separator + "*")));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return path of {@code Extracting archive: <path>} line
+     */
+    @Override
+    public String parseBatchArchive(String line) {
+        return line.startsWith(BATCH_ARCHIVE) ? line.substring(BATCH_ARCHIVE.length()).trim() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code true} for {@code ERROR: ...}, {@code ERRORS:} and {@code Open ERROR: ...} lines.
+     * The file names of progress lines are not matched
+     */
+    @Override
+    public boolean isBatchError(String line) {
+        String trimmed = line.strip();
+        return trimmed.startsWith("ERROR") || trimmed.startsWith("Open ERROR:");
+    }
+
+    @Override
+    public boolean supportsEntryExtraction() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Additional keys:
+     * <ul style="list-style-type:none">
+     * <li>-spd Disable wildcard matching for file names of list file</li>
+     * </ul>
+     *
+     * @return {@code 7z x -y -bsp1 -scsUTF-8 -spd <archive> -o<destination> @<listFile>}
+     */
+    @Override
+    public Optional<String> extractEntriesCmd(Path archive, Path listFile, Path destination) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -y" + progressKey() + " -scsUTF-8 -spd %s -o%s @%s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString()),
+                        encloseInQuotations(destination.toAbsolutePath().toString()),
+                        encloseInQuotations(listFile.toAbsolutePath().toString())));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code 7z x -so -y <archive>}
+     */
+    @Override
+    public Optional<String> extractToStdoutCmd(Path archive) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " x -so -y %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString())));
+    }
+
+    @Override
+    public boolean supportsTechnicalList() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code 7z l -slt <archive>}
+     */
+    @Override
+    public Optional<String> getTechnicalListCmd(Path archive) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " l -slt %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString())));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Parses {@code key = value} blocks of {@code l -slt} output. The archive block before {@code ----------}
+     * line has {@code Solid = +} for solid archives. The entry blocks have {@code Path}, {@code Size},
+     * {@code Modified}, {@code Folder} or {@code Attributes}, {@code CRC} and {@code Block} for 7z archives
+     */
+    @Override
+    public TechnicalListing parseTechnicalList(List<String> lines) {
+        boolean solid = false;
+        boolean header = true;
+        List<TechnicalListing.Entry> entries = new ArrayList<>();
+        Map<String, String> properties = new HashMap<>();
+        for (String line : lines) {
+            if (header) {
+                if (line.startsWith("----------")) header = false;
+                else if (line.replace(" ", "").equals("Solid=+")) solid = true;
+                continue;
+            }
+            int separator = line.indexOf(" = ");
+            if (separator > 0) {
+                properties.put(line.substring(0, separator).trim(), line.substring(separator + 3));
+            } else if (line.isBlank() && !properties.isEmpty()) {
+                entries.add(technicalEntry(properties, solid, entries.size()));
+                properties.clear();
+            }
+        }
+        if (!properties.isEmpty()) entries.add(technicalEntry(properties, solid, entries.size()));
+        return new TechnicalListing(solid, entries);
+    }
+
+    private static TechnicalListing.Entry technicalEntry(Map<String, String> properties, boolean solid, int index) {
+        boolean directory = "+".equals(properties.get("Folder"))
+                || properties.getOrDefault("Attributes", "").startsWith("D");
+        long size = parseLong(properties.get("Size"), -1);
+        FileTime time = null;
+        String modified = properties.get("Modified");
+        if (modified != null && modified.length() >= 19) {
+            try {
+                time = FileTime.from(LocalDateTime.parse(modified.substring(0, 19).replace(' ', 'T'))
+                        .atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        long block = directory ? -1 : parseLong(properties.get("Block"), solid ? 0 : index);
+        return new TechnicalListing.Entry(new ArchiveEntry(properties.getOrDefault("Path", ""), size, time, directory), block,
+                parseCrc(properties.get("CRC")));
+    }
+
+    /**
+     * Parses hex CRC32
+     *
+     * @param value hex string | null
+     * @return CRC32 | {@code -1} if not parsed
+     */
+    static long parseCrc(String value) {
+        if (value == null || value.isBlank()) return -1;
+        try {
+            return Long.parseLong(value.trim(), 16) & 0xFFFFFFFFL;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private String progressKey() {
+        return progressSwitch ? " -bsp1" : "";
+    }
+
     @Override
     public Path getUtilPath() {
         return utilPath;
@@ -58,12 +272,26 @@ public record ZipCmd(Path utilPath) implements CmdExtractUtil, CmdPackUtil {
     /**
      * {@inheritDoc}
      *
-     * @return {@code 7z a -y <archive> <sourceFolder>/*}
+     * @return {@code 7z a -y -bsp1 <archive> <sourceFolder>/*}
      */
     @Override
     public String packOfFolderCmd(Path archive, Path sourceFolder) {
-        return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " a -y %s %s"
+        return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " a -y" + progressKey() + " %s %s"
+                .formatted(encloseInQuotations(archive.toAbsolutePath().toString()),
+                        encloseInQuotations(sourceFolder.toAbsolutePath() + File.separator + "*"));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Each call adds new solid block to 7z archive, so the stored files are packed by separate call
+     *
+     * @return {@code 7z a -y -bsp1 -scsUTF-8 [-mx0] <archive> @<listFile>}
+     */
+    @Override
+    public Optional<String> packOfListCmd(Path archive, Path listFile, boolean store) {
+        return Optional.of(encloseInQuotations(utilPath.toAbsolutePath().toString()) + " a -y" + progressKey()
+                + " -scsUTF-8" + (store ? " -mx0" : "") + " %s @%s"
                 .formatted(encloseInQuotations(archive.toAbsolutePath().toString()),
-                        encloseInQuotations(sourceFolder.toAbsolutePath() + "\\*"));
+                        encloseInQuotations(listFile.toAbsolutePath().toString())));
     }
 }
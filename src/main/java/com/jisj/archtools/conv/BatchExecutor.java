@@ -0,0 +1,80 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs conversions one by one and prefetches the pre-steps of the next conversions while the current one is running:
+ * checks of files and format, test of the source archive if {@link Converter.Options#TEST_BEFORE} is set,
+ * listing of the source archive. The conversion uses the prefetched results if its source archive is not changed,
+ * so the latency-bound steps do not leave the CPU idle between conversions
+ * <pre>{@code
+ *     BatchExecutor executor = new BatchExecutor();
+ *     executor.setPrefetchDepth(3);
+ *     Map<Converter, Boolean> results = executor.runAll(converters);
+ * }</pre>
+ */
+public class BatchExecutor {
+    private int prefetchDepth = 2;
+
+    /**
+     * Sets count of the next conversions with prefetched pre-steps
+     *
+     * @param prefetchDepth count, 0 switches off the prefetch. Default: 2
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) throw new IllegalArgumentException("Negative prefetch depth: " + prefetchDepth);
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Runs conversions in the order of converters
+     *
+     * @param converters built converters
+     * @return results in the order of converters. See {@link Converter#getState()} for failed conversion
+     * @throws InterruptedException if the waiting thread is interrupted. The running conversion is cancelled
+     */
+    public Map<Converter, Boolean> runAll(Collection<Converter> converters) throws InterruptedException {
+        List<Converter> jobs = List.copyOf(converters);
+        Map<Converter, Boolean> results = new LinkedHashMap<>();
+        ExecutorService prefetcher = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            int prefetchedUpTo = 0;
+            for (int i = 0; i < jobs.size(); i++) {
+                for (prefetchedUpTo = Math.max(prefetchedUpTo, i + 1);
+                     prefetchedUpTo < jobs.size() && prefetchedUpTo <= i + prefetchDepth; prefetchedUpTo++)
+                    prefetch(jobs.get(prefetchedUpTo), prefetcher);
+                Future<Boolean> future = jobs.get(i).convertAsync();
+                try {
+                    results.put(jobs.get(i), future.get());
+                } catch (ExecutionException e) {
+                    results.put(jobs.get(i), false);
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    throw e;
+                }
+            }
+        } finally {
+            prefetcher.shutdownNow();
+        }
+        return results;
+    }
+
+    private static void prefetch(Converter converter, ExecutorService prefetcher) {
+        converter.setPrefetched(CompletableFuture.supplyAsync(() -> {
+            try {
+                return converter.prefetch();
+            } catch (ArchiveException e) {
+                throw new CompletionException(e);
+            }
+        }, prefetcher));
+    }
+}
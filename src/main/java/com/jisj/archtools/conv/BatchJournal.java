@@ -0,0 +1,319 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.cache.ArchiveKey;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static com.jisj.archtools.Utils.removeNotEmptyFolder;
+
+/**
+ * Append-only journal of the batch conversion. The journal allows to restart the interrupted batch:
+ * <ul>
+ * <li>Converted archives are skipped by {@link #convert(Converter)}. The partial target archive of failed conversion
+ * is removed, so the failed archive is converted again</li>
+ * <li>{@link #recoverInterrupted()} removes the partial target archives and the temporary folders of
+ * interrupted conversions</li>
+ * </ul>
+ * Each line of the journal has tab separated fields:
+ * <pre>{@code <time millis> <status> <source key> <source> <destination> <temporary folder> <destination size> <message>}</pre>
+ * The source is identified by {@link ArchiveKey}: the changed source archive is converted again.
+ * The conversion with {@link WorkspaceManager} has the second {@link Status#STARTED STARTED} record with
+ * the workspace folder, because the folder is known after the workspace acquiring.
+ * The truncated last line of the crashed process is ignored
+ * <pre>{@code
+ *     try (BatchJournal journal = BatchJournal.open(Path.of("batch.journal"))) {
+ *         journal.recoverInterrupted();
+ *         for (Converter converter : converters) journal.convert(converter);
+ *     }
+ * }</pre>
+ */
+public class BatchJournal implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(BatchJournal.class.getName());
+    private static final String NONE = "-";
+
+    /**
+     * Status of the conversion in journal
+     */
+    public enum Status {
+        /**
+         * Conversion is started. The last status of interrupted conversion
+         */
+        STARTED,
+        /**
+         * Conversion is finished without verification
+         */
+        DONE,
+        /**
+         * Conversion is finished and the target archive is verified by {@link Converter.Options#COMPARE COMPARE}
+         */
+        VERIFIED,
+        /**
+         * Conversion is failed or interrupted
+         */
+        FAILED
+    }
+
+    /**
+     * Journal record
+     *
+     * @param time            record time in millis
+     * @param status          conversion status
+     * @param sourceKey       identity of the source archive
+     * @param source          source archive
+     * @param destination     target archive
+     * @param temporaryFolder temporary folder | null if unknown
+     * @param destinationSize target archive size | -1 if unknown
+     * @param message         error message | empty
+     */
+    public record Entry(long time, Status status, String sourceKey, Path source, Path destination,
+                        Path temporaryFolder, long destinationSize, String message) {
+    }
+
+    private final Path file;
+    private FileChannel channel;
+    private final Map<String, Entry> last = new HashMap<>();
+    private boolean sync = false;
+    private boolean requireVerified = false;
+
+    private BatchJournal(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                reader.lines().map(BatchJournal::parse).filter(Objects::nonNull)
+                        .forEach(entry -> last.put(entry.sourceKey(), entry));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (channel.size() > 0) terminateLastLine();
+    }
+
+    private void terminateLastLine() throws IOException {
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            reader.read(lastByte, reader.size() - 1);
+            if (lastByte.get(0) != '\n') channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+    }
+
+    /**
+     * Opens the journal. The existing journal is read and new records are appended
+     *
+     * @param file journal file
+     * @return journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public static BatchJournal open(Path file) throws IOException {
+        return new BatchJournal(file);
+    }
+
+    /**
+     * Forces each record to the storage device. Without sync the records of the crashed OS may be lost
+     *
+     * @param sync {@code true} to force. Default {@code false}
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Skips only {@link Status#VERIFIED VERIFIED} conversions
+     *
+     * @param requireVerified {@code true} to convert again not verified archives. Default {@code false}
+     */
+    public void setRequireVerified(boolean requireVerified) {
+        this.requireVerified = requireVerified;
+    }
+
+    /**
+     * Returns the last record of the source archive
+     *
+     * @param source source archive
+     * @return record | empty if the archive is not in journal or is changed
+     * @throws IOException if the archive attributes cannot be read
+     */
+    public synchronized Optional<Entry> lastEntry(Path source) throws IOException {
+        return Optional.ofNullable(last.get(ArchiveKey.of(source).id()));
+    }
+
+    /**
+     * Checks the source archive is converted: the last status is {@link Status#DONE DONE} or {@link Status#VERIFIED VERIFIED}
+     * and the target archive exists with recorded size
+     *
+     * @param source source archive
+     * @return {@code true} if converted
+     * @throws IOException if the archive attributes cannot be read
+     */
+    public boolean isDone(Path source) throws IOException {
+        Optional<Entry> entry = lastEntry(source);
+        if (entry.isEmpty()) return false;
+        Status status = entry.get().status();
+        if (status != Status.VERIFIED && (requireVerified || status != Status.DONE)) return false;
+        Path destination = entry.get().destination();
+        return Files.exists(destination) && Files.size(destination) == entry.get().destinationSize();
+    }
+
+    /**
+     * Converts the archive with journaling. Converted archive is skipped.
+     * The target archive created by failed conversion is removed
+     *
+     * @param converter built converter
+     * @return {@code true} if the archive is converted or skipped. See {@link Converter#getState()} for failed conversion
+     * @throws IOException if the source archive attributes cannot be read; the journal cannot be written
+     */
+    public boolean convert(Converter converter) throws IOException {
+        Path source = converter.getSourceArchive();
+        if (isDone(source)) return true;
+        String key = ArchiveKey.of(source).id();
+        Path destination = converter.getDestinationArchive();
+        boolean destinationExisted = Files.exists(destination);
+        append(new Entry(System.currentTimeMillis(), Status.STARTED, key, source, destination,
+                converter.getTemporaryArchiveFolder(), -1, ""));
+        converter.setTemporaryFolderListener(folder -> {
+            try {
+                append(new Entry(System.currentTimeMillis(), Status.STARTED, key, source, destination, folder, -1, ""));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        boolean result;
+        try {
+            result = converter.convert();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            converter.setTemporaryFolderListener(null);
+        }
+        if (result) {
+            Status status = converter.getOptions().contains(Converter.Options.COMPARE) ? Status.VERIFIED : Status.DONE;
+            append(new Entry(System.currentTimeMillis(), status, key, source, converter.getDestinationArchive(),
+                    converter.getTemporaryArchiveFolder(), Files.size(converter.getDestinationArchive()), ""));
+        } else {
+            if (!destinationExisted) Files.deleteIfExists(destination);
+            Converter.State state = converter.getState();
+            String message = state == null ? "" : state.step() + ": " +
+                    (state.exception() == null ? "" : state.exception().getMessage());
+            append(new Entry(System.currentTimeMillis(), Status.FAILED, key, source, converter.getDestinationArchive(),
+                    converter.getTemporaryArchiveFolder(), -1, message));
+        }
+        return result;
+    }
+
+    /**
+     * Removes the partial target archives and the temporary folders of interrupted conversions.
+     * The conversions are recorded as {@link Status#FAILED FAILED}
+     *
+     * @return records of interrupted conversions
+     * @throws IOException if the files cannot be deleted or the journal cannot be written
+     */
+    public List<Entry> recoverInterrupted() throws IOException {
+        List<Entry> interrupted;
+        synchronized (this) {
+            interrupted = last.values().stream().filter(entry -> entry.status() == Status.STARTED).toList();
+        }
+        for (Entry entry : interrupted) {
+            Files.deleteIfExists(entry.destination());
+            if (entry.temporaryFolder() != null && Files.exists(entry.temporaryFolder()))
+                removeNotEmptyFolder(entry.temporaryFolder());
+            append(new Entry(System.currentTimeMillis(), Status.FAILED, entry.sourceKey(), entry.source(),
+                    entry.destination(), entry.temporaryFolder(), -1, "Interrupted"));
+            log.info("Interrupted conversion is cleaned up: " + entry.source());
+        }
+        return interrupted;
+    }
+
+    /**
+     * Rewrites the journal with the last record of each source. The file is replaced atomically
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        last.values().stream().sorted(Comparator.comparingLong(Entry::time)).forEach(entry -> sb.append(format(entry)));
+        Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+        Files.move(tmp, file.toAbsolutePath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private synchronized void append(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(format(entry).getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+        if (sync) channel.force(false);
+        last.put(entry.sourceKey(), entry);
+    }
+
+    /**
+     * @return records of the last status of each source
+     */
+    public synchronized Collection<Entry> entries() {
+        return List.copyOf(last.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static String format(Entry entry) {
+        return String.join("\t",
+                String.valueOf(entry.time()),
+                entry.status().name(),
+                escape(entry.sourceKey()),
+                escape(entry.source().toString()),
+                escape(entry.destination().toString()),
+                entry.temporaryFolder() == null ? NONE : escape(entry.temporaryFolder().toString()),
+                String.valueOf(entry.destinationSize()),
+                escape(entry.message())) + "\n";
+    }
+
+    private static Entry parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 8) return null;
+        try {
+            return new Entry(Long.parseLong(fields[0]), Status.valueOf(fields[1]), unescape(fields[2]),
+                    Path.of(unescape(fields[3])), Path.of(unescape(fields[4])),
+                    fields[5].equals(NONE) ? null : Path.of(unescape(fields[5])),
+                    Long.parseLong(fields[6]), unescape(fields[7]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else sb.append(c);
+        }
+        return sb.toString();
+    }
+}
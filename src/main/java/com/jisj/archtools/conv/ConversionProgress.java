@@ -0,0 +1,17 @@
+package com.jisj.archtools.conv;
+
+import java.time.Duration;
+
+/**
+ * Combined progress of all conversion steps
+ *
+ * @param step           current step | {@link Converter.Options#ALL ALL} on finish
+ * @param percent        progress 0-100
+ * @param bytesDone      weighted bytes done
+ * @param bytesTotal     weighted bytes of all steps
+ * @param bytesPerSecond throughput of weighted bytes
+ * @param eta            estimated remaining time | null if unknown
+ */
+public record ConversionProgress(Converter.Options step, double percent, long bytesDone, long bytesTotal,
+                                 double bytesPerSecond, Duration eta) {
+}
@@ -0,0 +1,278 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.ArchiveException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Runs conversions concurrently while the projected disk usage stays under the budget.
+ * <ul>
+ * <li>The temporary space of each job is estimated by the uncompressed size of the source archive entries.
+ * If some entry size is unknown the archive size by {@link #setExpansionRatio(double) expansion ratio} is used</li>
+ * <li>The output space is estimated by the archive size by {@link #setOutputRatio(double) output ratio}</li>
+ * <li>The job is started if the space reserved by running jobs plus the job space is not greater than
+ * {@link #setBudgetRatio(double) budget ratio} of {@link FileStore#getUsableSpace() usable space} of each volume.
+ * The usable space of the volume is measured when no jobs are running on it</li>
+ * <li>Jobs are started largest-first. A smaller job is started when the larger one does not fit</li>
+ * <li>The job which does not fit on the idle volume is not started. Its result is {@code false} and
+ * {@link Converter#getState()} has {@link ArchiveException} at the {@link Converter.Options#START START} step</li>
+ * </ul>
+ * <pre>{@code
+ *     Map<Converter, Boolean> results = new ConversionScheduler().runAll(converters);
+ * }</pre>
+ */
+public class ConversionScheduler {
+    private static final Logger log = Logger.getLogger(ConversionScheduler.class.getName());
+    private double budgetRatio = 0.9;
+    private double expansionRatio = 3.0;
+    private double outputRatio = 1.0;
+    private int maxParallel = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Sets share of the usable space of each volume available for jobs
+     *
+     * @param budgetRatio ratio in {@code (0, 1]}. Default: 0.9
+     * @throws IllegalArgumentException if ratio is out of range
+     */
+    public void setBudgetRatio(double budgetRatio) {
+        if (!(budgetRatio > 0 && budgetRatio <= 1))
+            throw new IllegalArgumentException("Budget ratio out of (0, 1]: " + budgetRatio);
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Sets ratio of the extracted size to the archive size for archives without known entry sizes
+     *
+     * @param expansionRatio ratio. Default: 3.0
+     * @throws IllegalArgumentException if ratio is not positive
+     */
+    public void setExpansionRatio(double expansionRatio) {
+        if (!(expansionRatio > 0)) throw new IllegalArgumentException("Not positive ratio: " + expansionRatio);
+        this.expansionRatio = expansionRatio;
+    }
+
+    /**
+     * Sets ratio of the target archive size to the source archive size
+     *
+     * @param outputRatio ratio. Default: 1.0
+     * @throws IllegalArgumentException if ratio is not positive
+     */
+    public void setOutputRatio(double outputRatio) {
+        if (!(outputRatio > 0)) throw new IllegalArgumentException("Not positive ratio: " + outputRatio);
+        this.outputRatio = outputRatio;
+    }
+
+    /**
+     * Sets max count of concurrent jobs
+     *
+     * @param maxParallel count. Default: count of processors
+     * @throws IllegalArgumentException if count less than 1
+     */
+    public void setMaxParallel(int maxParallel) {
+        if (maxParallel < 1) throw new IllegalArgumentException("Max parallel less than 1: " + maxParallel);
+        this.maxParallel = maxParallel;
+    }
+
+    /**
+     * Estimates disk space of the conversion
+     *
+     * @param converter built converter
+     * @return estimate
+     * @throws ArchiveException if the source archive cannot be read or listed
+     */
+    public Estimate estimate(Converter converter) throws ArchiveException {
+        Path source = converter.getSourceArchive();
+        long archiveSize;
+        try {
+            archiveSize = Files.size(source);
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+        long uncompressed = 0;
+        boolean exact = true;
+        try (Stream<ArchiveEntry> entries = converter.getExtractor().streamEntries(source)) {
+            for (ArchiveEntry entry : (Iterable<ArchiveEntry>) entries::iterator) {
+                if (entry.directory()) continue;
+                if (entry.size() < 0) {
+                    exact = false;
+                    break;
+                }
+                uncompressed += entry.size();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause() instanceof ArchiveException a ? a : new ArchiveException(e.getCause());
+        }
+        long temporary = exact ? uncompressed : (long) Math.ceil(archiveSize * expansionRatio);
+        return new Estimate(temporary, (long) Math.ceil(archiveSize * outputRatio), exact);
+    }
+
+    /**
+     * Runs conversions
+     *
+     * @param converters built converters
+     * @return results in the order of converters. {@code false} for failed conversions and for jobs which were not
+     * estimated or did not fit. See {@link Converter#getState()} for failed conversion and for the reason of not started one
+     * @throws InterruptedException if the waiting thread is interrupted. Running conversions are cancelled
+     */
+    public Map<Converter, Boolean> runAll(Collection<Converter> converters) throws InterruptedException {
+        Map<Converter, Boolean> results = Collections.synchronizedMap(new LinkedHashMap<>());
+        converters.forEach(c -> results.put(c, false));
+        List<Job> pending = new ArrayList<>();
+        for (Converter converter : converters) {
+            try {
+                pending.add(new Job(converter, estimate(converter), volumesOf(converter)));
+            } catch (IOException e) {
+                log.warning("Cannot estimate conversion of " + converter.getSourceArchive() + ": " + e.getMessage());
+                converter.setState(Converter.Options.START, e);
+            }
+        }
+        pending.sort(Comparator.comparingLong((Job j) -> j.estimate.total()).reversed());
+
+        Map<FileStore, Volume> volumes = new HashMap<>();
+        List<Job> running = new ArrayList<>();
+        Object lock = new Object();
+        synchronized (lock) {
+            try {
+                while (!pending.isEmpty() || !running.isEmpty()) {
+                    Iterator<Job> iterator = pending.iterator();
+                    while (running.size() < maxParallel && iterator.hasNext()) {
+                        Job job = iterator.next();
+                        if (!fits(job, volumes)) {
+                            if (running.isEmpty() && job == pending.getFirst()) {
+                                String message = "Not enough disk space for conversion of " + job.converter.getSourceArchive()
+                                        + ": " + job.estimate;
+                                log.warning(message);
+                                job.converter.setState(Converter.Options.START, new ArchiveException(message));
+                                iterator.remove();
+                            }
+                            continue;
+                        }
+                        iterator.remove();
+                        reserve(job, volumes, 1);
+                        running.add(job);
+                        job.future = job.converter.convertAsync();
+                        job.future.whenComplete((result, e) -> {
+                            synchronized (lock) {
+                                results.put(job.converter, e == null && result);
+                                reserve(job, volumes, -1);
+                                running.remove(job);
+                                lock.notifyAll();
+                            }
+                        });
+                    }
+                    if (!running.isEmpty()) lock.wait();
+                }
+            } catch (InterruptedException e) {
+                running.forEach(job -> job.future.cancel(true));
+                throw e;
+            }
+        }
+        return new LinkedHashMap<>(results);
+    }
+
+    private boolean fits(Job job, Map<FileStore, Volume> volumes) {
+        Map<FileStore, Long> need = job.need();
+        for (var entry : need.entrySet()) {
+            Volume volume = volumes.computeIfAbsent(entry.getKey(), Volume::new);
+            if (volume.jobs == 0) volume.measure();
+            if (volume.reserved + entry.getValue() > volume.capacity * budgetRatio) return false;
+        }
+        return true;
+    }
+
+    private static void reserve(Job job, Map<FileStore, Volume> volumes, int sign) {
+        job.need().forEach((store, bytes) -> {
+            Volume volume = volumes.get(store);
+            volume.reserved += sign * bytes;
+            volume.jobs += sign;
+        });
+    }
+
+    private static Map.Entry<FileStore, FileStore> volumesOf(Converter converter) throws IOException {
+        Path temporary = converter.getWorkspaceManager() != null
+                ? converter.getWorkspaceManager().getRoots().getFirst()
+                : converter.getTemporaryRootFolder();
+        return Map.entry(storeOf(temporary), storeOf(converter.getDestinationFolder()));
+    }
+
+    private static FileStore storeOf(Path path) throws IOException {
+        Path existing = path.toAbsolutePath();
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+        if (existing == null) throw new IOException("No existing parent of " + path);
+        return Files.getFileStore(existing);
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionScheduler{" +
+                "budgetRatio=" + budgetRatio +
+                ", expansionRatio=" + expansionRatio +
+                ", outputRatio=" + outputRatio +
+                ", maxParallel=" + maxParallel +
+                '}';
+    }
+
+    /**
+     * Disk space estimate of the conversion
+     *
+     * @param temporaryBytes space of the extracted files
+     * @param outputBytes    space of the target archive
+     * @param exact          {@code true} if the temporary space is the sum of the entry sizes
+     */
+    public record Estimate(long temporaryBytes, long outputBytes, boolean exact) {
+        /**
+         * @return total space
+         */
+        public long total() {
+            return temporaryBytes + outputBytes;
+        }
+    }
+
+    private static final class Job {
+        private final Converter converter;
+        private final Estimate estimate;
+        private final Map.Entry<FileStore, FileStore> volumes;
+        private CompletableFuture<Boolean> future;
+
+        Job(Converter converter, Estimate estimate, Map.Entry<FileStore, FileStore> volumes) {
+            this.converter = converter;
+            this.estimate = estimate;
+            this.volumes = volumes;
+        }
+
+        Map<FileStore, Long> need() {
+            Map<FileStore, Long> need = new HashMap<>();
+            need.merge(volumes.getKey(), estimate.temporaryBytes(), Long::sum);
+            need.merge(volumes.getValue(), estimate.outputBytes(), Long::sum);
+            return need;
+        }
+    }
+
+    private static final class Volume {
+        private final FileStore store;
+        private long capacity;
+        private long reserved;
+        private int jobs;
+
+        Volume(FileStore store) {
+            this.store = store;
+        }
+
+        void measure() {
+            try {
+                capacity = store.getUsableSpace();
+            } catch (IOException e) {
+                capacity = 0;
+            }
+        }
+    }
+}
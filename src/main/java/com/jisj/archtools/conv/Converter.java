@@ -1,16 +1,28 @@
 package com.jisj.archtools.conv;
 
 import com.jisj.archtools.*;
+import com.jisj.archtools.cache.ArchiveKey;
+import com.jisj.archtools.cache.BlobStore;
+import com.jisj.archtools.cache.CachingExtractor;
+import com.jisj.archtools.impl.ExtractorNative;
+import com.jisj.archtools.impl.PackerNative;
+import com.jisj.archtools.jfr.ConversionStepEvent;
+import com.jisj.archtools.manifest.ContentManifest;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import static com.jisj.archtools.Utils.removeNotEmptyFolder;
-import static com.jisj.archtools.Utils.getNoExtName;
+import static com.jisj.archtools.Type.getBaseName;
 
 /**
  * Converts an archive to another format
@@ -18,6 +30,7 @@ import static com.jisj.archtools.Utils.getNoExtName;
 public class Converter {
     private static final Logger log = Logger.getLogger(Converter.class.getName());
     private static final int MAX_PROGRESS_CORRECTION = 10;
+    private static final String ENGINE = "converter";
 
     private Path sourceArchive;
     private Path destinationFolder;
@@ -29,14 +42,24 @@ public class Converter {
     private Packer packer;
     private Path destinationArchive;
     private Path temporaryArchiveFolder;
+    private WorkspaceManager workspaceManager;
+    private WorkspaceManager.Workspace workspace;
+    private boolean orderedPacking;
+    private BlobStore blobStore;
+    private boolean crcMatching;
 
     private final Set<Options> options = new HashSet<>();
     private Consumer<String> stepMessageListener;
     private Consumer<String> messageListener;
     private Consumer<Long> progressListener;
+    private Consumer<ConversionProgress> conversionProgressListener;
+    private Consumer<Path> temporaryFolderListener;
+    private volatile ProgressTracker tracker;
     private long maxProgressCount;
     private State state;
     private int sourceArchiveFilesCount;
+    private volatile CompletableFuture<Prefetched> prefetched;
+    private Prefetched ahead;
 
 
     Converter() {
@@ -74,6 +97,33 @@ public class Converter {
         return temporaryRootFolder;
     }
 
+    /**
+     * Sets listener of the workspace acquiring. The temporary folder of {@link WorkspaceManager} is unknown
+     * before the extraction
+     *
+     * @param temporaryFolderListener consumer of the workspace folder | null
+     */
+    void setTemporaryFolderListener(Consumer<Path> temporaryFolderListener) {
+        this.temporaryFolderListener = temporaryFolderListener;
+    }
+
+    void setWorkspaceManager(WorkspaceManager workspaceManager) {
+        this.workspaceManager = workspaceManager;
+    }
+
+    WorkspaceManager getWorkspaceManager() {
+        return workspaceManager;
+    }
+
+    void setOrderedPacking(boolean orderedPacking) {
+        this.orderedPacking = orderedPacking;
+    }
+
+    void setBlobStore(BlobStore blobStore, boolean crcMatching) {
+        this.blobStore = blobStore;
+        this.crcMatching = crcMatching;
+    }
+
     void setProvider(UtilProvider provider) {
         this.provider = provider;
     }
@@ -112,17 +162,26 @@ public class Converter {
     }
 
     void build() {
-        temporaryArchiveFolder = getTemporaryRootFolder()
-                .resolve(getNoExtName(getSourceArchive()));
+        if (workspaceManager == null)
+            temporaryArchiveFolder = getTemporaryRootFolder()
+                    .resolve(getBaseName(getSourceArchive()));
 
         destinationArchive = getDestinationFolder()
-                .resolve(getNoExtName(getSourceArchive().getFileName()) +
+                .resolve(getBaseName(getSourceArchive().getFileName()) +
                         getTargetFormat().getExt());
 
         extractor.setMessageListener(this::messageTranslator);
         extractor.setProgressListener(this::progressTranslator);
         packer.setMessageListener(this::messageTranslator);
         packer.setProgressListener(this::progressTranslator);
+        extractor.setBytesProgressListener(this::bytesProgressTranslator);
+        packer.setBytesProgressListener(this::bytesProgressTranslator);
+        if (orderedPacking && packer instanceof PackerNative nativePacker) nativePacker.setOrdered(true);
+    }
+
+    private void bytesProgressTranslator(long bytesDone, long bytesTotal) {
+        ProgressTracker current = tracker;
+        if (current != null) current.update(bytesDone, bytesTotal);
     }
 
     private void progressTranslator(long counter) {
@@ -174,6 +233,18 @@ public class Converter {
         this.progressListener = progressListener;
     }
 
+    /**
+     * Sets listener of the combined progress of all steps in bytes with throughput and ETA.
+     * <p>Each step processes the whole content of the archive, so the extracting, packing and testing steps
+     * have the weight of the source archive size. Listing and comparing have 1/50 of the weight.
+     * The progress of the step is reported by {@link Archiver#setBytesProgressListener(BytesProgressListener)}
+     *
+     * @param conversionProgressListener {@code Consumer<ConversionProgress>}
+     */
+    public void setConversionProgressListener(Consumer<ConversionProgress> conversionProgressListener) {
+        this.conversionProgressListener = conversionProgressListener;
+    }
+
     /**
      * Sets listener for message with conversion step
      *
@@ -192,13 +263,20 @@ public class Converter {
     }
 
     protected boolean testSourceArchive() {
+        ConversionStepEvent event = beginStep(Options.TEST_BEFORE);
+        if (ahead != null && ahead.tested()) {
+            stepMessageTranslator("Converting : Tested ahead - " + sourceArchive.getFileName());
+            if (ahead.testFailure() == null) return endStep(event, Options.TEST_BEFORE, true);
+            setState(Options.TEST_BEFORE, ahead.testFailure());
+            return endStep(event, Options.TEST_BEFORE, false);
+        }
         try {
             stepMessageTranslator("Converting : Testing - " + sourceArchive.getFileName());
             extractor.test(sourceArchive);
-            return true;
+            return endStep(event, Options.TEST_BEFORE, true);
         } catch (Exception e) {
             setState(Options.TEST_BEFORE, e);
-            return false;
+            return endStep(event, Options.TEST_BEFORE, false);
         }
     }
 
@@ -208,12 +286,13 @@ public class Converter {
      * @return true if successfully
      */
     protected boolean testTargetArchive() {
+        ConversionStepEvent event = beginStep(Options.TEST_AFTER);
         try {
             stepMessageTranslator("Converting : Testing - " + destinationArchive.getFileName());
             throw new UnsupportedCommand();
         } catch (ArchiveException e) {
             setState(Options.TEST_AFTER, e);
-            return false;
+            return endStep(event, Options.TEST_AFTER, false);
         }
     }
 
@@ -223,6 +302,7 @@ public class Converter {
      * @return {@code true} if equals
      */
     protected boolean compare() {
+        ConversionStepEvent event = beginStep(Options.COMPARE);
         stepMessageTranslator("Converting : Comparing - " + sourceArchive.getFileName() + " and " + destinationArchive.getFileName());
         try {
             final int resultArchiveFilesCont = getTargetFilesCount();
@@ -233,9 +313,9 @@ public class Converter {
             }
         } catch (ArchiveException e) {
             setState(Options.COMPARE, e);
-            return false;
+            return endStep(event, Options.COMPARE, false);
         }
-        return true;
+        return endStep(event, Options.COMPARE, true);
     }
 
     private int getTargetFilesCount() throws ArchiveException {
@@ -250,62 +330,141 @@ public class Converter {
     }
 
     protected boolean unPack() {
+        ConversionStepEvent event = beginStep(Options.EXTRACTING);
         try {
             assertFiles();
             createTemporaryFolder();
             stepMessageTranslator("Converting : Extracting - " + sourceArchive.getFileName());
-            extractor.extractTo(sourceArchive, temporaryArchiveFolder);
-            return true;
+            Extractor target = extractor instanceof CachingExtractor caching ? caching.getDelegate() : extractor;
+            if (blobStore != null && target instanceof ExtractorNative nativeExtractor) {
+                ExtractorNative.StoreResult result = nativeExtractor.extractWithStore(sourceArchive, temporaryArchiveFolder,
+                        blobStore, crcMatching, nativeExtractor.getOptions());
+                stepMessageTranslator("Converting : Reused " + result.reused() + " of " + (result.reused() + result.extracted())
+                        + " files from blob store - " + sourceArchive.getFileName());
+            } else extractor.extractTo(sourceArchive, temporaryArchiveFolder);
+            return endStep(event, Options.EXTRACTING, true);
         } catch (IOException e) {
             setState(Options.EXTRACTING, e);
-            return false;
+            return endStep(event, Options.EXTRACTING, false);
         }
     }
 
-    private void setState(Options step, Throwable e) {
+    /**
+     * Sets the failed step. Is used by the schedulers for conversions rejected before the start
+     */
+    void setState(Options step, Throwable e) {
         state = new State(step, e);
     }
 
+    private ConversionStepEvent beginStep(Options step) {
+        ProgressTracker current = tracker;
+        if (current != null) current.begin(step);
+        ConversionStepEvent event = new ConversionStepEvent();
+        event.begin();
+        return event;
+    }
+
+    private boolean endStep(ConversionStepEvent event, Options step, boolean succeeded) {
+        ProgressTracker current = tracker;
+        if (current != null && succeeded) current.end(step);
+        event.end();
+        if (event.shouldCommit()) {
+            event.step = step.name();
+            event.sourceArchive = sourceArchive.toAbsolutePath().toString();
+            event.destinationArchive = destinationArchive.toAbsolutePath().toString();
+            event.sourceSize = sourceArchive.toFile().length();
+            event.destinationSize = destinationArchive.toFile().length();
+            event.succeeded = succeeded;
+            if (!succeeded && state != null && state.exception() != null)
+                event.error = state.exception().getMessage();
+            event.commit();
+        }
+        return succeeded;
+    }
+
     public State getState() {
         return state;
     }
 
     protected boolean pack() {
+        ConversionStepEvent event = beginStep(Options.PACKING);
         try {
             assertFiles();
             stepMessageTranslator("Converting : Packing - " + destinationArchive.getFileName());
             packer.packOfFolder(destinationArchive, temporaryArchiveFolder);
-            return true;
+            return endStep(event, Options.PACKING, true);
         } catch (ArchiveException e) {
             setState(Options.PACKING, e);
-            return false;
+            return endStep(event, Options.PACKING, false);
         }
     }
 
     /**
      * Converts source archive to target format
+     * @return {@code true} if successfully. See {@link #getState()} for the failed step
      */
     public boolean convert() {
+        OperationTimer timer = Metrics.start(Operation.CONVERT, sourceArchive, ENGINE);
+        try {
+            boolean result = runSteps();
+            if (result) {
+                timer.bytesRead(sourceArchive.toFile().length());
+                timer.bytesWritten(destinationArchive.toFile().length());
+                timer.entries(sourceArchiveFilesCount);
+                timer.success();
+            } else if (state != null && state.exception() instanceof TimeOutException) {
+                timer.timeout();
+            }
+            return result;
+        } finally {
+            if (workspaceManager != null) releaseWorkspace();
+            timer.stop();
+        }
+    }
+
+    /**
+     * Converts source archive to target format asynchronously.
+     * Cancelling of the returned future kills native utils, removes the temporary folder and the partial target archive
+     * @return {@link ArchiveFuture} of the {@link #convert()} result
+     */
+    public CompletableFuture<Boolean> convertAsync() {
+        return ArchiveFuture.callAsync(() -> {
+            boolean destinationExisted = Files.exists(destinationArchive);
+            ArchiveFuture.onCancelled(() -> {
+                if (temporaryArchiveFolder != null && Files.exists(temporaryArchiveFolder)) removeTemporaryFolder();
+                if (!destinationExisted) Files.deleteIfExists(destinationArchive);
+            });
+            return convert();
+        });
+    }
+
+    private boolean runSteps() {
+        tracker = conversionProgressListener == null ? null : new ProgressTracker(stepWeights(), conversionProgressListener);
+        ConversionStepEvent start = beginStep(Options.START);
         try {
             assertFiles();
         } catch (ArchiveException e) {
             setState(Options.START, e);
-            return false;
+            return endStep(start, Options.START, false);
         }
 
+        ahead = takePrefetched();
         if (options.contains(Options.TEST_BEFORE))
-            if (!testSourceArchive()) return false;
+            if (!testSourceArchive()) return endStep(start, Options.START, false);
 
         try {
-            sourceArchiveFilesCount = extractor.getFileList(sourceArchive).size();
+            sourceArchiveFilesCount = (ahead != null && ahead.fileList() != null
+                    ? ahead.fileList()
+                    : extractor.getFileList(sourceArchive)).size();
             if (sourceArchiveFilesCount == 0) {
                 throw new ArchiveException("No files to extract in " + sourceArchive.toAbsolutePath());
             }
             maxProgressCount = sourceArchiveFilesCount + MAX_PROGRESS_CORRECTION;
         } catch (ArchiveException e) {
             setState(Options.START, e);
-            return false;
+            return endStep(start, Options.START, false);
         }
+        endStep(start, Options.START, true);
 
 
         if (!unPack()) return false;
@@ -321,15 +480,117 @@ public class Converter {
             log.warning("Cannot delete temporary folder " + getTemporaryArchiveFolder());
         }
         setState(Options.ALL, null);
+        if (tracker != null) tracker.finish();
         return true;
     }
 
+    /**
+     * Results of the pre-steps of conversion computed ahead by {@link BatchExecutor}
+     *
+     * @param key         identity of the source archive at the prefetch
+     * @param tested      {@code true} if the source archive was tested
+     * @param testFailure test error | null
+     * @param fileList    file list of the source archive | null if the listing failed or was not run
+     */
+    record Prefetched(ArchiveKey key, boolean tested, Exception testFailure, List<String> fileList) {
+    }
+
+    /**
+     * Runs the pre-steps of conversion: checks of files and format, test of the source archive if
+     * {@link Options#TEST_BEFORE} is set, listing of the source archive
+     *
+     * @return results for the conversion
+     * @throws ArchiveException if the checks failed. The conversion reports the error
+     */
+    Prefetched prefetch() throws ArchiveException {
+        assertFiles();
+        ArchiveKey key;
+        try {
+            key = ArchiveKey.of(sourceArchive);
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+        Exception testFailure = null;
+        boolean tested = options.contains(Options.TEST_BEFORE);
+        if (tested) {
+            try {
+                extractor.test(sourceArchive);
+            } catch (Exception e) {
+                testFailure = e;
+            }
+        }
+        List<String> fileList = null;
+        if (testFailure == null) {
+            try {
+                fileList = List.copyOf(extractor.getFileList(sourceArchive));
+            } catch (ArchiveException ignored) {
+                // the conversion repeats the listing and reports the error
+            }
+        }
+        return new Prefetched(key, tested, testFailure, fileList);
+    }
+
+    /**
+     * Sets the pre-steps running ahead. The conversion waits for them and uses the results if the source archive is not changed
+     *
+     * @param prefetched future of {@link #prefetch()}
+     */
+    void setPrefetched(CompletableFuture<Prefetched> prefetched) {
+        this.prefetched = prefetched;
+    }
+
+    private Prefetched takePrefetched() {
+        CompletableFuture<Prefetched> future = prefetched;
+        prefetched = null;
+        if (future == null) return null;
+        try {
+            Prefetched result = future.join();
+            return result.key().equals(ArchiveKey.of(sourceArchive)) ? result : null;
+        } catch (CompletionException | IOException e) {
+            return null;
+        }
+    }
+
+    private Map<Options, Long> stepWeights() {
+        long size = Math.max(1, sourceArchive.toFile().length());
+        Map<Options, Long> weights = new EnumMap<>(Options.class);
+        weights.put(Options.START, Math.max(1, size / 50));
+        if (options.contains(Options.TEST_BEFORE)) weights.put(Options.TEST_BEFORE, size);
+        weights.put(Options.EXTRACTING, size);
+        weights.put(Options.PACKING, size);
+        if (options.contains(Options.TEST_AFTER)) weights.put(Options.TEST_AFTER, size);
+        if (options.contains(Options.COMPARE)) weights.put(Options.COMPARE, Math.max(1, size / 50));
+        return weights;
+    }
+
     private void removeTemporaryFolder() throws IOException {
-        removeNotEmptyFolder(temporaryArchiveFolder);
+        if (workspaceManager != null) releaseWorkspace();
+        else {
+            removeNotEmptyFolder(temporaryArchiveFolder);
+            Files.deleteIfExists(ContentManifest.sidecarOf(temporaryArchiveFolder));
+        }
+    }
+
+    private synchronized void createTemporaryFolder() throws IOException {
+        if (workspaceManager != null) {
+            if (workspace == null) {
+                workspace = workspaceManager.acquire(sourceArchive);
+                temporaryArchiveFolder = workspace.folder();
+                if (temporaryFolderListener != null) temporaryFolderListener.accept(temporaryArchiveFolder);
+            }
+        } else Files.createDirectories(temporaryArchiveFolder);
     }
 
-    private void createTemporaryFolder() throws IOException {
-        Files.createDirectories(temporaryArchiveFolder);
+    private synchronized void releaseWorkspace() {
+        if (workspace == null) return;
+        // manifest of the extractor with NativeOptions#manifest() is written next to the workspace folder
+        try {
+            Files.deleteIfExists(ContentManifest.sidecarOf(workspace.folder()));
+        } catch (IOException e) {
+            log.warning("Cannot delete manifest of " + workspace.folder());
+        }
+        workspaceManager.release(workspace);
+        workspace = null;
     }
 
     public static ConverterBuilder builder() {
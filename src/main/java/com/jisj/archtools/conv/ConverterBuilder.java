@@ -1,6 +1,7 @@
 package com.jisj.archtools.conv;
 
 import com.jisj.archtools.Type;
+import com.jisj.archtools.cache.BlobStore;
 
 import java.nio.file.Path;
 
@@ -64,6 +65,17 @@ public class ConverterBuilder {
         return this;
     }
 
+    /**
+     * Sets workspace manager. The temporary folder of the conversion is acquired from the manager
+     * and is deleted in background after conversion. The {@link #temporaryFolder(Path) temporary folder} is not required
+     * @param manager workspace manager
+     * @return ConverterBuilder
+     */
+    public ConverterBuilder workspaceManager(WorkspaceManager manager) {
+        converter.setWorkspaceManager(manager);
+        return this;
+    }
+
     /**
      * Sets options
      * @param options options from {@link com.jisj.archtools.conv.Converter.Options Options}
@@ -74,6 +86,32 @@ public class ConverterBuilder {
         return this;
     }
 
+    /**
+     * Sets packing in order of file types with stored incompressible files. Used by native packers only,
+     * see {@link com.jisj.archtools.impl.PackerNative#setOrdered(boolean)}. Without ordered packing and with other
+     * packers the {@link com.jisj.archtools.impl.ContentClassifier incompressible files} are compressed as all files
+     * @param orderedPacking {@code true} orders the files. Default {@code false}
+     * @return {@code ConverterBuilder}
+     */
+    public ConverterBuilder orderedPacking(boolean orderedPacking) {
+        converter.setOrderedPacking(orderedPacking);
+        return this;
+    }
+
+    /**
+     * Sets blob store shared by conversions. The extracted source files are added to the store. Used by native
+     * extractors only, see {@link com.jisj.archtools.impl.ExtractorNative#extractWithStore(java.nio.file.Path, java.nio.file.Path,
+     * BlobStore, boolean, com.jisj.archtools.impl.NativeOptions) ExtractorNative.extractWithStore}
+     * @param blobStore   blob store | null
+     * @param crcMatching {@code true} to take the source files found in the store by size and CRC32 without extraction.
+     *                    Different contents with the same size and CRC32 are not distinguished
+     * @return {@code ConverterBuilder}
+     */
+    public ConverterBuilder blobStore(BlobStore blobStore, boolean crcMatching) {
+        converter.setBlobStore(blobStore, crcMatching);
+        return this;
+    }
+
     public Converter build() {
         if (provider==null) {
             System.out.println("Archive util provider not set");
@@ -81,7 +119,7 @@ public class ConverterBuilder {
         }
         if (converter.getSourceArchive() == null)
             throw new IllegalArgumentException("Source archive path not set");
-        if (converter.getTemporaryRootFolder() == null)
+        if (converter.getTemporaryRootFolder() == null && converter.getWorkspaceManager() == null)
             throw new IllegalArgumentException("Temporary folder path not set");
         if (converter.getTargetFormat() == null)
             throw new IllegalArgumentException("Archive type not set");
@@ -3,17 +3,21 @@ package com.jisj.archtools.conv;
 import com.jisj.archtools.*;
 import com.jisj.archtools.cmd.RarExtractCmd;
 import com.jisj.archtools.cmd.ZipCmd;
+import com.jisj.archtools.conv.ToolRegistry.Tool;
+import com.jisj.archtools.conv.ToolRegistry.ToolInfo;
 import com.jisj.archtools.impl.ExtractorNative;
+import com.jisj.archtools.impl.ExtractorTar;
 import com.jisj.archtools.impl.PackerNative;
+import com.jisj.archtools.impl.PackerTar;
 
-import java.io.IOException;
-import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Properties;
 
 /**
  * Class implements interface {@link UtilProvider}
- * <p>Default property file "native-provider.properties"
+ * <p>Native tools are resolved by {@link ToolRegistry}: property file "native-provider.properties",
+ * environment variables, {@code PATH}
  * <pre>{@code
  * RAR_EXTRACTOR=C\:\\Program Files\\WinRAR\\unrar.exe
  * RAR_PACKER=
@@ -21,47 +25,43 @@ import java.util.Properties;
  * ZIP_PACKER=C\:\\Program Files\\7-Zip\\7z.exe}
  * </pre>
  * @implNote For .7z and .zip files use the same extractor/packer.<br>
- * The .rar packer is not implemented
+ * The .rar packer is not implemented.<br>
+ * The .tar, .tar.gz and .tar.zst files use pure Java {@link ExtractorTar} and {@link PackerTar} without properties.<br>
+ * Commands of the tools are created once by the provider creation. Extractors and packers are created by each call,
+ * because they hold the listeners of the caller
  */
 public class NativeProvider implements UtilProvider {
-    private final Properties props = new Properties();
+    private final Map<Tool, ZipCmd> zipCommands = new EnumMap<>(Tool.class);
+    private final RarExtractCmd rarCommand;
 
+    /**
+     * Creates provider by {@link ToolRegistry#getDefault() default registry}
+     */
     public NativeProvider() {
-        loadProperties();
+        this(ToolRegistry.getDefault());
     }
 
-    private void loadProperties() {
-        try (var is = ConverterBuilder.class.getClassLoader()
-                .getResourceAsStream("native-provider.properties")) {
-            if (is == null)
-                throw new IllegalStateException("Properties not found in classpath: <native-provider.properties>");
-            props.load(is);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * Creates provider
+     *
+     * @param registry registry of native tools
+     */
+    public NativeProvider(ToolRegistry registry) {
+        for (Tool tool : new Tool[]{Tool.SEVEN_ZIP_EXTRACTOR, Tool.SEVEN_ZIP_PACKER})
+            registry.find(tool).ifPresent(info -> zipCommands.put(tool, new ZipCmd(info.path(), supportsProgress(info))));
+        rarCommand = registry.find(Tool.RAR_EXTRACTOR).map(info -> new RarExtractCmd(info.path())).orElse(null);
     }
 
-    private Optional<Path> findPath(String key) {
-        String path = props.getProperty(key);
-        if (path == null || path.isEmpty()) return Optional.empty();
-        return Optional.of(Path.of(path));
+    private static boolean supportsProgress(ToolInfo info) {
+        return info.supports("-bs") || info.majorVersion() >= 15;
     }
 
-    private Optional<Path> findPath(String... keys) {
-        for (var key : keys) {
-            String path = props.getProperty(key);
-            if (path != null && !path.isEmpty()) return Optional.of(Path.of(path));
-        }
-        return Optional.empty();
-    }
-
-
     @Override
     public Optional<Packer> getPacker(Type archiveType) {
         return switch (archiveType) {
             case RAR -> Optional.empty(); //RAR packer should be here
-            case ZIP, S7Z -> findPath("ZIP_PACKER", "S7Z_PACKER")
-                    .map(path -> new PackerNative(new ZipCmd(path)));
+            case ZIP, S7Z -> Optional.ofNullable(zipCommands.get(Tool.SEVEN_ZIP_PACKER)).map(PackerNative::new);
+            case TAR, TAR_GZ, TAR_ZST -> Optional.of(new PackerTar());
             case UNKNOWN -> Optional.empty();
         };
 
@@ -70,11 +70,18 @@ public class NativeProvider implements UtilProvider {
     @Override
     public Optional<Extractor> getExtractor(Type archiveType) {
         return switch (archiveType) {
-            case RAR -> findPath("RAR_EXTRACTOR")
-                    .map(path -> new ExtractorNative(new RarExtractCmd(path)));
-            case ZIP, S7Z -> findPath("ZIP_EXTRACTOR", "S7Z_EXTRACTOR")
-                    .map(path -> new ExtractorNative(new ZipCmd(path)));
+            case RAR -> Optional.ofNullable(rarCommand).map(ExtractorNative::new);
+            case ZIP, S7Z -> Optional.ofNullable(zipCommands.get(Tool.SEVEN_ZIP_EXTRACTOR)).map(ExtractorNative::new);
+            case TAR, TAR_GZ, TAR_ZST -> Optional.of(new ExtractorTar());
             case UNKNOWN -> Optional.empty();
         };
     }
+
+    @Override
+    public String toString() {
+        return "NativeProvider{" +
+                "zipCommands=" + zipCommands +
+                ", rarCommand=" + rarCommand +
+                '}';
+    }
 }
@@ -0,0 +1,67 @@
+package com.jisj.archtools.conv;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Combines the byte progress of conversion steps to {@link ConversionProgress}.
+ * The progress of the step is the ratio of its done bytes multiplied by the step weight.
+ * The percentage never decreases and is passed to the listener after each change by {@value #MIN_DELTA}%
+ */
+final class ProgressTracker {
+    private static final double MIN_DELTA = 0.1;
+    private final Map<Converter.Options, Long> weights;
+    private final Consumer<ConversionProgress> listener;
+    private final long total;
+    private final long startNanos = System.nanoTime();
+    private long completed;
+    private Converter.Options step;
+    private double percent = -MIN_DELTA;
+
+    /**
+     * @param weights  weights of steps in bytes
+     * @param listener progress listener
+     */
+    ProgressTracker(Map<Converter.Options, Long> weights, Consumer<ConversionProgress> listener) {
+        this.weights = new EnumMap<>(weights);
+        this.listener = listener;
+        this.total = weights.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    synchronized void begin(Converter.Options step) {
+        this.step = step;
+        emit(completed, true);
+    }
+
+    synchronized void update(long bytesDone, long bytesTotal) {
+        if (step == null || bytesTotal <= 0) return;
+        double ratio = Math.min(1.0, Math.max(0.0, (double) bytesDone / bytesTotal));
+        emit(completed + (long) (ratio * weights.getOrDefault(step, 0L)), false);
+    }
+
+    synchronized void end(Converter.Options step) {
+        completed += weights.getOrDefault(step, 0L);
+        if (this.step == step) this.step = null;
+        emit(completed, false);
+    }
+
+    synchronized void finish() {
+        step = Converter.Options.ALL;
+        completed = total;
+        emit(total, true);
+    }
+
+    private void emit(long done, boolean force) {
+        double next = total == 0 ? 0 : Math.min(100.0, 100.0 * done / total);
+        if (next < percent) next = percent;
+        if (!force && next - percent < MIN_DELTA && (next < 100.0 || percent >= 100.0)) return;
+        percent = next;
+        long doneBytes = (long) (total * percent / 100);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double rate = seconds > 0 ? doneBytes / seconds : 0;
+        Duration eta = rate > 0 ? Duration.ofMillis((long) ((total - doneBytes) / rate * 1000)) : null;
+        listener.accept(new ConversionProgress(step, percent, doneBytes, total, rate, eta));
+    }
+}
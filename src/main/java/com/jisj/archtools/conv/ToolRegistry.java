@@ -0,0 +1,232 @@
+package com.jisj.archtools.conv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of native archive tools. Tools are resolved and probed once by the registry creation.
+ * <p>Each tool is searched in order:
+ * <ol>
+ * <li>properties: {@code native-provider.properties} in classpath for {@link #getDefault()}</li>
+ * <li>environment variable: {@code ARCH_TOOLS_7Z} for 7-Zip, {@code ARCH_TOOLS_UNRAR} for unrar</li>
+ * <li>{@code PATH}: {@code 7z, 7zz, 7za} and {@code unrar}</li>
+ * <li>default install folder on Windows</li>
+ * </ol>
+ * The found file is probed: the tool is started without arguments and the version and switches are parsed
+ * from the usage output. The tool is skipped if the file cannot be started
+ */
+public class ToolRegistry {
+    private static final Logger log = Logger.getLogger(ToolRegistry.class.getName());
+    private static final int PROBE_TIMEOUT_SEC = 5;
+    private static final int PROBE_OUTPUT_LIMIT = 64 * 1024;
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
+    private static final Pattern SWITCH = Pattern.compile("(?m)^\\s+(-[A-Za-z]+)");
+    private static volatile ToolRegistry defaultRegistry;
+
+    /**
+     * Native tool roles
+     */
+    public enum Tool {
+        SEVEN_ZIP_EXTRACTOR(List.of("ZIP_EXTRACTOR", "S7Z_EXTRACTOR"), "ARCH_TOOLS_7Z",
+                List.of("7z", "7zz", "7za"), "C:/Program Files/7-Zip/7z.exe"),
+        SEVEN_ZIP_PACKER(List.of("ZIP_PACKER", "S7Z_PACKER"), "ARCH_TOOLS_7Z",
+                List.of("7z", "7zz", "7za"), "C:/Program Files/7-Zip/7z.exe"),
+        RAR_EXTRACTOR(List.of("RAR_EXTRACTOR"), "ARCH_TOOLS_UNRAR",
+                List.of("unrar"), "C:/Program Files/WinRAR/unrar.exe");
+
+        private final List<String> propertyKeys;
+        private final String environmentVariable;
+        private final List<String> executableNames;
+        private final String windowsDefault;
+
+        Tool(List<String> propertyKeys, String environmentVariable, List<String> executableNames, String windowsDefault) {
+            this.propertyKeys = propertyKeys;
+            this.environmentVariable = environmentVariable;
+            this.executableNames = executableNames;
+            this.windowsDefault = windowsDefault;
+        }
+    }
+
+    /**
+     * Resolved tool
+     *
+     * @param tool         tool role
+     * @param path         executable path
+     * @param source       where the tool is found: {@code property, environment, PATH, default}
+     * @param version      version text | empty if not recognized
+     * @param majorVersion major version | -1 if not recognized
+     * @param switches     switches listed in the usage output, e.g. {@code -bs}
+     */
+    public record ToolInfo(Tool tool, Path path, String source, String version, int majorVersion, Set<String> switches) {
+        /**
+         * @param name switch name with leading {@code -}
+         * @return {@code true} if the usage lists the switch
+         */
+        public boolean supports(String name) {
+            return switches.contains(name);
+        }
+    }
+
+    private record Probe(String version, int majorVersion, Set<String> switches) {
+    }
+
+    private final Map<Tool, ToolInfo> tools = new EnumMap<>(Tool.class);
+
+    /**
+     * Creates registry and resolves all tools
+     *
+     * @param properties  tool paths by keys {@code RAR_EXTRACTOR, ZIP_EXTRACTOR, S7Z_EXTRACTOR, ZIP_PACKER, S7Z_PACKER}
+     * @param environment environment variables. See {@link System#getenv()}
+     */
+    public ToolRegistry(Properties properties, Map<String, String> environment) {
+        Map<Path, Optional<Probe>> probes = new ConcurrentHashMap<>();
+        for (Tool tool : Tool.values()) {
+            for (Candidate candidate : candidates(tool, properties, environment)) {
+                Optional<Probe> probe = probes.computeIfAbsent(candidate.path(), ToolRegistry::probe);
+                if (probe.isPresent()) {
+                    tools.put(tool, new ToolInfo(tool, candidate.path(), candidate.source(),
+                            probe.get().version(), probe.get().majorVersion(), probe.get().switches()));
+                    break;
+                }
+            }
+        }
+        log.fine(() -> "Native tools: " + tools.values());
+    }
+
+    /**
+     * Returns the shared registry created on the first call by {@code native-provider.properties} (if present in
+     * classpath) and the environment variables
+     *
+     * @return default registry
+     */
+    public static ToolRegistry getDefault() {
+        ToolRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (ToolRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = new ToolRegistry(loadProperties(), System.getenv());
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Finds the resolved tool
+     *
+     * @param tool tool role
+     * @return tool | empty if not found
+     */
+    public Optional<ToolInfo> find(Tool tool) {
+        return Optional.ofNullable(tools.get(tool));
+    }
+
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        try (var is = ToolRegistry.class.getClassLoader().getResourceAsStream("native-provider.properties")) {
+            if (is != null) properties.load(is);
+        } catch (IOException e) {
+            log.warning("Cannot read native-provider.properties: " + e.getMessage());
+        }
+        return properties;
+    }
+
+    private record Candidate(Path path, String source) {
+    }
+
+    private static List<Candidate> candidates(Tool tool, Properties properties, Map<String, String> environment) {
+        List<Candidate> result = new ArrayList<>();
+        for (String key : tool.propertyKeys)
+            toPath(properties.getProperty(key)).ifPresent(path -> result.add(new Candidate(path, "property")));
+        toPath(environment.get(tool.environmentVariable))
+                .ifPresent(path -> result.add(new Candidate(path, "environment")));
+        String pathVariable = environment.getOrDefault("PATH", environment.get("Path"));
+        if (pathVariable != null) {
+            List<String> extensions = isWindows() ? List.of(".exe", ".cmd", ".bat", "") : List.of("");
+            for (String folder : pathVariable.split(File.pathSeparator))
+                for (String name : tool.executableNames)
+                    for (String extension : extensions)
+                        toPath(folder.isEmpty() ? null : folder + File.separator + name + extension)
+                                .ifPresent(path -> result.add(new Candidate(path, "PATH")));
+        }
+        if (isWindows()) result.add(new Candidate(Path.of(tool.windowsDefault), "default"));
+        return result.stream()
+                .filter(candidate -> Files.isRegularFile(candidate.path()) && Files.isExecutable(candidate.path()))
+                .toList();
+    }
+
+    private static Optional<Path> toPath(String value) {
+        if (value == null || value.isBlank()) return Optional.empty();
+        try {
+            return Optional.of(Path.of(value.strip()).toAbsolutePath());
+        } catch (InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").startsWith("Windows");
+    }
+
+    private static Optional<Probe> probe(Path executable) {
+        Process process;
+        try {
+            process = new ProcessBuilder(executable.toString()).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            log.fine(() -> "Cannot start " + executable + ": " + e.getMessage());
+            return Optional.empty();
+        }
+        try {
+            process.getOutputStream().close();
+            CompletableFuture<String> reading = CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = process.getInputStream()) {
+                    return new String(in.readNBytes(PROBE_OUTPUT_LIMIT), Charset.defaultCharset());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, command -> Thread.ofVirtual().start(command));
+            String output;
+            try {
+                output = reading.get(PROBE_TIMEOUT_SEC, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                log.fine(() -> "Probe of " + executable + " failed: " + e);
+                process.destroyForcibly();
+                return Optional.empty();
+            }
+            if (!process.waitFor(PROBE_TIMEOUT_SEC, TimeUnit.SECONDS)) process.destroyForcibly();
+            String version = "";
+            int major = -1;
+            Matcher matcher = VERSION.matcher(output);
+            if (matcher.find()) {
+                version = matcher.group();
+                major = Integer.parseInt(matcher.group(1));
+            }
+            Set<String> switches = new TreeSet<>();
+            Matcher switchMatcher = SWITCH.matcher(output);
+            while (switchMatcher.find()) switches.add(switchMatcher.group(1));
+            return Optional.of(new Probe(version, major, Collections.unmodifiableSet(switches)));
+        } catch (IOException | InterruptedException | NumberFormatException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ToolRegistry{" + tools.values() + '}';
+    }
+}
@@ -3,10 +3,33 @@ package com.jisj.archtools.conv;
 import com.jisj.archtools.Extractor;
 import com.jisj.archtools.Packer;
 import com.jisj.archtools.Type;
+import com.jisj.archtools.cache.CachingExtractor;
+import com.jisj.archtools.cache.ListingCache;
 
 import java.util.Optional;
 
 public interface UtilProvider {
     Optional<Packer> getPacker(Type archiveType);
     Optional<Extractor> getExtractor(Type archiveType);
+
+    /**
+     * Returns provider with extractors decorated by {@link CachingExtractor}
+     *
+     * @param cache listing cache shared by all extractors of the provider
+     * @return decorated provider. Packers are returned as is
+     */
+    default UtilProvider withListingCache(ListingCache cache) {
+        UtilProvider provider = this;
+        return new UtilProvider() {
+            @Override
+            public Optional<Packer> getPacker(Type archiveType) {
+                return provider.getPacker(archiveType);
+            }
+
+            @Override
+            public Optional<Extractor> getExtractor(Type archiveType) {
+                return provider.getExtractor(archiveType).map(extractor -> new CachingExtractor(extractor, cache));
+            }
+        };
+    }
 }
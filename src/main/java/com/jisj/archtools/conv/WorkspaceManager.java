@@ -0,0 +1,288 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Manager of temporary folders for conversion jobs.
+ * <ul>
+ * <li>Each job gets the new collision-free folder in one of the temporary roots</li>
+ * <li>The roots may be on the different disks. The job gets the root with the least count of active workspaces
+ * and then with the least reserved space</li>
+ * <li>The space reserved by workspaces of the root is limited by the {@link #setQuota(long) quota}</li>
+ * <li>Released workspaces are deleted in background by parallel walker. The space is freed after deletion</li>
+ * </ul>
+ * <pre>{@code
+ *     try (WorkspaceManager workspaces = new WorkspaceManager(Path.of("D:/tmp"), Path.of("E:/tmp"))) {
+ *         Converter converter = Converter.builder(provider)
+ *                 .workspaceManager(workspaces)
+ *                 ...
+ *     }
+ * }</pre>
+ */
+public class WorkspaceManager implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(WorkspaceManager.class.getName());
+    private final List<Root> roots;
+    private final ForkJoinPool deletePool;
+    private final Set<CompletableFuture<Void>> deletions = ConcurrentHashMap.newKeySet();
+    private volatile long quota = Long.MAX_VALUE;
+    private volatile double expansionRatio = 3.0;
+
+    /**
+     * Creates manager with parallelism of deletion by count of processors
+     *
+     * @param roots temporary root folders. Created if absent
+     * @throws IllegalArgumentException if roots are not set
+     */
+    public WorkspaceManager(Path... roots) {
+        this(Runtime.getRuntime().availableProcessors(), roots);
+    }
+
+    /**
+     * Creates manager
+     *
+     * @param deleteThreads parallelism of background deletion
+     * @param roots         temporary root folders. Created if absent
+     * @throws IllegalArgumentException if roots are not set; deleteThreads less than 1
+     */
+    public WorkspaceManager(int deleteThreads, Path... roots) {
+        if (roots.length == 0) throw new IllegalArgumentException("Temporary roots not set");
+        if (deleteThreads < 1) throw new IllegalArgumentException("Delete threads less than 1: " + deleteThreads);
+        this.roots = Arrays.stream(roots).map(path -> new Root(path.toAbsolutePath().normalize())).toList();
+        this.deletePool = new ForkJoinPool(deleteThreads);
+    }
+
+    /**
+     * Sets quota of reserved space for each root
+     *
+     * @param quota max bytes reserved by workspaces of one root. Default: unlimited
+     * @throws IllegalArgumentException if quota is negative
+     */
+    public void setQuota(long quota) {
+        if (quota < 0) throw new IllegalArgumentException("Negative quota: " + quota);
+        this.quota = quota;
+    }
+
+    /**
+     * Sets ratio of the expected extracted size to the archive size for {@link #acquire(Path)}
+     *
+     * @param expansionRatio ratio. Default: 3.0
+     * @throws IllegalArgumentException if ratio is not positive
+     */
+    public void setExpansionRatio(double expansionRatio) {
+        if (!(expansionRatio > 0)) throw new IllegalArgumentException("Not positive ratio: " + expansionRatio);
+        this.expansionRatio = expansionRatio;
+    }
+
+    /**
+     * Acquires workspace to extract the archive. The expected size is archive size by {@link #setExpansionRatio(double) ratio}
+     *
+     * @param archive source archive
+     * @return new workspace
+     * @throws ArchiveException if the archive size cannot be read; quota of all roots is exceeded; the folder cannot be created
+     */
+    public Workspace acquire(Path archive) throws ArchiveException {
+        try {
+            return acquire(Type.getBaseName(archive), (long) Math.ceil(Files.size(archive) * expansionRatio));
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+    }
+
+    /**
+     * Acquires workspace
+     *
+     * @param name          prefix of the folder name
+     * @param expectedBytes space to reserve
+     * @return new workspace
+     * @throws ArchiveException if quota of all roots is exceeded; the folder cannot be created
+     */
+    public Workspace acquire(String name, long expectedBytes) throws ArchiveException {
+        Root root;
+        synchronized (this) {
+            root = roots.stream()
+                    .filter(r -> r.reserved.get() + expectedBytes <= quota)
+                    .min(Comparator.comparingInt((Root r) -> r.active)
+                            .thenComparingLong(r -> r.reserved.get()))
+                    .orElseThrow(() -> new ArchiveException("Workspace quota " + quota + " exceeded for "
+                            + expectedBytes + " bytes of <" + name + "> in roots " + roots));
+            root.active++;
+            root.reserved.addAndGet(expectedBytes);
+        }
+        try {
+            Files.createDirectories(root.path);
+            Path folder = Files.createTempDirectory(root.path, name.replaceAll("[\\\\/:*?\"<>|\\s]", "_") + "-");
+            return new Workspace(root.path, folder, expectedBytes);
+        } catch (IOException | IllegalArgumentException e) {
+            synchronized (this) {
+                root.active--;
+                root.reserved.addAndGet(-expectedBytes);
+            }
+            throw new ArchiveException("Cannot create workspace in " + root.path, e);
+        }
+    }
+
+    /**
+     * Releases workspace. The folder is deleted in background; the reserved space is freed after deletion
+     *
+     * @param workspace acquired workspace
+     * @return future of the deletion. Completes exceptionally with {@link IOException} if some files were not deleted
+     */
+    public CompletableFuture<Void> release(Workspace workspace) {
+        Root root = rootOf(workspace);
+        synchronized (this) {
+            root.active--;
+        }
+        CompletableFuture<Void> deletion = new CompletableFuture<>();
+        deletions.add(deletion);
+        deletePool.execute(() -> {
+            Throwable error = null;
+            try {
+                List<Path> failed = new DeleteTask(workspace.folder()).invoke();
+                if (!failed.isEmpty()) {
+                    log.warning("Cannot delete " + failed.size() + " paths of workspace " + workspace.folder() + ": " + failed);
+                    error = new IOException("Cannot delete: " + failed);
+                }
+            } catch (Throwable e) {
+                error = e;
+            }
+            root.reserved.addAndGet(-workspace.reservedBytes());
+            deletions.remove(deletion);
+            if (error == null) deletion.complete(null);
+            else deletion.completeExceptionally(error);
+        });
+        return deletion;
+    }
+
+    /**
+     * @param root temporary root
+     * @return bytes reserved by the acquired and not deleted workspaces of the root
+     * @throws IllegalArgumentException if the root is not managed
+     */
+    public long getReserved(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        return roots.stream().filter(r -> r.path.equals(normalized)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown root: " + root))
+                .reserved.get();
+    }
+
+    /**
+     * @return temporary roots
+     */
+    public List<Path> getRoots() {
+        return roots.stream().map(r -> r.path).toList();
+    }
+
+    /**
+     * Waits for the background deletions
+     *
+     * @return future completed when all released workspaces are deleted
+     */
+    public CompletableFuture<Void> awaitCleanup() {
+        return CompletableFuture.allOf(deletions.stream()
+                .map(f -> f.exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Waits for the background deletions and stops the deletion threads
+     */
+    @Override
+    public void close() {
+        awaitCleanup().join();
+        deletePool.shutdown();
+    }
+
+    private Root rootOf(Workspace workspace) {
+        return roots.stream().filter(r -> r.path.equals(workspace.root())).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Workspace of unknown root: " + workspace));
+    }
+
+    @Override
+    public String toString() {
+        return "WorkspaceManager{" +
+                "roots=" + roots +
+                ", quota=" + quota +
+                ", expansionRatio=" + expansionRatio +
+                '}';
+    }
+
+    /**
+     * Temporary folder of the job
+     *
+     * @param root          temporary root of the folder
+     * @param folder        folder path
+     * @param reservedBytes reserved space
+     */
+    public record Workspace(Path root, Path folder, long reservedBytes) {
+    }
+
+    private static final class Root {
+        private final Path path;
+        private final AtomicLong reserved = new AtomicLong();
+        private int active;
+
+        Root(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return path + "(reserved=" + reserved + ", active=" + active + ")";
+        }
+    }
+
+    /**
+     * Deletes the folder tree: subfolders are deleted in parallel. Returns paths which were not deleted
+     */
+    @SuppressWarnings("serial")
+    private static final class DeleteTask extends RecursiveTask<List<Path>> {
+        private final Path folder;
+
+        DeleteTask(Path folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> failed = new ArrayList<>();
+            List<DeleteTask> subTasks = new ArrayList<>();
+            try (Stream<Path> children = Files.list(folder)) {
+                for (Path child : (Iterable<Path>) children::iterator) {
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        DeleteTask task = new DeleteTask(child);
+                        task.fork();
+                        subTasks.add(task);
+                    } else {
+                        delete(child, failed);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                return failed;
+            } catch (IOException | UncheckedIOException e) {
+                failed.add(folder);
+                return failed;
+            }
+            for (DeleteTask task : subTasks) failed.addAll(task.join());
+            if (failed.isEmpty()) delete(folder, failed);
+            return failed;
+        }
+
+        private static void delete(Path path, List<Path> failed) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                failed.add(path);
+            }
+        }
+    }
+}
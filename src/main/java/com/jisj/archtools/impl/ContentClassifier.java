@@ -0,0 +1,153 @@
+package com.jisj.archtools.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Classifier of already compressed file content. Only the first bytes of file are read:
+ * <ul>
+ * <li>the signatures of compressed images, audio, video and archives are incompressible</li>
+ * <li>other samples are incompressible if their Shannon entropy is not less than {@link #getEntropyThreshold() threshold}:
+ * encrypted data, ZIP based formats with deflated entries etc.</li>
+ * <li>the samples of small files are too short for the entropy, the extension is used</li>
+ * </ul>
+ * The incompressible files are stored without compression by {@link PackerNative#setOrdered(boolean) ordered packing}
+ * and by {@link ZipFileSystemController#setContentClassifier(ContentClassifier) ZipFileSystemController.addFiles}.
+ * The default packing of {@link PackerNative} and {@link PackerTar} compresses all files
+ */
+public final class ContentClassifier {
+    /**
+     * Extensions of the already compressed formats for the small files
+     */
+    public static final Set<String> INCOMPRESSIBLE_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "aac", "ogg", "flac", "m4a",
+            "mp4", "m4v", "mkv", "avi", "mov", "webm",
+            "zip", "7z", "rar", "gz", "tgz", "bz2", "xz", "zst", "jar", "docx", "xlsx", "pptx", "epub");
+    private static final int MIN_ENTROPY_SAMPLE = 512;
+    private static final ContentClassifier DEFAULT = new ContentClassifier(4096, 7.5);
+    private static final byte[][] SIGNATURES = {
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},                    // JPEG
+            {(byte) 0x89, 'P', 'N', 'G'},                               // PNG
+            {'G', 'I', 'F', '8'},                                       // GIF
+            {'P', 'K', 0x03, 0x04},                                     // ZIP local header: jar, docx, xlsx, epub
+            {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C},           // 7z
+            {'R', 'a', 'r', '!', 0x1A, 0x07},                           // RAR
+            {0x1F, (byte) 0x8B},                                        // gzip
+            {'B', 'Z', 'h'},                                            // bzip2
+            {(byte) 0xFD, '7', 'z', 'X', 'Z', 0x00},                    // xz
+            {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD},                     // zstd
+            {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3},                     // Matroska, WebM
+            {'O', 'g', 'g', 'S'},                                       // Ogg
+            {'f', 'L', 'a', 'C'},                                       // FLAC
+            {'I', 'D', '3'},                                            // MP3
+    };
+
+    private final int sampleSize;
+    private final double entropyThreshold;
+
+    /**
+     * Creates classifier
+     *
+     * @param sampleSize       count of the first bytes of file to read
+     * @param entropyThreshold min entropy of incompressible sample in bits per byte, up to 8
+     * @throws IllegalArgumentException if sample size less than {@value #MIN_ENTROPY_SAMPLE}, threshold is out of {@code (0, 8]}
+     */
+    public ContentClassifier(int sampleSize, double entropyThreshold) {
+        if (sampleSize < MIN_ENTROPY_SAMPLE)
+            throw new IllegalArgumentException("Sample size less than " + MIN_ENTROPY_SAMPLE + ": " + sampleSize);
+        if (!(entropyThreshold > 0 && entropyThreshold <= 8))
+            throw new IllegalArgumentException("Entropy threshold out of (0, 8]: " + entropyThreshold);
+        this.sampleSize = sampleSize;
+        this.entropyThreshold = entropyThreshold;
+    }
+
+    /**
+     * Returns classifier with 4KB samples and 7.5 bits per byte threshold
+     *
+     * @return default classifier
+     */
+    public static ContentClassifier getDefault() {
+        return DEFAULT;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public double getEntropyThreshold() {
+        return entropyThreshold;
+    }
+
+    /**
+     * Classifies the file by its first bytes
+     *
+     * @param file file path
+     * @return {@code true} if the file content is already compressed
+     * @throws IOException on reading errors
+     */
+    public boolean isIncompressible(Path file) throws IOException {
+        byte[] sample;
+        try (InputStream in = Files.newInputStream(file)) {
+            sample = in.readNBytes(sampleSize);
+        }
+        return isIncompressible(sample, file.getFileName().toString());
+    }
+
+    /**
+     * Classifies the first bytes of file
+     *
+     * @param sample   first bytes of file
+     * @param fileName file name for the small files
+     * @return {@code true} if the content is already compressed
+     */
+    public boolean isIncompressible(byte[] sample, String fileName) {
+        if (hasSignature(sample)) return true;
+        if (sample.length >= MIN_ENTROPY_SAMPLE) return entropy(sample) >= entropyThreshold;
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && INCOMPRESSIBLE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Calculates Shannon entropy of bytes
+     *
+     * @param bytes bytes
+     * @return entropy in bits per byte: 0 for constant bytes, 8 for uniformly random bytes
+     */
+    public static double entropy(byte[] bytes) {
+        if (bytes.length == 0) return 0;
+        int[] counts = new int[256];
+        for (byte b : bytes) counts[b & 0xFF]++;
+        double entropy = 0;
+        for (int count : counts) {
+            if (count == 0) continue;
+            double p = (double) count / bytes.length;
+            entropy -= p * Math.log(p);
+        }
+        return entropy / Math.log(2);
+    }
+
+    private static boolean hasSignature(byte[] sample) {
+        for (byte[] signature : SIGNATURES)
+            if (sample.length >= signature.length && Arrays.equals(sample, 0, signature.length, signature, 0, signature.length))
+                return true;
+        // ISO base media: MP4, MOV, HEIC, M4A
+        if (sample.length >= 8 && new String(sample, 4, 4, StandardCharsets.ISO_8859_1).equals("ftyp")) return true;
+        // RIFF WebP
+        return sample.length >= 12 && new String(sample, 0, 4, StandardCharsets.ISO_8859_1).equals("RIFF")
+                && new String(sample, 8, 4, StandardCharsets.ISO_8859_1).equals("WEBP");
+    }
+
+    @Override
+    public String toString() {
+        return "ContentClassifier{" +
+                "sampleSize=" + sampleSize +
+                ", entropyThreshold=" + entropyThreshold +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.metrics.OperationTimer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy streams of archive entries for the engine implementations
+ */
+final class EntryStreams {
+
+    private EntryStreams() {
+    }
+
+    /**
+     * Pull source of entries
+     */
+    interface EntrySource extends Closeable {
+        /**
+         * @return next entry | null at the end of listing
+         * @throws IOException on reading errors
+         */
+        ArchiveEntry next() throws IOException;
+    }
+
+    /**
+     * Creates sequential stream pulling the entries from the source.
+     * The timer gets success on the end of listing and stops on the stream closing
+     *
+     * @param source entries source. Closed by the stream closing
+     * @param timer  started timer of the listing operation
+     * @return ordered stream of entries
+     */
+    static Stream<ArchiveEntry> of(EntrySource source, OperationTimer timer) {
+        Spliterator<ArchiveEntry> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean finished;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super ArchiveEntry> action) {
+                if (finished) return false;
+                ArchiveEntry entry;
+                try {
+                    entry = source.next();
+                } catch (IOException e) {
+                    finished = true;
+                    throw new UncheckedIOException(e);
+                }
+                if (entry == null) {
+                    finished = true;
+                    timer.success();
+                    return false;
+                }
+                timer.entries(1);
+                action.accept(entry);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                source.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                timer.stop();
+            }
+        });
+    }
+}
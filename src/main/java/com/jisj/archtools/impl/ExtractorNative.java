@@ -1,32 +1,52 @@
 package com.jisj.archtools.impl;
 
+import com.jisj.archtools.ArchiveEntry;
 import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.BytesProgressListener;
+import com.jisj.archtools.EntryHandler;
+import com.jisj.archtools.EntryVisitor;
 import com.jisj.archtools.Extractor;
 import com.jisj.archtools.TimeOutException;
+import com.jisj.archtools.Type;
 import com.jisj.archtools.UnsupportedCommand;
+import com.jisj.archtools.Utils;
+import com.jisj.archtools.cache.ArchiveKey;
+import com.jisj.archtools.cache.BlobStore;
+import com.jisj.archtools.cache.EntryCache;
 import com.jisj.archtools.cmd.CmdExtractUtil;
+import com.jisj.archtools.cmd.PercentParser;
+import com.jisj.archtools.cmd.TechnicalListing;
+import com.jisj.archtools.manifest.ContentManifest;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.jisj.archtools.cmd.CmdUtil.splitCommand;
 
 /**
  * Class with commands for extract files from archives using native archive utils
+ * <p>The instance is thread-safe: the setters replace the immutable {@link NativeOptions} and each call
+ * uses the options taken at its start. Options and listeners may be passed per call, see {@link #extractTo(Path, Path, NativeOptions)}
  */
 public class ExtractorNative implements Extractor {
     private final CmdExtractUtil util;
-    private int breakTimeOutSec = 120;
-    private Path archive;
-    private Path logFile;
-    private boolean appendLog = false;
-    private Consumer<Long> progressListener;
-    private Consumer<String> messageListener;
-    private long progressCount = 0;
-    private boolean debugMode = false;
+    private volatile NativeOptions options = NativeOptions.of(120);
+    private volatile EntryCache entryCache;
 
     /**
      * Creates new {@link Extractor} object
@@ -39,12 +59,47 @@ public class ExtractorNative implements Extractor {
     }
 
     /**
-     * Sets break extracting timeout in sec
+     * Returns options used by calls without options
+     * @return current options
+     */
+    public NativeOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Sets options used by calls without options
+     * @param options new options
+     */
+    public void setOptions(NativeOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Sets cache of small entries read by {@link #readEntries(Path, Collection, EntryHandler)}
+     *
+     * @param entryCache cache | null to switch off. Default null
+     */
+    public void setEntryCache(EntryCache entryCache) {
+        this.entryCache = entryCache;
+    }
+
+    /**
+     * Sets inactivity timeout in sec. The util process is killed if it writes no output for this time
+     *
+     * @param breakTimeOutSec new value in sec. Default: 120sec
+     */
+    public synchronized void setBreakTimeOutSec(int breakTimeOutSec) {
+        options = options.withBreakTimeOutSec(breakTimeOutSec);
+    }
+
+    /**
+     * Sets minimal expected speed of util. The process is killed after the deadline scaled by the archive size,
+     * see {@link ProcessWatchdog#deadline(long, long)}
      *
-     * @param breakTimeOutSec new value in sec. Default: 10sec
+     * @param minBytesPerSecond speed in bytes per second, 0 switches off the deadline. Default: {@value NativeOptions#DEFAULT_MIN_BYTES_PER_SECOND}
      */
-    public void setBreakTimeOutSec(int breakTimeOutSec) {
-        this.breakTimeOutSec = breakTimeOutSec;
+    public synchronized void setMinBytesPerSecond(long minBytesPerSecond) {
+        options = options.withMinBytesPerSecond(minBytesPerSecond);
     }
 
     /**
@@ -52,8 +107,8 @@ public class ExtractorNative implements Extractor {
      *
      * @param logFile name of log file
      */
-    public void setLogFile(Path logFile) {
-        this.logFile = logFile;
+    public synchronized void setLogFile(Path logFile) {
+        options = options.withLogFile(logFile);
     }
 
     /**
@@ -61,17 +116,27 @@ public class ExtractorNative implements Extractor {
      *
      * @param appendLog {@code true} for append log. Default {@code false}
      */
-    public void setAppendLog(boolean appendLog) {
-        this.appendLog = appendLog;
+    public synchronized void setAppendLog(boolean appendLog) {
+        options = options.withAppendLog(appendLog);
     }
 
     @Override
-    public void setProgressListener(Consumer<Long> progressListener) {
-        this.progressListener = progressListener;
+    public synchronized void setProgressListener(Consumer<Long> progressListener) {
+        options = options.withProgressListener(progressListener);
     }
+
     @Override
-    public void setMessageListener(Consumer<String> messageListener) {
-        this.messageListener = messageListener;
+    public synchronized void setMessageListener(Consumer<String> messageListener) {
+        options = options.withMessageListener(messageListener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The total is the archive size. The done bytes are calculated by the percentage output of util
+     */
+    @Override
+    public synchronized void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        options = options.withBytesProgressListener(bytesProgressListener);
     }
 
     /**
@@ -80,8 +145,8 @@ public class ExtractorNative implements Extractor {
      * @param debugMode {@code true} sets output to console. Default {@code false}
      */
     @SuppressWarnings("unused")
-    public void setDebugMode(boolean debugMode) {
-        this.debugMode = debugMode;
+    public synchronized void setDebugMode(boolean debugMode) {
+        options = options.withDebugMode(debugMode);
     }
 
     /**
@@ -92,64 +157,488 @@ public class ExtractorNative implements Extractor {
      */
     @Override
     public void extractTo(Path archive, Path destination) throws TimeOutException, ArchiveException {
+        extractTo(archive, destination, options);
+    }
+
+    /**
+     * Extracts files from archive to destination folder with the options of this call
+     *
+     * @param archive     archive file path
+     * @param destination destination folder
+     * @param options     options and listeners of the call
+     * @throws ArchiveException when archive file/destination folder not found, I/O exceptions
+     * @throws TimeOutException on timeout breaking
+     * @implNote With {@link NativeOptions#manifest()} the manifest of extracted files is written to
+     * {@link ContentManifest#sidecarOf(Path) destination sidecar} next to the destination folder.
+     * The caller removes the sidecar with the folder
+     */
+    public void extractTo(Path archive, Path destination, NativeOptions options) throws TimeOutException, ArchiveException {
         assertFileNotFound(archive);
         assertFileNotFound(destination);
 
         if (!Files.isDirectory(destination))
             throw new ArchiveException("Destination path is not directory: " + destination);
 
-        init(archive);
+        extract(archive, destination, options, util.extractToDestinationCmd(archive, destination),
+                options.logFile() != null ? options.logFile() : destination.resolve(archive.getFileName().toString() + ".log"),
+                1, 1);
+        if (options.manifest()) writeManifest(destination, getFileList(archive, quiet(options)));
+    }
 
-        ProcessBuilder builder = new ProcessBuilder(util.extractToDestinationCmd(archive, destination));
-        debugMode(builder);
+    /**
+     * Writes the manifest of extracted files next to the destination folder. The files are hashed just after
+     * the extraction while they are in the page cache
+     */
+    private static void writeManifest(Path destination, Collection<String> names) throws ArchiveException {
         try {
-            if (logFile == null) createLog(archive, destination);
-            Process process = builder.start();
-            saveToLog(process.getInputStream());
-            saveToLog(process.getErrorStream());
-            wait(process);
+            ContentManifest.of(destination, names).write(ContentManifest.sidecarOf(destination));
+        } catch (IOException e) {
+            throw new ArchiveException("Cannot write manifest of " + destination, e);
+        }
+    }
+
+    /**
+     * Resolves the entry name in the destination folder
+     *
+     * @throws ArchiveException if the entry is outside of the destination folder
+     */
+    static Path entryTarget(Path destination, String name) throws ArchiveException {
+        Path root = destination.toAbsolutePath().normalize();
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root))
+            throw new ArchiveException("Entry is outside of the destination directory: " + name);
+        return target;
+    }
+
+    /**
+     * Options of auxiliary listing: without log file and listeners
+     */
+    private static NativeOptions quiet(NativeOptions options) {
+        return options.withLogFile(null).withProgressListener(null).withMessageListener(null);
+    }
+
+    /**
+     * Runs extraction process. The part of archive extracted by the command {@code shareOf / shareTotal}
+     * scales the bytes progress
+     */
+    private void extract(Path archive, Path destination, NativeOptions options, String command, Path logFile,
+                         long shareOf, long shareTotal) throws ArchiveException {
+        Call call = new Call(archive, options, logFile);
+        ProcessBuilder builder = new ProcessBuilder(splitCommand(command));
+        call.debugMode(builder);
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, Metrics.engineOf(util.getUtilPath()));
+        timer.command(builder.command());
+        try {
+            long archiveSize = Files.size(archive);
+            long total = shareTotal > 0 ? (long) ((double) archiveSize * shareOf / shareTotal) : archiveSize;
+            timer.bytesRead(total);
+            Process process = start(builder, Operation.EXTRACT, archive, destination);
+            ArchiveFuture.register(process);
+            timer.spawned(process);
+            call.watch(process, archiveSize);
+            ProcessOutput.read(call.monitor(process.getInputStream()), call.percentParser(total), line -> {
+                call.updateListeners(line);
+                call.saveToLog(line);
+            });
+            call.saveToLog(call.monitor(process.getErrorStream()));
+            call.wait(process);
             if (process.exitValue() != 0) {
-                throw new ArchiveException("Extraction error. ExitValue=" + process.exitValue() + " See log file " + logFile);
+                throw new ArchiveException("Extraction error. ExitValue=" + process.exitValue() + " See log file " + call.logFile);
             }
-            if (!appendLog) deleteLog();
+            if (options.bytesProgressListener() != null) options.bytesProgressListener().progress(total, total);
+            if (!options.appendLog()) Files.deleteIfExists(call.logFile);
+            timer.success();
         } catch (TimeOutException e) {
+            timer.timeout();
             throw new TimeOutException(e);
         } catch (IOException ex) {
+            if (call.isExpired()) {
+                timer.timeout();
+                throw call.timeout();
+            }
             throw new ArchiveException(ex);
+        } finally {
+            call.close();
+            timer.stop();
         }
     }
 
-    private void debugMode(ProcessBuilder builder) {
-        if (debugMode) {
-            builder.inheritIO();
-            System.out.println(builder.command());
+    /**
+     * Result of extraction with {@link BlobStore}
+     *
+     * @param extracted count of files extracted by util
+     * @param reused    count of files taken from the store
+     */
+    public record StoreResult(int extracted, int reused) {
+    }
+
+    /**
+     * Extracts files from archive to destination folder with the blob store of this call.
+     * The extracted files are added to the store for the next archives.
+     * <p>With CRC matching the files found in the store by size and CRC32 of {@link #getTechnicalList(Path) technical listing}
+     * are not extracted but are copied from the store with modification time of the listing. Different contents with
+     * the same size and CRC32 are taken for the same file: use it only when such collision is acceptable.
+     * Without CRC matching or for utils without technical listing or extraction by list file all files are extracted,
+     * the store only measures duplicates
+     *
+     * @param archive     archive file path
+     * @param destination destination folder
+     * @param store       blob store
+     * @param crcMatching {@code true} to reuse the stored files found by size and CRC32
+     * @param options     options and listeners of the call
+     * @return counts of extracted and reused files
+     * @throws ArchiveException when archive file/destination folder not found, I/O exceptions, entry outside of the destination folder
+     * @throws TimeOutException on timeout breaking
+     */
+    public StoreResult extractWithStore(Path archive, Path destination, BlobStore store, boolean crcMatching,
+                                        NativeOptions options) throws ArchiveException {
+        assertFileNotFound(archive);
+        assertFileNotFound(destination);
+        if (!Files.isDirectory(destination))
+            throw new ArchiveException("Destination path is not directory: " + destination);
+        Path logFile = options.logFile() != null ? options.logFile() : destination.resolve(archive.getFileName().toString() + ".log");
+        try {
+            if (!crcMatching || !util.supportsTechnicalList() || !util.supportsEntryExtraction()) {
+                List<String> names = util.supportsTechnicalList()
+                        ? getTechnicalList(archive, quiet(options)).entries().stream().map(entry -> entry.entry().name()).toList()
+                        : getFileList(archive, quiet(options));
+                List<Path> files = new ArrayList<>();
+                for (String name : names) files.add(entryTarget(destination, name));
+                extractTo(archive, destination, options);
+                int extracted = 0;
+                for (Path file : files) {
+                    if (!Files.isRegularFile(file)) continue;
+                    store.put(file);
+                    extracted++;
+                }
+                return new StoreResult(extracted, 0);
+            }
+            TechnicalListing listing = getTechnicalList(archive, quiet(options));
+            for (TechnicalListing.Entry entry : listing.entries()) entryTarget(destination, entry.entry().name());
+            List<ArchiveEntry> extracted = new ArrayList<>();
+            Map<ArchiveEntry, BlobStore.BlobKey> reused = new LinkedHashMap<>();
+            long extractedSize = 0;
+            long totalSize = 0;
+            for (TechnicalListing.Entry entry : listing.entries()) {
+                ArchiveEntry file = entry.entry();
+                if (file.directory()) {
+                    Files.createDirectories(entryTarget(destination, file.name()));
+                    continue;
+                }
+                Optional<BlobStore.BlobKey> key = entry.crc() < 0 || file.size() < 0
+                        ? Optional.empty() : store.find(file.size(), entry.crc());
+                totalSize += Math.max(file.size(), 0);
+                if (key.isPresent()) {
+                    reused.put(file, key.get());
+                } else {
+                    extracted.add(file);
+                    extractedSize += Math.max(file.size(), 0);
+                }
+            }
+            if (reused.isEmpty())
+                extract(archive, destination, options, util.extractToDestinationCmd(archive, destination), logFile, 1, 1);
+            else if (!extracted.isEmpty())
+                extractPart(archive, destination, options.withLogFile(logFile), extracted, extractedSize, Math.max(totalSize, 1));
+            for (var entry : reused.entrySet())
+                store.copyTo(entry.getValue(), entryTarget(destination, entry.getKey().name()), entry.getKey().lastModifiedTime());
+            for (ArchiveEntry file : extracted) store.put(entryTarget(destination, file.name()));
+            if (options.manifest())
+                writeManifest(destination, listing.entries().stream().map(entry -> entry.entry().name()).toList());
+            return new StoreResult(extracted.size(), reused.size());
+        } catch (IOException e) {
+            throw e instanceof ArchiveException ae ? ae : new ArchiveException(e);
         }
     }
 
-    private void init(Path archive) {
-        this.archive = archive;
-        progressCount = 0;
+    /**
+     * Result of archive extraction in batch
+     *
+     * @param archive     archive file path
+     * @param destination folder of extracted files
+     * @param success     {@code true} if util did not report errors of the archive
+     * @param messages    error messages of util
+     */
+    public record BatchResult(Path archive, Path destination, boolean success, List<String> messages) {
+    }
+
+    /**
+     * Extracts archives to subfolders of the destination folder. The subfolder is named by archive name without last
+     * extension: {@code dest/a} for {@code a.zip}, {@code dest/b.tar} for {@code b.tar.gz}
+     * <p>When the util supports {@link CmdExtractUtil#extractBatchCmd(List, Path, Path) batch command} all archives are
+     * extracted by one process, so the process start costs once. The results of archives are recovered from
+     * the output. Otherwise, the archives are extracted one by one. The deadline of batch process is scaled by
+     * the total size of archives
+     *
+     * @param archives    archive file paths
+     * @param destination root destination folder
+     * @return results in order of archives
+     * @throws ArchiveException when destination folder not found, I/O exceptions
+     * @throws TimeOutException on timeout breaking
+     */
+    public List<BatchResult> extractBatch(List<Path> archives, Path destination) throws ArchiveException {
+        return extractBatch(archives, destination, options);
     }
 
-    private void wait(Process process) throws IOException {
+    /**
+     * Extracts archives to subfolders of the destination folder with the options of this call.
+     * See {@link #extractBatch(List, Path)}
+     *
+     * @param archives    archive file paths
+     * @param destination root destination folder
+     * @param options     options and listeners of the call. The log file is not used
+     * @return results in order of archives
+     * @throws ArchiveException when destination folder not found, I/O exceptions
+     * @throws TimeOutException on timeout breaking
+     */
+    public List<BatchResult> extractBatch(List<Path> archives, Path destination, NativeOptions options) throws ArchiveException {
+        assertFileNotFound(destination);
+        if (archives.isEmpty()) return List.of();
+        Path listFile;
         try {
-            if (!process.waitFor(breakTimeOutSec, TimeUnit.SECONDS)) {
-                process.destroy();
-                if (process.isAlive()) {
-                    process.destroyForcibly();
+            listFile = Files.createTempFile("arch-tools-batch", ".lst");
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+        try {
+            Optional<String> command = util.extractBatchCmd(archives, listFile, destination);
+            if (command.isEmpty()) return extractOneByOne(archives, destination, options);
+            Files.write(listFile, archives.stream().map(archive -> archive.toAbsolutePath().toString()).toList(),
+                    StandardCharsets.UTF_8);
+            return extractBatch(archives, destination, options, command.get());
+        } catch (IOException e) {
+            throw e instanceof ArchiveException ae ? ae : new ArchiveException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(listFile);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private List<BatchResult> extractBatch(List<Path> archives, Path destination, NativeOptions options, String command) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < archives.size(); i++) {
+            indexes.put(archives.get(i).toAbsolutePath().normalize().toString(), i);
+            indexes.putIfAbsent(archives.get(i).getFileName().toString(), i);
+        }
+        boolean[] started = new boolean[archives.size()];
+        List<List<String>> errors = new ArrayList<>();
+        for (int i = 0; i < archives.size(); i++) errors.add(new ArrayList<>());
+
+        Call call = new Call(archives.getFirst(), options, null);
+        ProcessBuilder builder = new ProcessBuilder(splitCommand(command)).redirectErrorStream(true);
+        call.debugMode(builder);
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, Type.getType(archives.getFirst()), Metrics.engineOf(util.getUtilPath()));
+        timer.command(builder.command());
+        try {
+            long bytes = 0;
+            for (Path archive : archives) bytes += Files.size(archive);
+            timer.bytesRead(bytes);
+            Process process = start(builder, Operation.EXTRACT, archives.getFirst(), destination);
+            ArchiveFuture.register(process);
+            timer.spawned(process);
+            call.watch(process, bytes);
+            int[] current = {-1};
+            ProcessOutput.read(call.monitor(process.getInputStream()), null, line -> {
+                call.updateListeners(line);
+                String printed = util.parseBatchArchive(line);
+                if (printed != null) {
+                    Path path = Path.of(printed);
+                    Integer index = indexes.get(path.toAbsolutePath().normalize().toString());
+                    if (index == null && path.getFileName() != null) index = indexes.get(path.getFileName().toString());
+                    current[0] = index == null ? -1 : index;
+                    if (current[0] >= 0) started[current[0]] = true;
+                } else if (current[0] >= 0 && util.isBatchError(line)) {
+                    errors.get(current[0]).add(line);
                 }
-                String message = "Extract timeout exception after " + breakTimeOutSec + "sec in archive: " + archive;
-                if (logFile != null) saveToLog(message);
-                throw new TimeOutException(message + "\nSee log file " + logFile);
+            });
+            call.wait(process);
+            List<BatchResult> results = new ArrayList<>();
+            for (int i = 0; i < archives.size(); i++) {
+                Path archive = archives.get(i);
+                if (!started[i]) errors.get(i).add("Archive was not processed. ExitValue=" + process.exitValue());
+                results.add(new BatchResult(archive, destination.resolve(batchFolderName(archive)),
+                        errors.get(i).isEmpty(), List.copyOf(errors.get(i))));
             }
-        } catch (InterruptedException e) {
-            throw new ArchiveException(e);
+            timer.entries(archives.size());
+            timer.success();
+            return results;
         } catch (TimeOutException e) {
+            timer.timeout();
             throw new TimeOutException(e);
+        } catch (IOException e) {
+            if (call.isExpired()) {
+                timer.timeout();
+                throw call.timeout();
+            }
+            throw e;
+        } finally {
+            call.close();
+            timer.stop();
         }
-        if (process.exitValue() != 0) {
-            throw new ArchiveException("Extraction error. ExitValue=" + process.exitValue() + " See log file " + logFile);
+    }
+
+    private List<BatchResult> extractOneByOne(List<Path> archives, Path destination, NativeOptions options) throws IOException {
+        List<BatchResult> results = new ArrayList<>();
+        for (Path archive : archives) {
+            Path folder = Files.createDirectories(destination.resolve(batchFolderName(archive)));
+            try {
+                extractTo(archive, folder, options);
+                results.add(new BatchResult(archive, folder, true, List.of()));
+            } catch (TimeOutException e) {
+                throw e;
+            } catch (ArchiveException e) {
+                results.add(new BatchResult(archive, folder, false, List.of(String.valueOf(e.getMessage()))));
+            }
         }
+        return results;
+    }
+
+    /**
+     * Extracts files from not solid archive by several concurrent processes. Each process extracts own group of entries.
+     * The groups are balanced by the entry sizes of {@link #getTechnicalList(Path) technical listing}.
+     * <p>Solid archives, archives with one file and utils without technical listing or selective extraction
+     * are extracted by {@link #extractTo(Path, Path, NativeOptions) one process}.
+     * <p>The processes are started by {@link ProcessScheduler}, so the parallelism is limited by the processes count,
+     * the free CPU slots and the memory budget. The parts {@link ProcessScheduler#shareIo(Object, ArchiveFuture.Task) share}
+     * one I/O slot of the archive and destination devices, so the per device limit counts the extraction once
+     *
+     * @param archive     archive file path
+     * @param destination destination folder
+     * @param processes   maximal count of processes
+     * @throws ArchiveException         when archive file/destination folder not found, I/O exceptions, util errors of any process
+     * @throws TimeOutException         on timeout breaking of any process
+     * @throws IllegalArgumentException if processes is not positive
+     */
+    public void extractParallel(Path archive, Path destination, int processes) throws ArchiveException {
+        extractParallel(archive, destination, processes, options);
+    }
+
+    /**
+     * Extracts files from not solid archive by several concurrent processes with the options of this call.
+     * See {@link #extractParallel(Path, Path, int)}
+     *
+     * @param archive     archive file path
+     * @param destination destination folder
+     * @param processes   maximal count of processes
+     * @param options     options and listeners of the call. Each process has own log file: {@code archive_name.rar.partN.log}
+     *                    or {@code name.partN.log} for the log file {@code name.log} of options
+     * @throws ArchiveException         when archive file/destination folder not found, I/O exceptions, util errors of any process.
+     *                                  The first error kills the processes of other parts
+     * @throws TimeOutException         on timeout breaking of any process
+     * @throws IllegalArgumentException if processes is not positive
+     */
+    public void extractParallel(Path archive, Path destination, int processes, NativeOptions options) throws ArchiveException {
+        if (processes < 1) throw new IllegalArgumentException("Not positive count of processes: " + processes);
+        assertFileNotFound(archive);
+        assertFileNotFound(destination);
+        if (processes == 1 || !util.supportsTechnicalList() || !util.supportsEntryExtraction()) {
+            extractTo(archive, destination, options);
+            return;
+        }
+        TechnicalListing listing = getTechnicalList(archive, quiet(options));
+        List<List<ArchiveEntry>> groups = partition(listing, processes);
+        if (listing.solid() || groups.size() < 2) {
+            extractTo(archive, destination, options);
+            return;
+        }
+        try {
+            for (TechnicalListing.Entry entry : listing.entries())
+                if (entry.entry().directory()) Files.createDirectories(entryTarget(destination, entry.entry().name()));
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+
+        long[] sizes = new long[groups.size()];
+        for (int i = 0; i < groups.size(); i++)
+            for (ArchiveEntry entry : groups.get(i)) sizes[i] += Math.max(entry.size(), 0);
+        long totalSize = Math.max(Arrays.stream(sizes).sum(), 1);
+        long archiveSize;
+        try {
+            archiveSize = Files.size(archive);
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+        long[] done = new long[groups.size()];
+        BytesProgressListener listener = options.bytesProgressListener();
+        Path logFile = options.logFile() != null ? options.logFile() : destination.resolve(archive.getFileName() + ".log");
+        String caller = ProcessScheduler.currentCaller();
+        Object ioGroup = new Object();
+        List<ArchiveFuture<Void>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < groups.size(); i++) {
+                int part = i;
+                NativeOptions partOptions = options
+                        .withLogFile(partLog(logFile, part))
+                        .withBytesProgressListener(listener == null ? null : (bytesDone, bytesTotal) -> {
+                            synchronized (done) {
+                                done[part] = bytesDone;
+                                listener.progress(Arrays.stream(done).sum(), archiveSize);
+                            }
+                        });
+                // each part runs as own archive operation, so its cancelling kills the process of the part
+                futures.add(ArchiveFuture.callAsync(() -> ProcessScheduler.callAs(caller,
+                        () -> ProcessScheduler.shareIo(ioGroup, () -> {
+                            extractPart(archive, destination, partOptions, groups.get(part), sizes[part], totalSize);
+                            return null;
+                        })), executor));
+            }
+            for (ArchiveFuture<Void> future : futures)
+                future.whenComplete((result, e) -> {
+                    if (e != null) futures.forEach(other -> other.cancel(true));
+                });
+        }
+        for (ArchiveFuture<Void> future : futures) {
+            if (future.state() != Future.State.FAILED) continue;
+            Throwable cause = future.exceptionNow();
+            if (cause instanceof ArchiveException ae) throw ae;
+            throw new ArchiveException(cause);
+        }
+        if (options.manifest())
+            writeManifest(destination, listing.entries().stream().map(entry -> entry.entry().name()).toList());
+    }
+
+    /**
+     * Log file of the part: {@code name.partN.log} for {@code name.log}
+     */
+    static Path partLog(Path logFile, int part) {
+        String name = logFile.getFileName().toString();
+        int end = name.toLowerCase(Locale.ROOT).endsWith(".log") ? name.length() - ".log".length() : name.length();
+        return logFile.resolveSibling(name.substring(0, end) + ".part" + part + name.substring(end));
+    }
+
+    private void extractPart(Path archive, Path destination, NativeOptions options, List<ArchiveEntry> entries,
+                             long size, long totalSize) throws IOException {
+        Path listFile = Files.createTempFile("arch-tools-part", ".lst");
+        try {
+            Files.write(listFile, entries.stream().map(ArchiveEntry::name).toList(), StandardCharsets.UTF_8);
+            String command = util.extractEntriesCmd(archive, listFile, destination).orElseThrow(UnsupportedCommand::new);
+            extract(archive, destination, options, command, options.logFile(), size, totalSize);
+        } finally {
+            Files.deleteIfExists(listFile);
+        }
+    }
+
+    /**
+     * Splits files of listing to balanced groups: the next biggest file goes to the group with the smallest size
+     */
+    static List<List<ArchiveEntry>> partition(TechnicalListing listing, int groups) {
+        List<ArchiveEntry> files = listing.entries().stream()
+                .map(TechnicalListing.Entry::entry)
+                .filter(entry -> !entry.directory())
+                .sorted(Comparator.comparingLong(ArchiveEntry::size).reversed())
+                .toList();
+        int count = Math.min(groups, files.size());
+        List<List<ArchiveEntry>> result = new ArrayList<>();
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) result.add(new ArrayList<>());
+        for (ArchiveEntry file : files) {
+            int smallest = 0;
+            for (int i = 1; i < count; i++) if (sizes[i] < sizes[smallest]) smallest = i;
+            result.get(smallest).add(file);
+            sizes[smallest] += Math.max(file.size(), 1);
+        }
+        return result;
     }
 
     /**
@@ -159,35 +648,422 @@ public class ExtractorNative implements Extractor {
      */
     @Override
     public List<String> getFileList(Path archive) throws ArchiveException {
+        return getFileList(archive, options);
+    }
+
+    /**
+     * Returns archive file list with the options of this call
+     *
+     * @param archive archive file path
+     * @param options options and listeners of the call
+     * @return archive file list
+     * @throws ArchiveException when archive file not found, I/O exceptions, util errors
+     */
+    public List<String> getFileList(Path archive, NativeOptions options) throws ArchiveException {
         assertFileNotFound(archive);
-        init(archive);
+        return getFileList(listing(archive, options, util.getFileListCmd(archive)));
+    }
+
+    /**
+     * Returns technical listing of archive: solid flag and solid blocks of entries
+     *
+     * @param archive archive file path
+     * @return technical listing
+     * @throws ArchiveException when archive file not found, I/O exceptions, util errors
+     * @throws UnsupportedCommand if the util has no technical listing
+     */
+    public TechnicalListing getTechnicalList(Path archive) throws ArchiveException {
+        return getTechnicalList(archive, options);
+    }
+
+    /**
+     * Returns technical listing of archive with the options of this call
+     *
+     * @param archive archive file path
+     * @param options options and listeners of the call
+     * @return technical listing
+     * @throws ArchiveException when archive file not found, I/O exceptions, util errors
+     * @throws UnsupportedCommand if the util has no technical listing
+     */
+    public TechnicalListing getTechnicalList(Path archive, NativeOptions options) throws ArchiveException {
+        assertFileNotFound(archive);
+        String command = util.getTechnicalListCmd(archive).orElseThrow(UnsupportedCommand::new);
+        return util.parseTechnicalList(listing(archive, options, command));
+    }
+
+    /**
+     * Runs listing process and returns output lines
+     */
+    private List<String> listing(Path archive, NativeOptions options, String command) throws ArchiveException {
+        Call call = new Call(archive, options, options.logFile());
         List<String> result;
-        ProcessBuilder builder = new ProcessBuilder(util.getFileListCmd(archive));
-        debugMode(builder);
+        ProcessBuilder builder = new ProcessBuilder(splitCommand(command));
+        call.debugMode(builder);
         Process process;
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, Metrics.engineOf(util.getUtilPath()));
+        timer.command(builder.command());
         try {
-            process = builder.start();
+            process = start(builder, Operation.LIST, archive);
+            ArchiveFuture.register(process);
+            timer.spawned(process);
+            call.watch(process, Files.size(archive));
 
-            result = getFileList(getReader(process.getInputStream())
+            result = getReader(call.monitor(process.getInputStream()))
                     .lines()
-                    .peek(this::updateListeners)
-                    .toList());
-            List<String> errors = getReader(process.getErrorStream()).lines().toList();
+                    .peek(call::updateListeners)
+                    .toList();
+            List<String> errors = getReader(call.monitor(process.getErrorStream())).lines().toList();
 
-            wait(process);
+            call.wait(process);
             if (process.exitValue() != 0) {
-                if (logFile != null) saveToLog(String.join("\n", errors));
+                if (call.logFile != null) call.saveToLog(String.join("\n", errors));
                 throw new ArchiveException(String.join("\n", errors));
             }
+            timer.entries(result.size());
+            timer.success();
         } catch (TimeOutException e) {
+            timer.timeout();
             throw new TimeOutException(e);
         } catch (IOException e) {
+            if (call.isExpired()) {
+                timer.timeout();
+                throw call.timeout();
+            }
             throw new ArchiveException(e);
+        } finally {
+            call.close();
+            timer.stop();
         }
 
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArchiveException {@inheritDoc}
+     * @implNote The util output is read by the stream consumption, so the native process is blocked while the consumer
+     * does not pull entries. The break timeout is not applied. Closing of the unfinished stream destroys the process tree.
+     * Lines are parsed by {@link CmdExtractUtil#parseListLine(String)}. Listeners are not notified
+     */
+    @Override
+    public Stream<ArchiveEntry> streamEntries(Path archive) throws ArchiveException {
+        assertFileNotFound(archive);
+        ProcessBuilder builder = new ProcessBuilder(splitCommand(util.getFileListCmd(archive)));
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, Metrics.engineOf(util.getUtilPath()));
+        timer.command(builder.command());
+        Process process;
+        try {
+            process = start(builder, Operation.LIST, archive);
+        } catch (ArchiveException e) {
+            timer.stop();
+            throw e;
+        }
+        ArchiveFuture.register(process);
+        timer.spawned(process);
+        CompletableFuture<List<String>> errors = CompletableFuture.supplyAsync(
+                () -> getReader(process.getErrorStream()).lines().toList(),
+                command -> Thread.ofVirtual().start(command));
+        BufferedReader reader = getReader(process.getInputStream());
+        return EntryStreams.of(new EntryStreams.EntrySource() {
+            @Override
+            public ArchiveEntry next() throws IOException {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) return util.parseListLine(line);
+                }
+                try {
+                    if (process.waitFor() != 0)
+                        throw new ArchiveException("Listing error. ExitValue=" + process.exitValue() + "\n"
+                                + String.join("\n", errors.join()));
+                } catch (InterruptedException e) {
+                    throw new ArchiveException(e);
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (process.isAlive()) ArchiveFuture.destroyTree(process);
+                reader.close();
+            }
+        }, timer);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The entries are grouped by solid blocks of {@link #getTechnicalList(Path) technical listing}. Each block is
+     * decompressed once by the selective extraction of its requested entries to a temporary folder, then the entries are passed
+     * to the handler in order of listing and the folder is removed. All requested entries of not solid archive are
+     * extracted by one process. Small entries are taken from and added to the {@link #setEntryCache(EntryCache) entry cache}
+     *
+     * @throws ArchiveException {@inheritDoc}
+     * @throws TimeOutException on timeout breaking
+     * @implNote Utils without technical listing or selective extraction use the default implementation
+     */
+    @Override
+    public void readEntries(Path archive, Collection<String> names, EntryHandler handler) throws ArchiveException {
+        assertFileNotFound(archive);
+        if (!util.supportsTechnicalList() || !util.supportsEntryExtraction()) {
+            Extractor.super.readEntries(archive, names, handler);
+            return;
+        }
+        NativeOptions options = this.options;
+        EntryCache cache = entryCache;
+        try {
+            ArchiveKey key = cache == null ? null : ArchiveKey.of(archive);
+            TechnicalListing listing = getTechnicalList(archive, options.withLogFile(null));
+            Map<String, TechnicalListing.Entry> byName = new HashMap<>();
+            for (TechnicalListing.Entry entry : listing.entries())
+                if (!entry.entry().directory()) byName.put(entry.entry().name().replace('\\', '/'), entry);
+
+            List<String> missing = new ArrayList<>();
+            Set<TechnicalListing.Entry> requested = new HashSet<>();
+            for (String name : new LinkedHashSet<>(names)) {
+                TechnicalListing.Entry entry = byName.get(name.replace('\\', '/'));
+                if (entry == null) {
+                    missing.add(name);
+                    continue;
+                }
+                Optional<byte[]> cached = key == null ? Optional.empty() : cache.get(key, entry.entry().name());
+                if (cached.isPresent()) handler.accept(entry.entry(), new ByteArrayInputStream(cached.get()));
+                else requested.add(entry);
+            }
+            Map<Long, List<TechnicalListing.Entry>> blocks = new TreeMap<>();
+            for (TechnicalListing.Entry entry : listing.entries())
+                if (requested.contains(entry))
+                    blocks.computeIfAbsent(listing.solid() ? entry.block() : 0, k -> new ArrayList<>()).add(entry);
+            for (List<TechnicalListing.Entry> block : blocks.values())
+                readBlock(archive, options, block, key, cache, handler, missing);
+            if (!missing.isEmpty()) throw new ArchiveException("Entries not found in " + archive + ": " + missing);
+        } catch (IOException e) {
+            throw e instanceof ArchiveException ae ? ae : new ArchiveException(e);
+        }
+    }
+
+    private void readBlock(Path archive, NativeOptions options, List<TechnicalListing.Entry> block, ArchiveKey key,
+                           EntryCache cache, EntryHandler handler, List<String> missing) throws IOException {
+        Path work = Files.createTempDirectory("arch-tools-block");
+        try {
+            Path files = Files.createDirectory(work.resolve("files"));
+            Path listFile = work.resolve("entries.lst");
+            Files.write(listFile, block.stream().map(entry -> entry.entry().name()).toList(), StandardCharsets.UTF_8);
+            String command = util.extractEntriesCmd(archive, listFile, files).orElseThrow(UnsupportedCommand::new);
+            extract(archive, files, options, command, work.resolve("extract.log"), 1, 1);
+            for (TechnicalListing.Entry entry : block) {
+                ArchiveEntry archiveEntry = entry.entry();
+                Path file = entryTarget(files, archiveEntry.name().replace('\\', '/'));
+                if (!Files.isRegularFile(file)) {
+                    missing.add(archiveEntry.name());
+                } else if (key != null && Files.size(file) <= cache.getMaxEntrySize()) {
+                    byte[] content = Files.readAllBytes(file);
+                    cache.put(key, archiveEntry.name(), content);
+                    handler.accept(archiveEntry, new ByteArrayInputStream(content));
+                } else {
+                    try (InputStream content = Files.newInputStream(file)) {
+                        handler.accept(archiveEntry, content);
+                    }
+                }
+            }
+        } finally {
+            try {
+                Utils.removeNotEmptyFolder(work);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The files are read from the standard output of {@link CmdExtractUtil#extractToStdoutCmd(Path) one process}
+     * and are split by the sizes of {@link #getTechnicalList(Path) technical listing}, so the files are not written to disk
+     *
+     * @throws ArchiveException {@inheritDoc}
+     * @throws TimeOutException on timeout breaking
+     * @implNote Utils without technical listing or extraction to standard output use the default implementation
+     */
+    @Override
+    public Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+        assertFileNotFound(archive);
+        Map<String, ByteBuffer> result = new LinkedHashMap<>();
+        long[] remaining = {maxBytes};
+        boolean streamed = streamContents(archive, options, files -> {
+            long total = files.stream().mapToLong(ArchiveEntry::size).sum();
+            if (total > maxBytes)
+                throw new ArchiveException("Archive content " + total + " bytes is larger than limit " + maxBytes);
+        }, (entry, content) -> {
+            ByteBuffer buffer = Utils.readToBuffer(content, remaining[0]);
+            remaining[0] -= buffer.remaining();
+            result.put(entry.name().replace('\\', '/'), buffer);
+        });
+        if (!streamed) return Extractor.super.extractToMemory(archive, maxBytes);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The files are read from the standard output of {@link CmdExtractUtil#extractToStdoutCmd(Path) one process},
+     * so the files are not written to disk. The data of skipped files is decoded by util and is dropped
+     *
+     * @throws ArchiveException {@inheritDoc}
+     * @throws TimeOutException on timeout breaking
+     * @implNote Utils without technical listing or extraction to standard output use the default implementation
+     */
+    @Override
+    public void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+        assertFileNotFound(archive);
+        boolean streamed = streamContents(archive, options, files -> {
+        }, (entry, content) -> {
+            if (visitor.readContent(entry)) visitor.visit(entry, content);
+        });
+        if (!streamed) Extractor.super.forEachEntry(archive, visitor);
+    }
+
+    /**
+     * Check of files before the content reading
+     */
+    @FunctionalInterface
+    private interface FilesCheck {
+        void check(List<ArchiveEntry> files) throws ArchiveException;
+    }
+
+    /**
+     * Passes the files of archive to the handler from the standard output of util. The deadline is applied,
+     * the inactivity timeout is not: the output reading depends on the handler. The watch is paused while the handler
+     * works between reads, so a slow handler does not exceed the deadline
+     *
+     * @return {@code false} if the util cannot extract to the standard output or some file size is unknown
+     */
+    private boolean streamContents(Path archive, NativeOptions options, FilesCheck check, EntryHandler handler) throws ArchiveException {
+        Optional<String> command = util.extractToStdoutCmd(archive);
+        if (command.isEmpty() || !util.supportsTechnicalList()) return false;
+        List<ArchiveEntry> files = getTechnicalList(archive, options.withLogFile(null)).entries().stream()
+                .map(TechnicalListing.Entry::entry)
+                .filter(entry -> !entry.directory())
+                .toList();
+        if (files.stream().anyMatch(entry -> entry.size() < 0)) return false;
+        check.check(files);
+
+        ProcessBuilder builder = new ProcessBuilder(splitCommand(command.get()));
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, Metrics.engineOf(util.getUtilPath()));
+        timer.command(builder.command());
+        Process process = null;
+        ProcessWatchdog.Watch watch = null;
+        try {
+            long archiveSize = Files.size(archive);
+            timer.bytesRead(archiveSize);
+            process = start(builder, Operation.EXTRACT, archive);
+            ArchiveFuture.register(process);
+            timer.spawned(process);
+            watch = ProcessWatchdog.getDefault().watch(process, "archive: " + archive, null, options.deadline(archiveSize));
+            Process started = process;
+            CompletableFuture<List<String>> errors = CompletableFuture.supplyAsync(
+                    () -> getReader(started.getErrorStream()).lines().toList(),
+                    task -> Thread.ofVirtual().start(task));
+            InputStream output = new BufferedInputStream(watch.monitor(process.getInputStream()));
+            for (ArchiveEntry file : files) {
+                EntryInputStream content = new EntryInputStream(output, file.size(), watch);
+                watch.pause();
+                try {
+                    handler.accept(file, content);
+                } finally {
+                    watch.resume();
+                }
+                if (content.skipRest() != 0) throw new ArchiveException("Unexpected end of output in entry: " + file.name());
+                timer.entries(1);
+                timer.bytesWritten(file.size());
+            }
+            if (output.read() != -1) throw new ArchiveException("Output does not match the listing of archive: " + archive);
+            if (process.waitFor() != 0)
+                throw new ArchiveException("Extraction error. ExitValue=" + process.exitValue() + "\n"
+                        + String.join("\n", errors.join()));
+            timer.success();
+            return true;
+        } catch (InterruptedException e) {
+            throw new ArchiveException(e);
+        } catch (IOException e) {
+            if (watch != null && watch.isExpired()) {
+                timer.timeout();
+                throw new TimeOutException("Extract timeout exception. " + watch.getReason());
+            }
+            throw e instanceof ArchiveException ae ? ae : new ArchiveException(e);
+        } finally {
+            if (process != null && process.isAlive()) ArchiveFuture.destroyTree(process);
+            if (watch != null) watch.close();
+            timer.stop();
+        }
+    }
+
+    /**
+     * Content of one file in the output of util. The watch of util is resumed while the reading waits for the output
+     */
+    private static final class EntryInputStream extends InputStream {
+        private final InputStream output;
+        private final ProcessWatchdog.Watch watch;
+        private long remaining;
+
+        EntryInputStream(InputStream output, long size, ProcessWatchdog.Watch watch) {
+            this.output = output;
+            this.remaining = size;
+            this.watch = watch;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b;
+            watch.resume();
+            try {
+                b = output.read();
+            } finally {
+                watch.pause();
+            }
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return len == 0 ? 0 : -1;
+            int count;
+            watch.resume();
+            try {
+                count = output.read(b, off, (int) Math.min(len, remaining));
+            } finally {
+                watch.pause();
+            }
+            if (count > 0) remaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(output.available(), remaining);
+        }
+
+        /**
+         * Skips unread content of file
+         *
+         * @return count of bytes missed in the output
+         */
+        long skipRest() throws IOException {
+            while (remaining > 0) {
+                long skipped = output.skip(remaining);
+                if (skipped <= 0) {
+                    if (output.read() < 0) break;
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            return remaining;
+        }
+
+        @Override
+        public void close() {
+            // the output of util is closed by the caller
+        }
+    }
+
     @Override
     public void test(Path archive) throws ArchiveException {
         throw new UnsupportedCommand();
@@ -203,52 +1079,134 @@ public class ExtractorNative implements Extractor {
         return fileList;
     }
 
-    private BufferedReader getReader(InputStream is) {
-        return new BufferedReader(new InputStreamReader(is));
+    /**
+     * Starts the process by {@link ProcessScheduler#getDefault() default scheduler}
+     */
+    private static Process start(ProcessBuilder builder, Operation operation, Path archive, Path... paths) throws ArchiveException {
+        ProcessScheduler.Demand estimate = ProcessScheduler.estimate(operation, Type.getType(archive), builder.command());
+        Path[] devices = Arrays.copyOf(paths, paths.length + 1);
+        devices[paths.length] = archive;
+        return ProcessScheduler.getDefault().start(builder,
+                ProcessScheduler.Demand.of(estimate.cpus(), estimate.memory(), devices));
     }
 
-    private void updateListeners(String nextElement) {
-        if (progressListener != null) progressListener.accept(++progressCount);
-        if (messageListener != null) messageListener.accept(nextElement);
+    /**
+     * Archive name without last extension
+     */
+    private static String batchFolderName(Path archive) {
+        String name = archive.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
     }
 
-    private void assertFileNotFound(Path file) throws ArchiveException {
-        if (!Files.exists(file)) throw new ArchiveException("File/Directory not found: " + file);
+    private static BufferedReader getReader(InputStream is) {
+        return new BufferedReader(new InputStreamReader(is));
     }
 
-    private void createLog(Path archive, Path destination) throws IOException {
-        this.logFile = Files.createFile(destination.resolve(archive.getFileName().toString() + ".log"));
+    private static void assertFileNotFound(Path file) throws ArchiveException {
+        if (!Files.exists(file)) throw new ArchiveException("File/Directory not found: " + file);
     }
 
-    private void saveToLog(String message) throws IOException {
-        Files.writeString(logFile, message + "\n", StandardOpenOption.APPEND, StandardOpenOption.CREATE);
-    }
+    /**
+     * State of one call
+     */
+    private static final class Call {
+        private final Path archive;
+        private final NativeOptions options;
+        private final Path logFile;
+        private long progressCount;
+        private ProcessWatchdog.Watch watch;
 
-    private void saveToLog(InputStream inputStream) throws IOException {
-        BufferedReader reader = getReader(inputStream);
-        String line;
-        while ((line = reader.readLine()) !=null) {
-            updateListeners(line);
-            saveToLog(line);
+        Call(Path archive, NativeOptions options, Path logFile) {
+            this.archive = archive;
+            this.options = options;
+            this.logFile = logFile;
+        }
+
+        void updateListeners(String nextElement) {
+            if (options.progressListener() != null) options.progressListener().accept(++progressCount);
+            if (options.messageListener() != null) options.messageListener().accept(nextElement);
+        }
+
+        PercentParser percentParser(long total) {
+            BytesProgressListener listener = options.bytesProgressListener();
+            if (listener == null) return null;
+            return new PercentParser(percent -> listener.progress(total * percent / 100, total));
+        }
+
+        void debugMode(ProcessBuilder builder) {
+            if (options.debugMode()) {
+                builder.inheritIO();
+                System.out.println(builder.command());
+            }
         }
-    }
 
-    private void deleteLog() throws IOException {
-        Files.delete(logFile);
-        logFile = null;
+        /**
+         * Starts watching of the process by the {@link ProcessWatchdog#getDefault() default watchdog}.
+         * The inactivity timeout is not applied in debug mode: the output is not monitored
+         */
+        void watch(Process process, long bytes) {
+            watch = ProcessWatchdog.getDefault().watch(process, "archive: " + archive,
+                    options.debugMode() ? null : options.inactivity(), options.deadline(bytes));
+        }
+
+        InputStream monitor(InputStream inputStream) {
+            return watch.monitor(inputStream);
+        }
+
+        void wait(Process process) throws IOException {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                ArchiveFuture.destroyTree(process);
+                throw new ArchiveException(e);
+            } finally {
+                close();
+            }
+            if (isExpired()) throw timeout();
+        }
+
+        /**
+         * Checks killing of the process by watchdog. The streams of killed process are closed, so reading errors
+         * are caused by the timeout
+         */
+        boolean isExpired() {
+            return watch != null && watch.isExpired();
+        }
+
+        TimeOutException timeout() {
+            String message = "Extract timeout exception. " + watch.getReason();
+            if (logFile == null) return new TimeOutException(message);
+            try {
+                saveToLog(message);
+            } catch (IOException ignored) {
+            }
+            return new TimeOutException(message + "\nSee log file " + logFile);
+        }
+
+        void close() {
+            if (watch != null) watch.close();
+        }
+
+        void saveToLog(String message) throws IOException {
+            Files.writeString(logFile, message + "\n", StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+        }
+
+        void saveToLog(InputStream inputStream) throws IOException {
+            BufferedReader reader = getReader(inputStream);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                updateListeners(line);
+                saveToLog(line);
+            }
+        }
     }
 
     @Override
     public String toString() {
         return "ExtractorImpl{" +
                 "util=" + util +
-                ", breakTimeOutSec=" + breakTimeOutSec +
-                ", archive=" + archive +
-                ", logFile=" + logFile +
-                ", appendLog=" + appendLog +
-                ", progress=" + progressListener +
-                ", progressCount=" + progressCount +
-                ", debugMode=" + debugMode +
+                ", options=" + options +
                 '}';
     }
 }
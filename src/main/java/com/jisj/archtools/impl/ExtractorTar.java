@@ -0,0 +1,318 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.BytesProgressListener;
+import com.jisj.archtools.EntryVisitor;
+import com.jisj.archtools.Extractor;
+import com.jisj.archtools.Utils;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Pure Java streaming {@link Extractor} for TAR, TAR.GZ and TAR.ZST archives.
+ * The compression is detected by the magic bytes of the archive. Entries are extracted without temporary files
+ */
+public class ExtractorTar implements Extractor {
+    static final String ENGINE = "tar";
+    private Consumer<Long> progressListener;
+    private Consumer<String> messageListener;
+    private BytesProgressListener bytesProgressListener;
+    private long progressCount = 0;
+
+    @Override
+    public void setProgressListener(Consumer<Long> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    public void setMessageListener(Consumer<String> messageListener) {
+        this.messageListener = messageListener;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The total is the archive size. The done bytes are the read bytes of the archive file
+     */
+    @Override
+    public void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        this.bytesProgressListener = bytesProgressListener;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArchiveException {@inheritDoc}, if an entry path is outside of the destination directory
+     */
+    @Override
+    public void extractTo(Path archive, Path destination) throws ArchiveException {
+        assertFileNotFound(archive);
+        assertFileNotFound(destination);
+        if (!Files.isDirectory(destination))
+            throw new ArchiveException("Destination path is not directory: " + destination);
+
+        progressCount = 0;
+        Path root = destination.toAbsolutePath().normalize();
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, ENGINE);
+        try (TarInputStream tar = open(archive, bytesProgressListener)) {
+            timer.bytesRead(Files.size(archive));
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                ArchiveFuture.checkCancelled();
+                Path target = root.resolve(entry.path()).normalize();
+                if (!target.startsWith(root))
+                    throw new ArchiveException("Entry is outside of the destination directory: " + entry.name());
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else if (entry.isFile()) {
+                    Files.createDirectories(target.getParent());
+                    timer.bytesWritten(Files.copy(tar, target, StandardCopyOption.REPLACE_EXISTING));
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(entry.lastModified()));
+                } else continue;
+                timer.entries(1);
+                updateListeners(entry.name());
+            }
+            reportCompleted(archive);
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote The data of skipped files is decompressed but not copied
+     */
+    @Override
+    public void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+        assertFileNotFound(archive);
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, ENGINE);
+        try (TarInputStream tar = open(archive)) {
+            timer.bytesRead(Files.size(archive));
+            InputStream content = new FilterInputStream(tar) {
+                @Override
+                public void close() throws IOException {
+                    tar.closeEntry();
+                }
+            };
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                ArchiveFuture.checkCancelled();
+                if (!entry.isFile()) continue;
+                ArchiveEntry archiveEntry = new ArchiveEntry(entry.path(), entry.size(),
+                        FileTime.fromMillis(entry.lastModified()), false);
+                if (!visitor.readContent(archiveEntry)) continue;
+                visitor.visit(archiveEntry, content);
+                timer.entries(1);
+                timer.bytesWritten(entry.size());
+            }
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Reads the archive in one pass without temporary files
+     */
+    @Override
+    public Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+        assertFileNotFound(archive);
+        Map<String, ByteBuffer> result = new LinkedHashMap<>();
+        long remaining = maxBytes;
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, ENGINE);
+        try (TarInputStream tar = open(archive)) {
+            timer.bytesRead(Files.size(archive));
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                ArchiveFuture.checkCancelled();
+                if (!entry.isFile()) continue;
+                if (entry.size() > remaining)
+                    throw new ArchiveException("Archive content is larger than limit " + maxBytes + " at entry: " + entry.name());
+                ByteBuffer buffer = Utils.readToBuffer(tar, remaining);
+                remaining -= buffer.remaining();
+                result.put(entry.path(), buffer);
+                timer.entries(1);
+                timer.bytesWritten(buffer.remaining());
+            }
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return archive file list with directories. Directory names are returned without trailing {@code /}
+     */
+    @Override
+    public List<String> getFileList(Path archive) throws ArchiveException {
+        assertFileNotFound(archive);
+        progressCount = 0;
+        List<String> result = new ArrayList<>();
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, ENGINE);
+        try (TarInputStream tar = open(archive)) {
+            timer.bytesRead(Files.size(archive));
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                ArchiveFuture.checkCancelled();
+                updateListeners(entry.name());
+                result.add(entry.path());
+            }
+            timer.entries(result.size());
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Reads all entries data. Checksums of headers and of the compression layer are verified
+     */
+    @Override
+    public void test(Path archive) throws ArchiveException {
+        assertFileNotFound(archive);
+        progressCount = 0;
+        OperationTimer timer = Metrics.start(Operation.TEST, archive, ENGINE);
+        try (TarInputStream tar = open(archive, bytesProgressListener)) {
+            timer.bytesRead(Files.size(archive));
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                ArchiveFuture.checkCancelled();
+                if (tar.transferTo(OutputStream.nullOutputStream()) != entry.size())
+                    throw new ArchiveException("Unexpected end of entry data: " + entry.name());
+                timer.entries(1);
+                updateListeners(entry.name());
+            }
+            reportCompleted(archive);
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Headers are read by the stream consumption; the entry data is skipped. Listeners are not notified
+     */
+    @Override
+    public Stream<ArchiveEntry> streamEntries(Path archive) throws ArchiveException {
+        assertFileNotFound(archive);
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, ENGINE);
+        TarInputStream tar;
+        try {
+            timer.bytesRead(Files.size(archive));
+            tar = open(archive);
+        } catch (IOException e) {
+            timer.stop();
+            throw new ArchiveException(e);
+        }
+        return EntryStreams.of(new EntryStreams.EntrySource() {
+            @Override
+            public ArchiveEntry next() throws IOException {
+                ArchiveFuture.checkCancelled();
+                TarEntry entry = tar.getNextEntry();
+                if (entry == null) return null;
+                return new ArchiveEntry(entry.path(), entry.isDirectory() ? 0 : entry.size(),
+                        FileTime.fromMillis(entry.lastModified()), entry.isDirectory());
+            }
+
+            @Override
+            public void close() throws IOException {
+                tar.close();
+            }
+        }, timer);
+    }
+
+    static TarInputStream open(Path archive) throws IOException {
+        return open(archive, null);
+    }
+
+    /**
+     * Opens archive with counting of the read archive bytes
+     *
+     * @param archive  archive path
+     * @param listener gets read bytes of archive file | null
+     * @return tar stream
+     * @throws IOException on opening errors; unknown compression
+     */
+    static TarInputStream open(Path archive, BytesProgressListener listener) throws IOException {
+        InputStream in = Files.newInputStream(archive);
+        if (listener != null) in = new ProgressInputStream(in, listener, 0, Files.size(archive));
+        try {
+            return new TarInputStream(TarCompression.decompress(in));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private void reportCompleted(Path archive) throws IOException {
+        if (bytesProgressListener != null) bytesProgressListener.progress(Files.size(archive), Files.size(archive));
+    }
+
+    private void updateListeners(String nextElement) {
+        if (progressListener != null) progressListener.accept(++progressCount);
+        if (messageListener != null) messageListener.accept(nextElement);
+    }
+
+    private void assertFileNotFound(Path file) throws ArchiveException {
+        if (!Files.exists(file)) throw new ArchiveException("File/Directory not found: " + file);
+    }
+
+    @Override
+    public String toString() {
+        return "ExtractorTar{" +
+                "progress=" + progressListener +
+                ", progressCount=" + progressCount +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.BytesProgressListener;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Immutable options and listeners of one call of {@link ExtractorNative} or {@link PackerNative}.
+ * The options may be passed per call, so one runner instance can serve concurrent callers
+ * <pre>{@code
+ *     extractor.extractTo(archive, destination, extractor.getOptions()
+ *             .withBreakTimeOutSec(600)
+ *             .withProgressListener(progress::set));
+ * }</pre>
+ *
+ * @param breakTimeOutSec       inactivity timeout in sec: the process is killed if it writes no output for this time
+ * @param minBytesPerSecond     minimal expected speed for the size-scaled deadline, see {@link ProcessWatchdog#deadline(long, long)}.
+ *                              0 switches off the deadline
+ * @param logFile               extraction log file | null for {@code archive_name.rar.log} in destination folder
+ * @param appendLog             {@code true} keeps the log after successful extraction
+ * @param manifest              {@code true} writes {@link com.jisj.archtools.manifest.ContentManifest manifest} sidecar
+ *                              of the extracted or packed files
+ * @param ordered               {@code true} packs files in {@link PackOrder order of types}, incompressible files are stored
+ * @param debugMode             {@code true} sets output of util to console
+ * @param progressListener      gets count of output lines | null
+ * @param messageListener       gets output lines | null
+ * @param bytesProgressListener gets progress in bytes | null
+ */
+public record NativeOptions(int breakTimeOutSec,
+                            long minBytesPerSecond,
+                            Path logFile,
+                            boolean appendLog,
+                            boolean manifest,
+                            boolean ordered,
+                            boolean debugMode,
+                            Consumer<Long> progressListener,
+                            Consumer<String> messageListener,
+                            BytesProgressListener bytesProgressListener) {
+
+    /**
+     * Default minimal speed for the deadline: 256KB/s
+     */
+    public static final long DEFAULT_MIN_BYTES_PER_SECOND = 256 * 1024;
+
+    /**
+     * Creates options with default deadline, without log file and listeners
+     *
+     * @param breakTimeOutSec inactivity timeout in sec
+     * @return options
+     */
+    public static NativeOptions of(int breakTimeOutSec) {
+        return new NativeOptions(breakTimeOutSec, DEFAULT_MIN_BYTES_PER_SECOND, null, false, false, false, false, null, null, null);
+    }
+
+    /**
+     * Returns copy of options with new {@code breakTimeOutSec}
+     *
+     * @param breakTimeOutSec inactivity timeout in sec
+     * @return new options
+     */
+    public NativeOptions withBreakTimeOutSec(int breakTimeOutSec) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code minBytesPerSecond}
+     *
+     * @param minBytesPerSecond minimal expected speed, 0 switches off the deadline
+     * @return new options
+     */
+    public NativeOptions withMinBytesPerSecond(long minBytesPerSecond) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code logFile}
+     *
+     * @param logFile log file | null for the default log file
+     * @return new options
+     */
+    public NativeOptions withLogFile(Path logFile) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code appendLog}
+     *
+     * @param appendLog {@code true} keeps the log after successful extraction
+     * @return new options
+     */
+    public NativeOptions withAppendLog(boolean appendLog) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code manifest}
+     *
+     * @param manifest {@code true} writes manifest sidecar
+     * @return new options
+     */
+    public NativeOptions withManifest(boolean manifest) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code ordered}
+     *
+     * @param ordered {@code true} packs files in order of types
+     * @return new options
+     */
+    public NativeOptions withOrdered(boolean ordered) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code debugMode}
+     *
+     * @param debugMode {@code true} sets output of util to console
+     * @return new options
+     */
+    public NativeOptions withDebugMode(boolean debugMode) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code progressListener}
+     *
+     * @param progressListener listener of output lines count | null
+     * @return new options
+     */
+    public NativeOptions withProgressListener(Consumer<Long> progressListener) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code messageListener}
+     *
+     * @param messageListener listener of output lines | null
+     * @return new options
+     */
+    public NativeOptions withMessageListener(Consumer<String> messageListener) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    /**
+     * Returns copy of options with new {@code bytesProgressListener}
+     *
+     * @param bytesProgressListener listener of progress in bytes | null
+     * @return new options
+     */
+    public NativeOptions withBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        return new NativeOptions(breakTimeOutSec, minBytesPerSecond, logFile, appendLog, manifest, ordered, debugMode, progressListener, messageListener, bytesProgressListener);
+    }
+
+    Duration inactivity() {
+        return Duration.ofSeconds(breakTimeOutSec);
+    }
+
+    Duration deadline(long bytes) {
+        return ProcessWatchdog.deadline(bytes, minBytesPerSecond);
+    }
+}
@@ -0,0 +1,91 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Order of files for packing. Files are sorted by extension, then name, then size, so the similar files are adjacent
+ * in the solid blocks. The {@link ContentClassifier incompressible files} are separated to be stored without compression.
+ * The empty directories follow the files to compress, so the archive keeps them like the packing of whole folder
+ *
+ * @param compressed     paths relative to the folder of the files to compress and of the empty directories
+ * @param compressedSize total size of the files to compress
+ * @param stored         paths relative to the folder of the incompressible files
+ * @param storedSize     total size of the incompressible files
+ */
+public record PackOrder(List<String> compressed, long compressedSize, List<String> stored, long storedSize) {
+    private static final Comparator<FileInfo> ORDER = Comparator.comparing(FileInfo::extension)
+            .thenComparing(FileInfo::name)
+            .thenComparingLong(FileInfo::size)
+            .thenComparing(FileInfo::path);
+
+    private record FileInfo(String path, String name, String extension, long size, boolean incompressible) {
+    }
+
+    /**
+     * Orders the regular files and the empty directories of folder with {@link ContentClassifier#getDefault() default classifier}
+     *
+     * @param folder folder with files
+     * @return order of files
+     * @throws IOException on folder reading errors
+     */
+    public static PackOrder of(Path folder) throws IOException {
+        return of(folder, ContentClassifier.getDefault());
+    }
+
+    /**
+     * Orders the regular files and the empty directories of folder
+     *
+     * @param folder     folder with files
+     * @param classifier classifier of incompressible files
+     * @return order of files
+     * @throws IOException on reading errors
+     */
+    public static PackOrder of(Path folder, ContentClassifier classifier) throws IOException {
+        List<FileInfo> files = new ArrayList<>();
+        List<String> emptyDirectories = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isDirectory() && !path.equals(folder) && isEmpty(path))
+                    emptyDirectories.add(folder.relativize(path).toString());
+                if (!attributes.isRegularFile()) continue;
+                String name = path.getFileName().toString();
+                String extension = name.lastIndexOf('.') < 0 ? "" : Utils.getFileExtension(name, false);
+                files.add(new FileInfo(folder.relativize(path).toString(), name, extension, attributes.size(),
+                        classifier.isIncompressible(path)));
+            }
+        }
+        files.sort(ORDER);
+        List<String> compressed = new ArrayList<>();
+        List<String> stored = new ArrayList<>();
+        long compressedSize = 0;
+        long storedSize = 0;
+        for (FileInfo file : files) {
+            if (file.incompressible()) {
+                stored.add(file.path());
+                storedSize += file.size();
+            } else {
+                compressed.add(file.path());
+                compressedSize += file.size();
+            }
+        }
+        emptyDirectories.sort(null);
+        compressed.addAll(emptyDirectories);
+        return new PackOrder(List.copyOf(compressed), compressedSize, List.copyOf(stored), storedSize);
+    }
+
+    private static boolean isEmpty(Path directory) throws IOException {
+        try (Stream<Path> children = Files.list(directory)) {
+            return children.findAny().isEmpty();
+        }
+    }
+}
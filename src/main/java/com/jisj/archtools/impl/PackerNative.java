@@ -1,29 +1,41 @@
 package com.jisj.archtools.impl;
 
 import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.BytesProgressListener;
 import com.jisj.archtools.Packer;
 import com.jisj.archtools.TimeOutException;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.UnsupportedCommand;
 import com.jisj.archtools.cmd.CmdPackUtil;
+import com.jisj.archtools.cmd.PercentParser;
+import com.jisj.archtools.manifest.ContentManifest;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.jisj.archtools.cmd.CmdUtil.splitCommand;
 
 /**
  * Class with commands for packing files to archives using native archive util
+ * <p>The instance is thread-safe: the setters replace the immutable {@link NativeOptions} and each call
+ * uses the options taken at its start. Options and listeners may be passed per call, see {@link #packOfFolder(Path, Path, NativeOptions)}
  */
 public class PackerNative implements Packer {
 
     private final CmdPackUtil util;
-    private Consumer<Long> progressListener;
-    private Consumer<String> messageListener;
-    private long progressCount = 0;
-    private int breakTimeOutSec = 60;
-    private boolean debugMode = false;
+    private volatile NativeOptions options = NativeOptions.of(60);
 
     /**
      * Creates new {@link Packer} object
@@ -34,29 +46,70 @@ public class PackerNative implements Packer {
         this.util = util;
     }
 
+    /**
+     * Returns options used by calls without options
+     * @return current options
+     */
+    public NativeOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Sets options used by calls without options. The log file options are not used by packer
+     * @param options new options
+     */
+    public void setOptions(NativeOptions options) {
+        this.options = options;
+    }
+
     @Override
-    public void setProgressListener(Consumer<Long> progressListener) {
-        this.progressListener = progressListener;
+    public synchronized void setProgressListener(Consumer<Long> progressListener) {
+        options = options.withProgressListener(progressListener);
     }
 
     @Override
-    public void setMessageListener(Consumer<String> messageListener) {
-        this.messageListener = messageListener;
+    public synchronized void setMessageListener(Consumer<String> messageListener) {
+        options = options.withMessageListener(messageListener);
     }
 
-    private void updateListeners(String nextLine) {
-        if (progressListener != null) progressListener.accept(++progressCount);
-        if (messageListener != null) messageListener.accept(nextLine);
+    /**
+     * {@inheritDoc}
+     * <p>The total is the size of files in the folder. The done bytes are calculated by the percentage output of util
+     */
+    @Override
+    public synchronized void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        options = options.withBytesProgressListener(bytesProgressListener);
     }
 
     /**
-     * Sets break extracting timeout in sec
+     * Sets inactivity timeout in sec. The util process is killed if it writes no output for this time
      *
      * @param breakTimeOutSec new value in sec. Default: 60sec
      */
     @SuppressWarnings("unused")
-    public void setBreakTimeOutSec(int breakTimeOutSec) {
-        this.breakTimeOutSec = breakTimeOutSec;
+    public synchronized void setBreakTimeOutSec(int breakTimeOutSec) {
+        options = options.withBreakTimeOutSec(breakTimeOutSec);
+    }
+
+    /**
+     * Sets minimal expected speed of util. The process is killed after the deadline scaled by the files size,
+     * see {@link ProcessWatchdog#deadline(long, long)}
+     *
+     * @param minBytesPerSecond speed in bytes per second, 0 switches off the deadline. Default: {@value NativeOptions#DEFAULT_MIN_BYTES_PER_SECOND}
+     */
+    public synchronized void setMinBytesPerSecond(long minBytesPerSecond) {
+        options = options.withMinBytesPerSecond(minBytesPerSecond);
+    }
+
+    /**
+     * Sets packing in {@link PackOrder order of types}: similar files are adjacent in the solid block,
+     * the {@link ContentClassifier incompressible files} are stored without compression by separate util call.
+     * Utils without {@link CmdPackUtil#packOfListCmd(Path, Path, boolean) list files} pack the folder as is
+     *
+     * @param ordered {@code true} orders the files. Default {@code false}
+     */
+    public synchronized void setOrdered(boolean ordered) {
+        options = options.withOrdered(ordered);
     }
 
     /**
@@ -66,8 +119,8 @@ public class PackerNative implements Packer {
      * @param debugMode {@code true} sets output to console. Default {@code false}
      */
     @SuppressWarnings("unused")
-    public void setDebugMode(boolean debugMode) {
-        this.debugMode = debugMode;
+    public synchronized void setDebugMode(boolean debugMode) {
+        options = options.withDebugMode(debugMode);
     }
 
     /**
@@ -80,6 +133,23 @@ public class PackerNative implements Packer {
      */
     @Override
     public void packOfFolder(Path archive, Path filesFolder) throws ArchiveException {
+        packOfFolder(archive, filesFolder, options);
+    }
+
+    /**
+     * Packs files from folder to archive with the options of this call
+     *
+     * @param archive     archive path
+     * @param filesFolder folder with files
+     * @param options     options and listeners of the call
+     * @throws ArchiveException         when folder not found, I/O exceptions, util errors
+     * @throws IllegalArgumentException if the filesFolder is not directory; target archive overlaps with the source folder
+     * @throws TimeOutException         on timeout breaking
+     * @implNote With {@link NativeOptions#manifest()} the manifest is written to {@link ContentManifest#sidecarOf(Path) archive sidecar}.
+     * The util reads the files itself, so the manifest is calculated by the second read of the files in parallel with packing.
+     * The second read competes with the util for the disk and is cheap only when the files are in the page cache
+     */
+    public void packOfFolder(Path archive, Path filesFolder, NativeOptions options) throws ArchiveException {
         if (!Files.exists(filesFolder))
             throw new ArchiveException("Folder with files not found: " + filesFolder.toAbsolutePath());
         if (!Files.isDirectory(filesFolder))
@@ -92,40 +162,152 @@ public class PackerNative implements Packer {
             throw new ArchiveException("Cannot create target folder" + archive.getParent(), e);
         }
 
+        Consumer<String> listeners = listeners(options);
+        OperationTimer timer = Metrics.start(Operation.PACK, archive, Metrics.engineOf(util.getUtilPath()));
+        List<Path> listFiles = new ArrayList<>();
         try {
-            ProcessBuilder builder = new ProcessBuilder(util.packOfFolderCmd(archive, filesFolder));
-            debugMode(builder);
-            Process process = builder.start();
-            readStream(process.getInputStream(), this::updateListeners);
-            List<String> errors = new ArrayList<>();
-            readStream(process.getErrorStream(), line -> {
-                updateListeners(line);
-                errors.add(line);
-            });
-            if (!process.waitFor(breakTimeOutSec, TimeUnit.SECONDS)) {
-                process.destroy();
-                if (process.isAlive()) {
-                    process.destroyForcibly();
+            BytesProgressListener listener = options.bytesProgressListener();
+            PackOrder order = options.ordered() && util.packOfListCmd(archive, filesFolder, false).isPresent()
+                    ? PackOrder.of(filesFolder) : null;
+            if (order != null && order.compressed().isEmpty() && order.stored().isEmpty()) order = null;
+            FolderStats stats = order != null
+                    ? new FolderStats(order.compressedSize() + order.storedSize(), order.compressed().size() + order.stored().size())
+                    : FolderStats.of(filesFolder);
+            long folderSize = stats.size();
+            // the second read of the files: the util bytes do not pass through the JVM
+            CompletableFuture<ContentManifest> manifest = options.manifest() ? CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ContentManifest.ofFolder(filesFolder);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                throw new TimeOutException("Archiver timeout exception after " + breakTimeOutSec + "sec in archive: " + archive + "\n" + this);
-            }
-            if (process.exitValue() != 0) {
-                throw new ArchiveException("Archiving errors: " + String.join("\n", errors));
+            }, task -> Thread.ofVirtual().start(task)) : null;
+            if (order == null) {
+                run(archive, filesFolder, new ProcessBuilder(splitCommand(util.packOfFolderCmd(archive, filesFolder))),
+                        options, listeners, timer, 0, folderSize, folderSize);
+            } else {
+                // the stored files are packed first, the other files are compressed to the next solid block
+                if (!order.stored().isEmpty())
+                    run(archive, filesFolder, listBuilder(archive, filesFolder, order.stored(), true, listFiles),
+                            options, listeners, timer, 0, order.storedSize(), folderSize);
+                if (!order.compressed().isEmpty())
+                    run(archive, filesFolder, listBuilder(archive, filesFolder, order.compressed(), false, listFiles),
+                            options, listeners, timer, order.storedSize(), order.compressedSize(), folderSize);
             }
+            if (listener != null) listener.progress(folderSize, folderSize);
+            if (manifest != null) writeManifest(archive, manifest);
+            timer.bytesRead(stats.size());
+            timer.bytesWritten(Files.size(archive));
+            timer.entries(stats.entries());
+            timer.success();
+        } catch (TimeOutException e) {
+            timer.timeout();
+            throw e;
         } catch (InterruptedException | IOException e) {
             throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+            for (Path listFile : listFiles) {
+                try {
+                    Files.deleteIfExists(listFile);
+                } catch (IOException ignored) {
+                }
+            }
         }
     }
 
-    private void debugMode(ProcessBuilder builder) {
-        if (debugMode) {
+    /**
+     * Runs one util process. The part of files packed by the process {@code partSize} of {@code total} scales the bytes progress
+     */
+    private void run(Path archive, Path filesFolder, ProcessBuilder builder, NativeOptions options, Consumer<String> listeners,
+                     OperationTimer timer, long doneBefore, long partSize, long total) throws IOException, InterruptedException {
+        if (options.debugMode()) {
             builder.inheritIO();
             System.out.println(this);
             System.out.println(builder.command());
         }
+        timer.command(builder.command());
+        ProcessScheduler.Demand estimate = ProcessScheduler.estimate(Operation.PACK, Type.getType(archive), builder.command());
+        List<String> errors = new ArrayList<>();
+        Process process = ProcessScheduler.getDefault().start(builder,
+                ProcessScheduler.Demand.of(estimate.cpus(), estimate.memory(), archive, filesFolder));
+        ArchiveFuture.register(process);
+        timer.spawned(process);
+        BytesProgressListener listener = options.bytesProgressListener();
+        try (ProcessWatchdog.Watch watch = ProcessWatchdog.getDefault().watch(process, "archive: " + archive,
+                options.debugMode() ? null : options.inactivity(), options.deadline(partSize))) {
+            try {
+                ProcessOutput.read(watch.monitor(process.getInputStream()),
+                        listener == null ? null : new PercentParser(percent -> listener.progress(doneBefore + partSize * percent / 100, total)),
+                        listeners::accept);
+                readStream(watch.monitor(process.getErrorStream()), line -> {
+                    listeners.accept(line);
+                    errors.add(line);
+                });
+            } catch (IOException e) {
+                // the streams of killed process are closed
+                if (!watch.isExpired()) throw e;
+            }
+            process.waitFor();
+            if (watch.isExpired())
+                throw new TimeOutException("Archiver timeout exception. " + watch.getReason() + "\n" + this);
+        }
+        if (process.exitValue() != 0) {
+            throw new ArchiveException("Archiving errors: " + String.join("\n", errors));
+        }
     }
 
-    private void readStream(InputStream inputStream, Consumer<String> consumer) throws IOException {
+    /**
+     * Creates process of packing files by list file. The process is run in the folder of files
+     */
+    private ProcessBuilder listBuilder(Path archive, Path filesFolder, List<String> paths, boolean store,
+                                       List<Path> listFiles) throws IOException {
+        Path listFile = Files.createTempFile("arch-tools-pack", ".lst");
+        listFiles.add(listFile);
+        Files.write(listFile, paths, StandardCharsets.UTF_8);
+        return new ProcessBuilder(splitCommand(util.packOfListCmd(archive, listFile, store).orElseThrow(UnsupportedCommand::new)))
+                .directory(filesFolder.toFile());
+    }
+
+    /**
+     * Creates line consumer of one call with own progress counter
+     */
+    private static Consumer<String> listeners(NativeOptions options) {
+        Consumer<Long> progressListener = options.progressListener();
+        Consumer<String> messageListener = options.messageListener();
+        long[] progressCount = {0};
+        return line -> {
+            if (progressListener != null) progressListener.accept(++progressCount[0]);
+            if (messageListener != null) messageListener.accept(line);
+        };
+    }
+
+    private static void writeManifest(Path archive, CompletableFuture<ContentManifest> manifest) throws ArchiveException {
+        try {
+            manifest.join().write(ContentManifest.sidecarOf(archive));
+        } catch (CompletionException | IOException e) {
+            throw new ArchiveException("Cannot write manifest of " + archive,
+                    e instanceof CompletionException && e.getCause() instanceof UncheckedIOException cause ? cause.getCause() : e);
+        }
+    }
+
+    /**
+     * Packed bytes and entries of the source folder
+     */
+    private record FolderStats(long size, long entries) {
+        static FolderStats of(Path folder) throws IOException {
+            try (Stream<Path> files = Files.walk(folder)) {
+                long[] stats = new long[2];
+                files.filter(Files::isRegularFile).forEach(file -> {
+                    stats[0] += file.toFile().length();
+                    stats[1]++;
+                });
+                return new FolderStats(stats[0], stats[1]);
+            }
+        }
+    }
+
+    private static void readStream(InputStream inputStream, Consumer<String> consumer) throws IOException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
         String line;
         while ((line = reader.readLine()) != null) {
@@ -134,5 +316,11 @@ public class PackerNative implements Packer {
 
     }
 
-
+    @Override
+    public String toString() {
+        return "PackerNative{" +
+                "util=" + util +
+                ", options=" + options +
+                '}';
+    }
 }
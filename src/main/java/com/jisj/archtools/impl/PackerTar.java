@@ -0,0 +1,178 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.BytesProgressListener;
+import com.jisj.archtools.Packer;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static java.lang.Integer.MAX_VALUE;
+
+/**
+ * Pure Java streaming {@link Packer} for TAR, TAR.GZ and TAR.ZST archives.
+ * The compression is selected by the archive file extension, see {@link Type#getType(java.nio.file.Path)}
+ * @implNote TAR.GZ archives are compressed in parallel blocks by {@link #setThreads(int) threads}.
+ * Each block is a separate gzip member
+ */
+public class PackerTar implements Packer {
+    private Consumer<Long> progressListener;
+    private Consumer<String> messageListener;
+    private BytesProgressListener bytesProgressListener;
+    private long progressCount = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int blockSize = 1024 * 1024;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    @Override
+    public void setProgressListener(Consumer<Long> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    public void setMessageListener(Consumer<String> messageListener) {
+        this.messageListener = messageListener;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The total is the size of files in the folder. The done bytes are the read bytes of the files
+     */
+    @Override
+    public void setBytesProgressListener(BytesProgressListener bytesProgressListener) {
+        this.bytesProgressListener = bytesProgressListener;
+    }
+
+    /**
+     * Sets count of gzip compression threads
+     *
+     * @param threads count of threads. Default: count of available processors
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Threads count must be positive: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Sets size of block compressed by one thread
+     *
+     * @param blockSize size in bytes. Default: 1MB
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 32 * 1024) throw new IllegalArgumentException("Block size is less than 32KB: " + blockSize);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Sets gzip compression level
+     *
+     * @param compressionLevel level 0-9. Default: {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArchiveException         {@inheritDoc}
+     * @throws IllegalArgumentException if the filesFolder is not directory; target archive overlaps with the source folder;
+     *                                  archive extension is not TAR
+     * @implNote This implementation creates all directories in path of archive file
+     */
+    @Override
+    public void packOfFolder(Path archive, Path filesFolder) throws ArchiveException {
+        TarCompression compression = TarCompression.of(Type.getType(archive));
+        if (!Files.exists(filesFolder))
+            throw new ArchiveException("Folder with files not found: " + filesFolder.toAbsolutePath());
+        if (!Files.isDirectory(filesFolder))
+            throw new IllegalArgumentException("Source files folder is not a directory: " + filesFolder.toAbsolutePath());
+        if (archive.toAbsolutePath().getParent().startsWith(filesFolder.toAbsolutePath()))
+            throw new IllegalArgumentException("Target archive overlaps with the source folder: <" + archive + "> and <" + filesFolder + ">");
+        try {
+            Files.createDirectories(archive.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new ArchiveException("Cannot create target folder" + archive.getParent(), e);
+        }
+
+        progressCount = 0;
+        List<Path> files;
+        long total = 0;
+        try (Stream<Path> walk = Files.walk(filesFolder, MAX_VALUE)) {
+            files = walk.filter(path -> !path.equals(filesFolder)).sorted().toList();
+            if (bytesProgressListener != null)
+                for (Path file : files) total += Files.isRegularFile(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        }
+
+        OperationTimer timer = Metrics.start(Operation.PACK, archive, ExtractorTar.ENGINE);
+        long done = 0;
+        try {
+            try (TarOutputStream tar = new TarOutputStream(compression.compress(
+                    new BufferedOutputStream(Files.newOutputStream(archive), 64 * 1024), threads, blockSize, compressionLevel))) {
+                for (Path file : files) {
+                    ArchiveFuture.checkCancelled();
+                    String name = toEntryName(filesFolder.relativize(file));
+                    long lastModified = Files.getLastModifiedTime(file).toMillis();
+                    if (Files.isDirectory(file)) {
+                        tar.putEntry(TarEntry.ofDirectory(name, lastModified));
+                    } else {
+                        tar.putEntry(TarEntry.ofFile(name, Files.size(file), lastModified));
+                        try (InputStream in = new ProgressInputStream(Files.newInputStream(file), bytesProgressListener, done, total)) {
+                            long copied = in.transferTo(tar);
+                            timer.bytesRead(copied);
+                            done += copied;
+                        }
+                    }
+                    tar.closeEntry();
+                    timer.entries(1);
+                    updateListeners(name);
+                }
+                tar.finish();
+                if (bytesProgressListener != null) bytesProgressListener.progress(done, total);
+            }
+            timer.bytesWritten(archive.toFile().length());
+            timer.success();
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static String toEntryName(Path relative) {
+        StringBuilder name = new StringBuilder();
+        for (Path part : relative) {
+            if (!name.isEmpty()) name.append('/');
+            name.append(part);
+        }
+        return name.toString();
+    }
+
+    private void updateListeners(String nextLine) {
+        if (progressListener != null) progressListener.accept(++progressCount);
+        if (messageListener != null) messageListener.accept(nextLine);
+    }
+
+    @Override
+    public String toString() {
+        return "PackerTar{" +
+                "threads=" + threads +
+                ", blockSize=" + blockSize +
+                ", compressionLevel=" + compressionLevel +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package com.jisj.archtools.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream compressing fixed size blocks in parallel (pigz-style).
+ * <p>Each block is written as a separate gzip member. The concatenation of members is a valid gzip stream
+ * which is readable by {@link java.util.zip.GZIPInputStream} and by the {@code gzip} utility
+ */
+class ParallelGzipOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block;
+    private int count;
+    private boolean closed;
+
+    /**
+     * @param out       target stream
+     * @param threads   count of compression threads
+     * @param blockSize size of uncompressed block in bytes
+     * @param level     deflate compression level 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    ParallelGzipOutputStream(OutputStream out, int threads, int blockSize, int level) {
+        this.out = out;
+        this.level = level;
+        this.maxInFlight = threads * 2;
+        this.block = new byte[blockSize];
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "parallel-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == block.length) submitBlock();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == block.length) submitBlock();
+        }
+    }
+
+    /**
+     * Compresses the buffered data and writes all compressed blocks to the target stream
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) submitBlock();
+        while (!inFlight.isEmpty()) writeNext();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flush();
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = Arrays.copyOf(block, count);
+        inFlight.add(executor.submit(() -> compress(data)));
+        count = 0;
+        while (inFlight.size() >= maxInFlight) writeNext();
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            out.write(inFlight.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private byte[] compress(byte[] data) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,64 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.cmd.PercentParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reader of the native util output by bytes. Splits the output to lines and passes all bytes to {@link PercentParser}.
+ * Backspaces erase the previous chars of the line like in the console, so the progress output is not included in lines
+ */
+final class ProcessOutput {
+
+    /**
+     * Consumer of the output lines
+     */
+    @FunctionalInterface
+    interface LineConsumer {
+        void accept(String line) throws IOException;
+    }
+
+    private ProcessOutput() {
+    }
+
+    /**
+     * Reads the output to the end
+     *
+     * @param inputStream output of process
+     * @param parser      percentage parser | null
+     * @param consumer    gets not blank lines
+     * @throws IOException on reading or consumer errors
+     */
+    static void read(InputStream inputStream, PercentParser parser, LineConsumer consumer) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        byte[] buffer = new byte[8192];
+        byte[] line = new byte[256];
+        int length = 0;
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            if (parser != null) parser.accept(buffer, 0, count);
+            for (int i = 0; i < count; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    if (!isBlank(line, length)) consumer.accept(new String(line, 0, length, charset).stripTrailing());
+                    length = 0;
+                } else if (b == '\b') {
+                    if (length > 0) length--;
+                } else {
+                    if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                    line[length++] = b;
+                }
+            }
+        }
+        if (!isBlank(line, length)) consumer.accept(new String(line, 0, length, charset).stripTrailing());
+    }
+
+    private static boolean isBlank(byte[] line, int length) {
+        for (int i = 0; i < length; i++)
+            if (line[i] != ' ' && line[i] != '\t') return false;
+        return true;
+    }
+}
@@ -0,0 +1,450 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.metrics.Operation;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Admission control of native archive util processes.
+ * <p>All processes of {@link ExtractorNative} and {@link PackerNative} are started by the {@link #getDefault() default}
+ * scheduler. A process is started when its {@link Demand} fits into the free resources:
+ * <ul>
+ * <li>CPU slots. Default: count of available processors</li>
+ * <li>memory budget. Default: half of physical memory. The memory of process is estimated by the archive type,
+ * the compression level {@code -mx} and the dictionary size {@code -md} of the command, see {@link #estimate(Operation, Type, List)}</li>
+ * <li>I/O slots per device: each {@link FileStore} of the archive and the files folder. Default: 2.
+ * The processes of one {@link #shareIo(Object, ArchiveFuture.Task) I/O group} take one slot per device together</li>
+ * </ul>
+ * The resources are released when the process exits. A demand bigger than the whole budget is reduced to the budget,
+ * so the process runs alone.
+ * <p>The waiting processes are queued per caller and the callers are served in turn, so one batch cannot hold back
+ * the calls of other callers. A caller is set by {@link #callAs(String, ArchiveFuture.Task)} and is inherited by
+ * the child threads. The head of a queue can be bypassed by smaller processes of other callers
+ * at most {@link #setMaxBypass(int) max bypass} times, after that the scheduler waits for its resources.
+ */
+public class ProcessScheduler {
+    /**
+     * Caller of the calls out of {@link #callAs(String, ArchiveFuture.Task)}
+     */
+    public static final String DEFAULT_CALLER = "default";
+    private static final InheritableThreadLocal<String> CALLER = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<Object> IO_GROUP = new InheritableThreadLocal<>();
+    private static final long MB = 1024 * 1024;
+    private static volatile ProcessScheduler defaultScheduler = new ProcessScheduler();
+
+    private final int cpuSlots;
+    private final long memoryBudget;
+    private final int ioSlotsPerDevice;
+    private int maxBypass = 8;
+
+    private int usedCpu;
+    private long usedMemory;
+    private final Map<Object, Integer> usedIo = new HashMap<>();
+    private final Map<Object, Map<Object, Integer>> groupIo = new HashMap<>();
+    private final LinkedHashMap<String, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+
+    /**
+     * Resources of one process
+     *
+     * @param cpus    count of CPU slots
+     * @param memory  estimated memory in bytes
+     * @param devices keys of devices of the process I/O
+     */
+    public record Demand(int cpus, long memory, Set<Object> devices) {
+        /**
+         * Creates demand
+         *
+         * @throws IllegalArgumentException if cpus is not positive or memory is negative
+         */
+        public Demand {
+            if (cpus < 1) throw new IllegalArgumentException("Not positive CPU count: " + cpus);
+            if (memory < 0) throw new IllegalArgumentException("Negative memory: " + memory);
+            devices = Set.copyOf(devices);
+        }
+
+        /**
+         * Creates demand with devices of the paths
+         *
+         * @param cpus   count of CPU slots
+         * @param memory estimated memory in bytes
+         * @param paths  files and folders of the process I/O. Not existing paths are resolved by the nearest existing parent
+         * @return demand
+         */
+        public static Demand of(int cpus, long memory, Path... paths) {
+            Set<Object> devices = new HashSet<>();
+            for (Path path : paths) devices.add(deviceOf(path));
+            return new Demand(cpus, memory, devices);
+        }
+    }
+
+    private static final class Ticket {
+        final Demand demand;
+        final Object group;
+        boolean admitted;
+        int bypassed;
+
+        Ticket(Demand demand, Object group) {
+            this.demand = demand;
+            this.group = group;
+        }
+    }
+
+    /**
+     * Creates scheduler by the resources of this machine
+     */
+    public ProcessScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), physicalMemory() / 2, 2);
+    }
+
+    /**
+     * Creates scheduler
+     *
+     * @param cpuSlots         count of CPU slots
+     * @param memoryBudget     memory budget in bytes
+     * @param ioSlotsPerDevice count of concurrent processes per device
+     * @throws IllegalArgumentException if any value is not positive
+     */
+    public ProcessScheduler(int cpuSlots, long memoryBudget, int ioSlotsPerDevice) {
+        if (cpuSlots < 1 || memoryBudget < 1 || ioSlotsPerDevice < 1)
+            throw new IllegalArgumentException("Not positive resources: cpu=" + cpuSlots + ", memory=" + memoryBudget
+                    + ", io=" + ioSlotsPerDevice);
+        this.cpuSlots = cpuSlots;
+        this.memoryBudget = memoryBudget;
+        this.ioSlotsPerDevice = ioSlotsPerDevice;
+    }
+
+    /**
+     * Returns scheduler of native processes
+     *
+     * @return default scheduler
+     */
+    public static ProcessScheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    /**
+     * Sets scheduler of native processes
+     *
+     * @param scheduler new scheduler
+     */
+    public static void setDefault(ProcessScheduler scheduler) {
+        defaultScheduler = Objects.requireNonNull(scheduler);
+    }
+
+    /**
+     * Runs the task on behalf of the caller. Processes of the task and of its child threads are queued as the caller's
+     *
+     * @param caller caller name: user, batch, tenant etc.
+     * @param task   task
+     * @param <T>    result type
+     * @return task result
+     * @throws IOException from task
+     */
+    public static <T> T callAs(String caller, ArchiveFuture.Task<T> task) throws IOException {
+        String previous = CALLER.get();
+        CALLER.set(Objects.requireNonNull(caller));
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) CALLER.remove();
+            else CALLER.set(previous);
+        }
+    }
+
+    /**
+     * Runs the task in the I/O group. The processes of the group share I/O slots: the first running process
+     * of the group takes the slot of a device, the others use it. The parts of one archive operation share
+     * the group, so their count is limited by CPU slots and memory budget only. The group is inherited by the child threads
+     *
+     * @param group group key: any object compared by {@code equals}
+     * @param task  task
+     * @param <T>   result type
+     * @return task result
+     * @throws IOException from task
+     */
+    public static <T> T shareIo(Object group, ArchiveFuture.Task<T> task) throws IOException {
+        Object previous = IO_GROUP.get();
+        IO_GROUP.set(Objects.requireNonNull(group));
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) IO_GROUP.remove();
+            else IO_GROUP.set(previous);
+        }
+    }
+
+    /**
+     * Returns caller of the current thread
+     *
+     * @return caller name or {@link #DEFAULT_CALLER}
+     */
+    public static String currentCaller() {
+        String caller = CALLER.get();
+        return caller == null ? DEFAULT_CALLER : caller;
+    }
+
+    /**
+     * Sets count of admissions of other callers before the waiting head of queue. Default: 8
+     *
+     * @param maxBypass count, 0 for strict turn
+     * @throws IllegalArgumentException if count is negative
+     */
+    public synchronized void setMaxBypass(int maxBypass) {
+        if (maxBypass < 0) throw new IllegalArgumentException("Negative bypass count: " + maxBypass);
+        this.maxBypass = maxBypass;
+    }
+
+    /**
+     * Estimates resources of native 7z/rar process
+     * <ul>
+     * <li>Extraction and test: one CPU, dictionary size and 16MB of buffers</li>
+     * <li>Packing to 7z: two CPUs or {@code -mmt} threads, 11 dictionaries.
+     * The dictionary is {@code -md} or the default of {@code -mx} level (5 if not set)</li>
+     * <li>Packing to other formats: one CPU or {@code -mmt} threads, 16MB per thread</li>
+     * <li>Listing: one CPU, 16MB</li>
+     * </ul>
+     * The dictionary of extraction is unknown before reading of the archive headers, so the maximal default
+     * dictionary of the archive format is taken
+     *
+     * @param operation operation of util
+     * @param type      archive type
+     * @param command   util command with switches
+     * @return demand without devices
+     */
+    public static Demand estimate(Operation operation, Type type, List<String> command) {
+        int threads = intSwitch(command, "-mmt", 0);
+        return switch (operation) {
+            case PACK, CREATE, ADD -> {
+                if (type == Type.S7Z) {
+                    long dictionary = sizeSwitch(command, "-md", defaultDictionary(intSwitch(command, "-mx", 5)));
+                    yield new Demand(threads > 0 ? threads : 2, 11 * dictionary + 16 * MB, Set.of());
+                }
+                int cpus = Math.max(threads, 1);
+                yield new Demand(cpus, cpus * 16 * MB, Set.of());
+            }
+            case EXTRACT, TEST -> new Demand(1, switch (type) {
+                case S7Z -> 64 * MB;
+                case RAR -> 32 * MB;
+                default -> 0;
+            } + 16 * MB, Set.of());
+            default -> new Demand(1, 16 * MB, Set.of());
+        };
+    }
+
+    /**
+     * Starts the process when its resources are free. Blocks the current thread while the process is queued
+     *
+     * @param builder process builder
+     * @param demand  process resources
+     * @return started process. Resources are released on the process exit
+     * @throws ArchiveException if the thread is interrupted in the queue, process starting errors
+     */
+    public Process start(ProcessBuilder builder, Demand demand) throws ArchiveException {
+        Demand clamped = new Demand(Math.min(demand.cpus(), cpuSlots), Math.min(demand.memory(), memoryBudget),
+                demand.devices());
+        Object group = IO_GROUP.get();
+        acquire(clamped, group);
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException | RuntimeException e) {
+            release(clamped, group);
+            throw new ArchiveException(e);
+        }
+        process.onExit().whenComplete((p, e) -> release(clamped, group));
+        return process;
+    }
+
+    /**
+     * Returns count of busy CPU slots
+     *
+     * @return count of slots
+     */
+    public synchronized int getUsedCpu() {
+        return usedCpu;
+    }
+
+    /**
+     * Returns estimated memory of running processes
+     *
+     * @return memory in bytes
+     */
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * Returns count of queued processes
+     *
+     * @return count of processes
+     */
+    public synchronized int getQueued() {
+        return queues.values().stream().mapToInt(ArrayDeque::size).sum();
+    }
+
+    private synchronized void acquire(Demand demand, Object group) throws ArchiveException {
+        String caller = currentCaller();
+        Ticket ticket = new Ticket(demand, group);
+        queues.computeIfAbsent(caller, k -> new ArrayDeque<>()).addLast(ticket);
+        dispatch();
+        try {
+            while (!ticket.admitted) wait();
+        } catch (InterruptedException e) {
+            if (ticket.admitted) {
+                free(demand, group);
+            } else {
+                ArrayDeque<Ticket> queue = queues.get(caller);
+                queue.remove(ticket);
+                if (queue.isEmpty()) queues.remove(caller);
+            }
+            dispatch();
+            Thread.currentThread().interrupt();
+            throw new ArchiveException("Interrupted in the process queue", e);
+        }
+    }
+
+    private synchronized void release(Demand demand, Object group) {
+        free(demand, group);
+        dispatch();
+    }
+
+    /**
+     * Admits the heads of queues in turn of callers. A served caller moves to the end of turn
+     */
+    private void dispatch() {
+        boolean admitted;
+        do {
+            admitted = false;
+            Ticket blocking = null;
+            for (Iterator<Map.Entry<String, ArrayDeque<Ticket>>> it = queues.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, ArrayDeque<Ticket>> entry = it.next();
+                Ticket head = entry.getValue().peekFirst();
+                if (fits(head.demand, head.group) && (blocking == null || blocking.bypassed++ < maxBypass)) {
+                    entry.getValue().removeFirst();
+                    it.remove();
+                    if (!entry.getValue().isEmpty()) queues.put(entry.getKey(), entry.getValue());
+                    take(head.demand, head.group);
+                    head.admitted = true;
+                    admitted = true;
+                    break;
+                }
+                if (blocking == null) blocking = head;
+            }
+        } while (admitted && !queues.isEmpty());
+        notifyAll();
+    }
+
+    private boolean fits(Demand demand, Object group) {
+        if (usedCpu + demand.cpus() > cpuSlots || usedMemory + demand.memory() > memoryBudget) return false;
+        Map<Object, Integer> shared = group == null ? Map.of() : groupIo.getOrDefault(group, Map.of());
+        for (Object device : demand.devices())
+            if (!shared.containsKey(device) && usedIo.getOrDefault(device, 0) >= ioSlotsPerDevice) return false;
+        return true;
+    }
+
+    private void take(Demand demand, Object group) {
+        usedCpu += demand.cpus();
+        usedMemory += demand.memory();
+        for (Object device : demand.devices()) {
+            if (group == null || groupIo.computeIfAbsent(group, k -> new HashMap<>()).merge(device, 1, Integer::sum) == 1)
+                usedIo.merge(device, 1, Integer::sum);
+        }
+    }
+
+    private void free(Demand demand, Object group) {
+        usedCpu -= demand.cpus();
+        usedMemory -= demand.memory();
+        for (Object device : demand.devices()) {
+            if (group != null) {
+                Map<Object, Integer> shared = groupIo.get(group);
+                if (shared.merge(device, -1, Integer::sum) > 0) continue;
+                shared.remove(device);
+                if (shared.isEmpty()) groupIo.remove(group);
+            }
+            usedIo.computeIfPresent(device, (k, v) -> v > 1 ? v - 1 : null);
+        }
+    }
+
+    private static Object deviceOf(Path path) {
+        Path existing = path.toAbsolutePath();
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+        if (existing == null) return path.toAbsolutePath().getRoot();
+        try {
+            return Files.getFileStore(existing);
+        } catch (IOException e) {
+            return existing.getRoot();
+        }
+    }
+
+    /**
+     * Default LZMA2 dictionary of 7-Zip compression level
+     */
+    private static long defaultDictionary(int level) {
+        if (level <= 1) return 256 * 1024;
+        if (level <= 4) return 4 * MB;
+        if (level <= 6) return 16 * MB;
+        if (level <= 8) return 32 * MB;
+        return 64 * MB;
+    }
+
+    private static int intSwitch(List<String> command, String key, int defaultValue) {
+        for (String arg : command) {
+            if (arg.startsWith(key) && arg.length() > key.length()) {
+                try {
+                    return Integer.parseInt(arg.substring(key.length()).replace("=", ""));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Parses size switch: {@code -md64m}, {@code -md=1g}, {@code -md24} (power of two)
+     */
+    private static long sizeSwitch(List<String> command, String key, long defaultValue) {
+        for (String arg : command) {
+            if (!arg.startsWith(key) || arg.length() <= key.length()) continue;
+            String value = arg.substring(key.length()).replace("=", "").toLowerCase(Locale.ROOT);
+            char unit = value.charAt(value.length() - 1);
+            try {
+                if (Character.isDigit(unit)) return 1L << Integer.parseInt(value);
+                long number = Long.parseLong(value.substring(0, value.length() - 1));
+                return switch (unit) {
+                    case 'b' -> number;
+                    case 'k' -> number * 1024;
+                    case 'm' -> number * MB;
+                    case 'g' -> number * 1024 * MB;
+                    default -> defaultValue;
+                };
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    private static long physicalMemory() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os)
+            return os.getTotalMemorySize();
+        return Runtime.getRuntime().maxMemory() * 4;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProcessScheduler{" +
+                "cpu=" + usedCpu + "/" + cpuSlots +
+                ", memory=" + usedMemory + "/" + memoryBudget +
+                ", ioSlotsPerDevice=" + ioSlotsPerDevice +
+                ", queued=" + getQueued() +
+                '}';
+    }
+}
@@ -0,0 +1,317 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.TimeOutException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog of running native util processes.
+ * <p>One daemon thread checks all watched processes and kills the process tree when
+ * <ul>
+ * <li>the process did not write to its monitored streams for the inactivity timeout</li>
+ * <li>the process runs longer than the deadline. The deadline is scaled by the processed size, see {@link #deadline(long, long)}</li>
+ * </ul>
+ * The timeout reason includes the last lines of the process output. Usage: <pre>{@code
+ *     Process process = builder.start();
+ *     try (ProcessWatchdog.Watch watch = ProcessWatchdog.getDefault().watch(process, "archive.7z", inactivity, deadline)) {
+ *         read(watch.monitor(process.getInputStream()));
+ *         process.waitFor();
+ *         watch.check();
+ *     }
+ * }</pre>
+ */
+public final class ProcessWatchdog {
+    /**
+     * Fixed part of the deadline
+     */
+    public static final Duration DEADLINE_BASE = Duration.ofSeconds(30);
+    private static final int TAIL_BYTES = 2048;
+    private static final int TAIL_LINES = 5;
+    private static final ProcessWatchdog DEFAULT = new ProcessWatchdog(Duration.ofMillis(250));
+
+    private final Duration tick;
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates watchdog
+     *
+     * @param tick period of checks
+     */
+    public ProcessWatchdog(Duration tick) {
+        this.tick = Objects.requireNonNull(tick);
+    }
+
+    /**
+     * Returns shared watchdog of the native util processes
+     *
+     * @return default watchdog
+     */
+    public static ProcessWatchdog getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns deadline scaled by the size: {@link #DEADLINE_BASE} plus time of the size processing at the minimal speed
+     *
+     * @param bytes             size of archive or files
+     * @param minBytesPerSecond minimal expected speed. Not positive value switches off the deadline
+     * @return deadline | null if switched off
+     */
+    public static Duration deadline(long bytes, long minBytesPerSecond) {
+        if (minBytesPerSecond <= 0) return null;
+        return DEADLINE_BASE.plusSeconds(Math.max(bytes, 0) / minBytesPerSecond);
+    }
+
+    /**
+     * Starts watching of the process
+     *
+     * @param process     running process
+     * @param description description for the timeout reason: archive name etc.
+     * @param inactivity  maximal time without output | null
+     * @param deadline    maximal time of process | null
+     * @return watch. Close it after the process end
+     */
+    public Watch watch(Process process, String description, Duration inactivity, Duration deadline) {
+        Watch watch = new Watch(process, description, inactivity, deadline);
+        watches.add(watch);
+        ensureStarted();
+        return watch;
+    }
+
+    /**
+     * Returns count of watched processes
+     *
+     * @return count of processes
+     */
+    public int getWatched() {
+        return watches.size();
+    }
+
+    private synchronized void ensureStarted() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("process-watchdog").daemon().factory());
+        executor.scheduleWithFixedDelay(this::checkAll, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void checkAll() {
+        long now = System.nanoTime();
+        for (Watch watch : watches) {
+            try {
+                watch.checkTime(now);
+            } catch (RuntimeException ignored) {
+                // the thread must survive errors of one process
+            }
+        }
+    }
+
+    /**
+     * Watch of one process
+     */
+    public final class Watch implements AutoCloseable {
+        private final Process process;
+        private final String description;
+        private final Duration inactivity;
+        private final Duration deadline;
+        private final long started = System.nanoTime();
+        private final List<TailInputStream> streams = new ArrayList<>();
+        private volatile long lastActivity = started;
+        private volatile String reason;
+        private long pausedSince = -1;
+        private long pausedNanos;
+
+        private Watch(Process process, String description, Duration inactivity, Duration deadline) {
+            this.process = process;
+            this.description = description;
+            this.inactivity = inactivity;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Wraps the output stream of the process. Reading of the stream is the activity of the process.
+         * Last bytes of the stream are kept for the timeout reason
+         *
+         * @param inputStream output or error stream of process
+         * @return monitored stream
+         */
+        public InputStream monitor(InputStream inputStream) {
+            TailInputStream stream = new TailInputStream(inputStream);
+            synchronized (streams) {
+                streams.add(stream);
+            }
+            return stream;
+        }
+
+        /**
+         * Marks activity of the process not visible in the monitored streams
+         */
+        public void activity() {
+            lastActivity = System.nanoTime();
+        }
+
+        /**
+         * Stops the clock of the watch. The time of pause is not counted for the deadline and the inactivity timeout.
+         * Is used while the process waits for the caller: the output is not read
+         */
+        public synchronized void pause() {
+            if (pausedSince < 0) pausedSince = System.nanoTime();
+        }
+
+        /**
+         * Starts the clock of the watch stopped by {@link #pause()}. Does nothing if the watch is not paused
+         */
+        public synchronized void resume() {
+            if (pausedSince < 0) return;
+            long now = System.nanoTime();
+            pausedNanos += now - pausedSince;
+            pausedSince = -1;
+            lastActivity = now;
+        }
+
+        /**
+         * Returns state of the watch
+         *
+         * @return {@code true} if the process was killed by the watchdog
+         */
+        public boolean isExpired() {
+            return reason != null;
+        }
+
+        /**
+         * Returns timeout reason with last output lines
+         *
+         * @return reason | null if not expired
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Throws exception if the process was killed by the watchdog
+         *
+         * @throws TimeOutException with the reason
+         */
+        public void check() throws TimeOutException {
+            if (reason != null) throw new TimeOutException(reason);
+        }
+
+        /**
+         * Stops watching
+         */
+        @Override
+        public void close() {
+            watches.remove(this);
+        }
+
+        private void checkTime(long now) {
+            if (reason != null || !process.isAlive()) return;
+            long paused;
+            synchronized (this) {
+                if (pausedSince >= 0) return;
+                paused = pausedNanos;
+            }
+            String cause = null;
+            if (inactivity != null && now - lastActivity > inactivity.toNanos())
+                cause = "No output for " + inactivity.toSeconds() + "sec";
+            else if (deadline != null && now - started - paused > deadline.toNanos())
+                cause = "Deadline " + deadline.toSeconds() + "sec exceeded";
+            if (cause == null) return;
+            reason = cause + " in " + description + lastLines();
+            ArchiveFuture.destroyTree(process);
+        }
+
+        private String lastLines() {
+            StringBuilder builder = new StringBuilder();
+            synchronized (streams) {
+                for (TailInputStream stream : streams)
+                    for (String line : stream.lastLines()) builder.append("\n> ").append(line);
+            }
+            return builder.isEmpty() ? ". No output" : ". Last output:" + builder;
+        }
+
+        /**
+         * Stream with activity marking and ring buffer of the last bytes
+         */
+        private final class TailInputStream extends FilterInputStream {
+            private final byte[] tail = new byte[TAIL_BYTES];
+            private long total;
+
+            TailInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    synchronized (tail) {
+                        tail[(int) (total++ % TAIL_BYTES)] = (byte) b;
+                    }
+                    activity();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    synchronized (tail) {
+                        for (int i = off; i < off + count; i++) tail[(int) (total++ % TAIL_BYTES)] = b[i];
+                    }
+                    activity();
+                }
+                return count;
+            }
+
+            /**
+             * Decodes last not blank lines. Backspaces erase the previous chars like in the console
+             */
+            List<String> lastLines() {
+                byte[] bytes;
+                synchronized (tail) {
+                    int length = (int) Math.min(total, TAIL_BYTES);
+                    bytes = new byte[length];
+                    for (int i = 0; i < length; i++) bytes[i] = tail[(int) ((total - length + i) % TAIL_BYTES)];
+                }
+                Deque<String> lines = new ArrayDeque<>();
+                StringBuilder line = new StringBuilder();
+                for (char c : new String(bytes, Charset.defaultCharset()).toCharArray()) {
+                    if (c == '\n' || c == '\r') {
+                        addLine(lines, line);
+                    } else if (c == '\b') {
+                        if (!line.isEmpty()) line.setLength(line.length() - 1);
+                    } else {
+                        line.append(c);
+                    }
+                }
+                addLine(lines, line);
+                return List.copyOf(lines);
+            }
+
+            private static void addLine(Deque<String> lines, StringBuilder line) {
+                if (!line.toString().isBlank()) {
+                    lines.addLast(line.toString().strip());
+                    if (lines.size() > TAIL_LINES) lines.removeFirst();
+                }
+                line.setLength(0);
+            }
+        }
+    }
+}
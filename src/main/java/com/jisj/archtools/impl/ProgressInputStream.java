@@ -0,0 +1,69 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.BytesProgressListener;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream counting read bytes for {@link BytesProgressListener}.
+ * The listener is called after each {@value #STEP} bytes and at the end of stream
+ */
+final class ProgressInputStream extends FilterInputStream {
+    private static final int STEP = 256 * 1024;
+    private final BytesProgressListener listener;
+    private final long total;
+    private long done;
+    private long reported;
+
+    /**
+     * @param in       source stream
+     * @param listener listener | null
+     * @param offset   bytes done before the stream
+     * @param total    total bytes of the operation
+     */
+    ProgressInputStream(InputStream in, BytesProgressListener listener, long offset, long total) {
+        super(in);
+        this.listener = listener;
+        this.done = offset;
+        this.reported = offset;
+        this.total = total;
+    }
+
+    /**
+     * @return bytes done including offset
+     */
+    long getDone() {
+        return done;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        count(b == -1 ? -1 : 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        count(count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long count = super.skip(n);
+        count(count);
+        return count;
+    }
+
+    private void count(long count) {
+        if (count > 0) done += count;
+        if (listener != null && (done - reported >= STEP || count < 0 && done != reported)) {
+            reported = done;
+            listener.progress(done, total);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.Type;
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression layers of TAR archives
+ */
+enum TarCompression {
+    NONE,
+    GZIP,
+    ZSTD;
+
+    /**
+     * Returns compression of the archive type
+     *
+     * @param type archive type
+     * @return compression layer
+     * @throws IllegalArgumentException if the type is not TAR
+     */
+    static TarCompression of(Type type) {
+        return switch (type) {
+            case TAR -> NONE;
+            case TAR_GZ -> GZIP;
+            case TAR_ZST -> ZSTD;
+            default -> throw new IllegalArgumentException("Not a TAR archive type: " + type);
+        };
+    }
+
+    /**
+     * Wraps the archive stream with decompression layer. The compression is detected by magic bytes
+     *
+     * @param in archive stream
+     * @return TAR stream
+     * @throws IOException on read errors
+     */
+    static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream bis = new BufferedInputStream(in, 64 * 1024);
+        bis.mark(4);
+        byte[] magic = bis.readNBytes(4);
+        bis.reset();
+        if (magic.length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B)
+            return new BufferedInputStream(new GZIPInputStream(bis, 64 * 1024), 64 * 1024);
+        if (magic.length == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD)
+            return new BufferedInputStream(new ZstdInputStream(bis), 64 * 1024);
+        return bis;
+    }
+
+    /**
+     * Wraps the archive stream with compression layer
+     *
+     * @param out       archive stream
+     * @param threads   count of compression threads. Used by {@link #GZIP}
+     * @param blockSize size of block for parallel compression
+     * @param level     compression level. Used by {@link #GZIP}
+     * @return TAR stream
+     * @throws IOException on write errors
+     */
+    OutputStream compress(OutputStream out, int threads, int blockSize, int level) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new ParallelGzipOutputStream(out, threads, blockSize, level);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.jisj.archtools.impl;
+
+/**
+ * Header of the TAR archive entry
+ *
+ * @param name         entry path in archive with {@code /} separators. Directory names end with {@code /}
+ * @param size         size of entry data in bytes. Always {@code 0} for directories
+ * @param lastModified last modified time in milliseconds since the epoch
+ * @param mode         unix permission bits
+ * @param type         entry type flag: {@link #FILE}, {@link #DIRECTORY} or any other flag of the TAR specification
+ */
+record TarEntry(String name, long size, long lastModified, int mode, char type) {
+    static final char FILE = '0';
+    static final char DIRECTORY = '5';
+
+    static TarEntry ofFile(String name, long size, long lastModified) {
+        return new TarEntry(name, size, lastModified, 0644, FILE);
+    }
+
+    static TarEntry ofDirectory(String name, long lastModified) {
+        return new TarEntry(name.endsWith("/") ? name : name + "/", 0, lastModified, 0755, DIRECTORY);
+    }
+
+    boolean isDirectory() {
+        return type == DIRECTORY || name.endsWith("/");
+    }
+
+    boolean isFile() {
+        return type == FILE || type == '\0' || type == '7';
+    }
+
+    /**
+     * Returns entry name without trailing {@code /}
+     * @return entry path in archive
+     */
+    String path() {
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+}
@@ -0,0 +1,224 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sequential reader of TAR archive entries. Reads POSIX ustar headers with PAX ({@code x}) and GNU long name ({@code L}) extensions.
+ * <p>After {@link #getNextEntry()} the stream returns the data of the current entry and {@code -1} at the end of the entry data
+ */
+class TarInputStream extends FilterInputStream {
+    static final int BLOCK = 512;
+
+    private final byte[] header = new byte[BLOCK];
+    private long remaining;
+    private long padding;
+    private boolean finished;
+
+    TarInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Skips the rest of the current entry and reads the next entry header
+     *
+     * @return next entry or {@code null} at the end of the archive
+     * @throws IOException on read errors or corrupted header
+     */
+    TarEntry getNextEntry() throws IOException {
+        if (finished) return null;
+        closeEntry();
+        Map<String, String> pax = Map.of();
+        String longName = null;
+        while (true) {
+            if (!readBlock(header)) return finish();
+            if (isZeroBlock(header)) return finish();
+            verifyChecksum();
+            char type = (char) header[156];
+            long size = parseNumber(header, 124, 12);
+            switch (type) {
+                case 'x' -> {
+                    pax = parsePax(readData(size));
+                    continue;
+                }
+                case 'g' -> {
+                    readData(size);
+                    continue;
+                }
+                case 'L' -> {
+                    longName = trimNul(readData(size));
+                    continue;
+                }
+            }
+            String name = longName != null ? longName : headerName();
+            if (pax.containsKey("path")) name = pax.get("path");
+            if (pax.containsKey("size")) size = Long.parseLong(pax.get("size"));
+            long mtime = parseNumber(header, 136, 12) * 1000;
+            int mode = (int) parseNumber(header, 100, 8);
+            TarEntry entry = new TarEntry(name, type == TarEntry.DIRECTORY ? 0 : size, mtime, mode, type);
+            remaining = entry.size();
+            padding = padding(remaining);
+            return entry;
+        }
+    }
+
+    /**
+     * Skips the rest of data of the current entry
+     *
+     * @throws IOException on read errors
+     */
+    void closeEntry() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) return -1;
+        int b = in.read();
+        if (b == -1) throw new ArchiveException("Unexpected end of TAR archive");
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining <= 0) return -1;
+        int count = in.read(b, off, (int) Math.min(len, remaining));
+        if (count == -1) throw new ArchiveException("Unexpected end of TAR archive");
+        remaining -= count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long toSkip = Math.min(n, remaining);
+        skipFully(toSkip);
+        remaining -= toSkip;
+        return toSkip;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    static long padding(long size) {
+        long rest = size % BLOCK;
+        return rest == 0 ? 0 : BLOCK - rest;
+    }
+
+    private TarEntry finish() {
+        finished = true;
+        return null;
+    }
+
+    private String headerName() {
+        String name = string(header, 0, 100);
+        if (string(header, 257, 5).equals("ustar")) {
+            String prefix = string(header, 345, 155);
+            if (!prefix.isEmpty()) name = prefix + "/" + name;
+        }
+        return name;
+    }
+
+    private byte[] readData(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new ArchiveException("TAR extended header is too large: " + size);
+        byte[] data = in.readNBytes((int) size);
+        if (data.length != size) throw new ArchiveException("Unexpected end of TAR archive");
+        skipFully(padding(size));
+        return data;
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int count = in.readNBytes(block, 0, BLOCK);
+        if (count == 0) return false;
+        if (count != BLOCK) throw new ArchiveException("Unexpected end of TAR archive");
+        return true;
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() == -1) throw new ArchiveException("Unexpected end of TAR archive");
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private void verifyChecksum() throws ArchiveException {
+        long expected = parseNumber(header, 148, 8);
+        long actual = 0;
+        for (int i = 0; i < BLOCK; i++)
+            actual += (i >= 148 && i < 156) ? ' ' : (header[i] & 0xFF);
+        if (expected != actual)
+            throw new ArchiveException("Corrupted TAR header: checksum mismatch");
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block)
+            if (b != 0) return false;
+        return true;
+    }
+
+    private static Map<String, String> parsePax(byte[] data) throws ArchiveException {
+        Map<String, String> records = new HashMap<>();
+        int pos = 0;
+        while (pos < data.length) {
+            int space = pos;
+            while (space < data.length && data[space] != ' ') space++;
+            if (space == data.length) break;
+            int length = Integer.parseInt(new String(data, pos, space - pos, StandardCharsets.US_ASCII));
+            if (length <= 0 || pos + length > data.length)
+                throw new ArchiveException("Corrupted TAR PAX header");
+            String record = new String(data, space + 1, pos + length - space - 2, StandardCharsets.UTF_8);
+            int eq = record.indexOf('=');
+            if (eq > 0) records.put(record.substring(0, eq), record.substring(eq + 1));
+            pos += length;
+        }
+        return records;
+    }
+
+    private static long parseNumber(byte[] block, int offset, int length) throws ArchiveException {
+        if ((block[offset] & 0x80) != 0) { //base-256 encoding
+            long value = block[offset] & 0x7F;
+            for (int i = 1; i < length; i++) value = (value << 8) | (block[offset + i] & 0xFF);
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = block[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) break;
+                continue;
+            }
+            if (b < '0' || b > '7') throw new ArchiveException("Corrupted TAR header: invalid octal number");
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private static String string(byte[] block, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) end++;
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(byte[] data) {
+        return string(data, 0, data.length);
+    }
+}
@@ -0,0 +1,128 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.jisj.archtools.impl.TarInputStream.BLOCK;
+import static com.jisj.archtools.impl.TarInputStream.padding;
+
+/**
+ * Sequential writer of TAR archive entries in POSIX ustar format.
+ * Names longer than 100 bytes and sizes over 8GB are written in PAX extended headers
+ */
+class TarOutputStream extends FilterOutputStream {
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+
+    private long remaining;
+    private long padding;
+    private boolean finished;
+
+    TarOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Writes header of the new entry. Entry data must be written after header
+     *
+     * @param entry entry header
+     * @throws IOException on write errors, if the previous entry data is incomplete
+     */
+    void putEntry(TarEntry entry) throws IOException {
+        if (remaining != 0) throw new ArchiveException("Previous TAR entry is incomplete, " + remaining + " bytes left");
+        byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        StringBuilder pax = new StringBuilder();
+        if (name.length > 100) paxRecord(pax, "path", entry.name());
+        if (entry.size() > MAX_OCTAL_SIZE) paxRecord(pax, "size", Long.toString(entry.size()));
+        if (!pax.isEmpty()) {
+            byte[] data = pax.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(header("././@PaxHeader", data.length, entry.lastModified(), 0644, 'x'));
+            out.write(data);
+            out.write(new byte[(int) padding(data.length)]);
+        }
+        out.write(header(entry.name(), entry.size(), entry.lastModified(), entry.mode(), entry.type()));
+        remaining = entry.size();
+        padding = padding(remaining);
+    }
+
+    /**
+     * Completes the current entry with padding
+     *
+     * @throws IOException on write errors, if the entry data is incomplete
+     */
+    void closeEntry() throws IOException {
+        if (remaining != 0) throw new ArchiveException("TAR entry is incomplete, " + remaining + " bytes left");
+        out.write(new byte[(int) padding]);
+        padding = 0;
+    }
+
+    /**
+     * Writes end of archive marker. The underlying stream stays open
+     *
+     * @throws IOException on write errors
+     */
+    void finish() throws IOException {
+        if (finished) return;
+        closeEntry();
+        out.write(new byte[BLOCK * 2]);
+        finished = true;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (remaining <= 0) throw new ArchiveException("Data exceeds TAR entry size");
+        out.write(b);
+        remaining--;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > remaining) throw new ArchiveException("Data exceeds TAR entry size");
+        out.write(b, off, len);
+        remaining -= len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        super.close();
+    }
+
+    private static byte[] header(String name, long size, long lastModified, int mode, char type) {
+        byte[] block = new byte[BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, block, 0, Math.min(nameBytes.length, 100));
+        octal(block, 100, 8, mode);
+        octal(block, 108, 8, 0);
+        octal(block, 116, 8, 0);
+        octal(block, 124, 12, Math.min(size, MAX_OCTAL_SIZE));
+        octal(block, 136, 12, lastModified / 1000);
+        block[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, block, 257, 8);
+        Arrays.fill(block, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : block) checksum += b & 0xFF;
+        octal(block, 148, 7, checksum);
+        return block;
+    }
+
+    private static void octal(byte[] block, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int width = length - 1;
+        int pad = width - digits.length();
+        for (int i = 0; i < width; i++)
+            block[offset + i] = (byte) (i < pad ? '0' : digits.charAt(i - pad));
+        block[offset + width] = 0;
+    }
+
+    private static void paxRecord(StringBuilder pax, String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + Integer.toString(body).length();
+        if (Integer.toString(length).length() != Integer.toString(body).length()) length++;
+        pax.append(length).append(' ').append(key).append('=').append(value).append('\n');
+    }
+}
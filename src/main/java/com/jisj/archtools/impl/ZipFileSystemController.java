@@ -1,16 +1,26 @@
 package com.jisj.archtools.impl;
 
 import com.jisj.archtools.*;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.OperationTimer;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.jisj.archtools.Controller.CopyOptions.REPLACE_EXISTING;
 import static java.lang.Integer.MAX_VALUE;
@@ -19,7 +29,9 @@ import static java.lang.Integer.MAX_VALUE;
  * Implements {@link Controller}, {@link Extractor} interfaces by {@link FileSystems} and <a href="https://docs.oracle.com/javase/8/docs/technotes/guides/io/fsp/zipfilesystemprovider.html">Zip File System Provider</a>
  */
 public class ZipFileSystemController implements Controller, Extractor {
+    private static final String ENGINE = "zipfs";
     private boolean silentMode = true;
+    private ContentClassifier classifier;
 
     /**
      * Sets "silent" mode for {@link #removeFiles(Path, List)}.
@@ -31,16 +43,33 @@ public class ZipFileSystemController implements Controller, Extractor {
         this.silentMode = silentMode;
     }
 
+    /**
+     * Sets classifier of incompressible files for {@link #addFiles(Path, List, String, CopyOptions)}.
+     * The incompressible files are added with STORED method, other files are deflated.
+     * <p>The zip file system has one compression method for all new entries and rewrites the whole archive on close.
+     * So the files list with both kinds of files costs two rewrites of the archive: use the classifier for
+     * small archives or for the lists of one kind
+     *
+     * @param classifier classifier | null deflates all files. Default null
+     */
+    public void setContentClassifier(ContentClassifier classifier) {
+        this.classifier = classifier;
+    }
+
     @Override
     public void create(Path zipArchive) throws ArchiveException {
         final Map<String, String> env = new HashMap<>();
         env.put("create", "true");
         final URI uri = URI.create("jar:" + zipArchive.toUri());
 
+        OperationTimer timer = Metrics.start(Operation.CREATE, zipArchive, ENGINE);
         //noinspection EmptyTryBlock
         try (var ignored = FileSystems.newFileSystem(uri, env)) {
+            timer.success();
         } catch (IOException e) {
             throw new ArchiveException(e);
+        } finally {
+            timer.stop();
         }
     }
 
@@ -66,38 +95,72 @@ public class ZipFileSystemController implements Controller, Extractor {
         if (files.isEmpty())
             throw new ArchiveException("Nothing to add");
         List<Path> errors = new ArrayList<>();
-        try (var zipFS = FileSystems.newFileSystem(archive)) {
-            Path pathInZip;
-            for (var file : files) {
-                try {
-                    pathInZip = zipFS.getPath(toPath.isEmpty() ? "/" : toPath, file.getFileName().toString());
-                } catch (InvalidPathException e) {
-                    errors.add(file);
-                    if (!silentMode) throw new ArchiveException(e);
-                    continue;
-                }
-                if (option == REPLACE_EXISTING)
-                    try {
-                        Files.copy(file, pathInZip, StandardCopyOption.REPLACE_EXISTING);
-                    } catch (IOException e) {
-                        errors.add(file);
-                        if (!silentMode) throw new ArchiveException(e);
-                    }
-                else
-                    try {
-                        Files.copy(file, pathInZip);
-                    } catch (IOException e) {
-                        errors.add(file);
-                        if (!silentMode) throw new ArchiveException(e);
-                    }
+        OperationTimer timer = Metrics.start(Operation.ADD, archive, ENGINE);
+        try {
+            List<Path> stored = new ArrayList<>();
+            List<Path> deflated = new ArrayList<>();
+            for (Path file : files) {
+                if (classifier != null && isIncompressible(file)) stored.add(file);
+                else deflated.add(file);
             }
+            // the compression method of zip file system is common for all new entries, so the stored files are added by own session.
+            // Each session rewrites the archive on close
+            if (!stored.isEmpty())
+                try (var zipFS = FileSystems.newFileSystem(archive, Map.of("compressionMethod", "STORED"))) {
+                    for (var file : stored) addFile(zipFS, file, toPath, option, errors, timer);
+                }
+            if (!deflated.isEmpty())
+                try (var zipFS = FileSystems.newFileSystem(archive)) {
+                    for (var file : deflated) addFile(zipFS, file, toPath, option, errors, timer);
+                }
+            timer.success();
         } catch (IOException e) {
             throw new ArchiveException(e);
+        } finally {
+            timer.stop();
         }
         if (!silentMode) System.out.println(this.getClass().getName() + ".addFiles: results=" + errors);
         return errors;
     }
 
+    private void addFile(FileSystem zipFS, Path file, String toPath, CopyOptions option, List<Path> errors,
+                         OperationTimer timer) throws ArchiveException {
+        ArchiveFuture.checkCancelled();
+        Path pathInZip;
+        try {
+            pathInZip = zipFS.getPath(toPath.isEmpty() ? "/" : toPath, file.getFileName().toString());
+        } catch (InvalidPathException e) {
+            errors.add(file);
+            if (!silentMode) throw new ArchiveException(e);
+            return;
+        }
+        if (option == REPLACE_EXISTING)
+            try {
+                Files.copy(file, pathInZip, StandardCopyOption.REPLACE_EXISTING);
+                timer.entries(1);
+            } catch (IOException e) {
+                errors.add(file);
+                if (!silentMode) throw new ArchiveException(e);
+            }
+        else
+            try {
+                Files.copy(file, pathInZip);
+                timer.entries(1);
+            } catch (IOException e) {
+                errors.add(file);
+                if (!silentMode) throw new ArchiveException(e);
+            }
+    }
+
+    private boolean isIncompressible(Path file) {
+        try {
+            return Files.isRegularFile(file) && classifier.isIncompressible(file);
+        } catch (IOException e) {
+            // the copy of unreadable file reports the error
+            return false;
+        }
+    }
+
     /**
      * @throws ArchiveException when {@link FileSystem} opens
      *                          If {@link #setSilentMode(boolean) SilentMode} is switched off {@code ArchiveException} will be caused:
@@ -110,9 +173,11 @@ public class ZipFileSystemController implements Controller, Extractor {
     @Override
     public List<String> removeFiles(Path archive, List<String> pathsInArchive) throws ArchiveException {
         List<String> errors = new ArrayList<>();
+        OperationTimer timer = Metrics.start(Operation.REMOVE, archive, ENGINE);
         try (var zipFS = FileSystems.newFileSystem(archive)) {
             Path pathInZip;
             for (var file : pathsInArchive) {
+                ArchiveFuture.checkCancelled();
                 try {
                     pathInZip = zipFS.getPath(file);
                 } catch (InvalidPathException e) {
@@ -126,14 +191,17 @@ public class ZipFileSystemController implements Controller, Extractor {
                     if (!Files.deleteIfExists(pathInZip)) {
                         if (silentMode) errors.add(file);
                         else throw new ArchiveException("File not found: " + file);
-                    }
+                    } else timer.entries(1);
                 } catch (IOException e) {
                     errors.add(file);
                     if (!silentMode) throw new ArchiveException(e);
                 }
             }
+            timer.success();
         } catch (IOException e) {
             throw new ArchiveException(e);
+        } finally {
+            timer.stop();
         }
         return errors;
     }
@@ -156,19 +224,156 @@ public class ZipFileSystemController implements Controller, Extractor {
 
     @Override
     public List<String> getFileList(Path archive) throws ArchiveException {
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, ENGINE);
         try (var zipFS = FileSystems.newFileSystem(archive)) {
             Path root = zipFS.getPath("/");
             try (var files = Files.walk(root, MAX_VALUE)) {
-                return files
+                List<String> result = files
                         .filter(path -> !path.equals(root))
+                        .peek(path -> ArchiveFuture.checkCancelled())
                         .map(Path::toString)
                         .toList();
+                timer.entries(result.size());
+                timer.success();
+                return result;
+            }
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Reads the files from the archive file system in order of {@link #getFileList(Path)}.
+     * The data of skipped files is not inflated
+     */
+    @Override
+    public void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, ENGINE);
+        try (var zipFS = FileSystems.newFileSystem(archive)) {
+            Path root = zipFS.getPath("/");
+            try (var files = Files.walk(root, MAX_VALUE)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    ArchiveFuture.checkCancelled();
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (!attributes.isRegularFile()) continue;
+                    ArchiveEntry entry = new ArchiveEntry(root.relativize(file).toString(),
+                            attributes.size(), attributes.lastModifiedTime(), false);
+                    if (!visitor.readContent(entry)) continue;
+                    try (InputStream content = Files.newInputStream(file)) {
+                        visitor.visit(entry, content);
+                    }
+                    timer.entries(1);
+                    timer.bytesWritten(attributes.size());
+                }
             }
+            timer.bytesRead(Files.size(archive));
+            timer.success();
+        } catch (ArchiveException e) {
+            throw e;
         } catch (IOException e) {
             throw new ArchiveException(e);
+        } finally {
+            timer.stop();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote Reads the files from the archive file system in order of {@link #getFileList(Path)}
+     */
+    @Override
+    public Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+        OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, ENGINE);
+        try (var zipFS = FileSystems.newFileSystem(archive)) {
+            Path root = zipFS.getPath("/");
+            List<Path> files;
+            try (var paths = Files.walk(root, MAX_VALUE)) {
+                files = paths.filter(Files::isRegularFile).toList();
+            }
+            long total = 0;
+            for (Path file : files) total += Files.size(file);
+            if (total > maxBytes)
+                throw new ArchiveException("Archive content " + total + " bytes is larger than limit " + maxBytes);
+            Map<String, ByteBuffer> result = new LinkedHashMap<>();
+            long remaining = maxBytes;
+            for (Path file : files) {
+                ArchiveFuture.checkCancelled();
+                try (InputStream content = Files.newInputStream(file)) {
+                    ByteBuffer buffer = Utils.readToBuffer(content, remaining);
+                    remaining -= buffer.remaining();
+                    result.put(root.relativize(file).toString(), buffer);
+                    timer.bytesWritten(buffer.remaining());
+                }
+            }
+            timer.bytesRead(Files.size(archive));
+            timer.entries(result.size());
+            timer.success();
+            return Collections.unmodifiableMap(result);
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ArchiveException(e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @implNote The archive file system is open until the stream closing. Entry names have no leading {@code /}
+     */
+    @Override
+    public Stream<ArchiveEntry> streamEntries(Path archive) throws ArchiveException {
+        OperationTimer timer = Metrics.start(Operation.LIST, archive, ENGINE);
+        FileSystem zipFS;
+        Stream<Path> files;
+        try {
+            zipFS = FileSystems.newFileSystem(archive);
+        } catch (IOException e) {
+            timer.stop();
+            throw new ArchiveException(e);
+        }
+        Path root = zipFS.getPath("/");
+        try {
+            files = Files.walk(root, MAX_VALUE);
+        } catch (IOException e) {
+            try {
+                zipFS.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            timer.stop();
+            throw new ArchiveException(e);
+        }
+        Iterator<Path> iterator = files.filter(path -> !path.equals(root)).iterator();
+        return EntryStreams.of(new EntryStreams.EntrySource() {
+            @Override
+            public ArchiveEntry next() throws IOException {
+                ArchiveFuture.checkCancelled();
+                if (!iterator.hasNext()) return null;
+                Path path = iterator.next();
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new ArchiveEntry(root.relativize(path).toString(),
+                        attributes.isDirectory() ? 0 : attributes.size(),
+                        attributes.lastModifiedTime(),
+                        attributes.isDirectory());
+            }
+
+            @Override
+            public void close() throws IOException {
+                try (zipFS) {
+                    files.close();
+                }
+            }
+        }, timer);
+    }
+
     @Override
     public void test(Path archive) throws ArchiveException {
         throw new UnsupportedCommand();
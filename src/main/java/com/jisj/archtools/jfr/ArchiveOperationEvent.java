@@ -0,0 +1,57 @@
+package com.jisj.archtools.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event of archive operation. For native utils the event covers the process lifecycle:
+ * from the process start to the exit code
+ *
+ * @see com.jisj.archtools.metrics.OperationTimer
+ */
+@Name("com.jisj.archtools.ArchiveOperation")
+@Label("Archive Operation")
+@Category({"Archive Tools"})
+@Description("Extract, list, test, pack or modify operation on archive")
+@StackTrace(false)
+public class ArchiveOperationEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Archive Type")
+    public String archiveType;
+
+    @Label("Engine")
+    @Description("Native util name, zipfs or tar")
+    public String engine;
+
+    @Label("Archive")
+    public String archive;
+
+    @Label("Command")
+    @Description("Command line of native process")
+    public String command;
+
+    @Label("Process Id")
+    public long pid;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Spawn Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long spawnDuration;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Entries")
+    public long entries;
+
+    @Label("Outcome")
+    public String outcome;
+}
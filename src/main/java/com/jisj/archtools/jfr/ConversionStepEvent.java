@@ -0,0 +1,36 @@
+package com.jisj.archtools.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event of {@link com.jisj.archtools.conv.Converter Converter} step
+ */
+@Name("com.jisj.archtools.ConversionStep")
+@Label("Conversion Step")
+@Category({"Archive Tools"})
+@Description("Step of archive conversion")
+@StackTrace(false)
+public class ConversionStepEvent extends Event {
+    @Label("Step")
+    public String step;
+
+    @Label("Source Archive")
+    public String sourceArchive;
+
+    @Label("Destination Archive")
+    public String destinationArchive;
+
+    @Label("Source Size")
+    @DataAmount
+    public long sourceSize;
+
+    @Label("Destination Size")
+    @DataAmount
+    public long destinationSize;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,247 @@
+package com.jisj.archtools.manifest;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Manifest of file contents: path, size, CRC32C and SHA-256 of each file.
+ * <p>Both checksums are calculated by one read of file. The files are hashed in parallel, so the manifest of just
+ * extracted or packed files is calculated while the files are in the page cache.
+ * The manifest is stored to the compact binary sidecar file, see {@link #sidecarOf(Path)}
+ * <pre>{@code
+ *     ContentManifest manifest = ContentManifest.read(ContentManifest.sidecarOf(archive));
+ *     manifest.get("doc/a.xml").map(ContentManifest.Entry::sha256Hex);
+ * }</pre>
+ */
+public final class ContentManifest {
+    /**
+     * Extension of the sidecar file
+     */
+    public static final String EXTENSION = ".manifest";
+    private static final int FORMAT = 0x4d414e31; //MAN1
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * File of manifest
+     *
+     * @param path   path in archive with {@code /} separators
+     * @param size   size in bytes
+     * @param crc32c CRC32C checksum
+     * @param sha256 SHA-256 digest, 32 bytes
+     */
+    public record Entry(String path, long size, int crc32c, byte[] sha256) {
+        /**
+         * Returns SHA-256 digest as hex string
+         *
+         * @return lower case hex string
+         */
+        public String sha256Hex() {
+            return HexFormat.of().formatHex(sha256);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry entry && size == entry.size && crc32c == entry.crc32c
+                    && path.equals(entry.path) && Arrays.equals(sha256, entry.sha256);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, crc32c) * 31 + Arrays.hashCode(sha256);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{path=" + path + ", size=" + size + ", crc32c=" + Integer.toHexString(crc32c)
+                    + ", sha256=" + sha256Hex() + '}';
+        }
+    }
+
+    private final List<Entry> entries;
+
+    /**
+     * Creates manifest
+     *
+     * @param entries files of manifest
+     */
+    public ContentManifest(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+    }
+
+    /**
+     * Returns files of manifest
+     *
+     * @return unmodifiable list in order of paths
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Finds the file
+     *
+     * @param path path with {@code /} separators
+     * @return entry | empty if not found
+     */
+    public Optional<Entry> get(String path) {
+        return entries.stream().filter(entry -> entry.path().equals(path)).findFirst();
+    }
+
+    /**
+     * Returns sidecar file of the archive or of the destination folder: {@code archive.7z.manifest}, {@code folder.manifest}
+     *
+     * @param target archive or folder path
+     * @return path of sidecar file
+     */
+    public static Path sidecarOf(Path target) {
+        Path absolute = target.toAbsolutePath().normalize();
+        return absolute.resolveSibling(absolute.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Calculates manifest of all regular files of the folder
+     *
+     * @param folder folder path
+     * @return manifest with paths relative to the folder
+     * @throws IOException on reading errors
+     */
+    public static ContentManifest ofFolder(Path folder) throws IOException {
+        List<String> names;
+        try (Stream<Path> files = Files.walk(folder)) {
+            names = files.filter(Files::isRegularFile)
+                    .map(file -> folder.relativize(file).toString())
+                    .toList();
+        }
+        return of(folder, names);
+    }
+
+    /**
+     * Calculates manifest of the files of folder in parallel. Names of not regular files are skipped
+     *
+     * @param folder folder path
+     * @param names  paths relative to the folder with {@code /} or native separators
+     * @return manifest in order of paths
+     * @throws IOException on reading errors
+     */
+    public static ContentManifest of(Path folder, Collection<String> names) throws IOException {
+        SortedSet<String> paths = new TreeSet<>();
+        for (String name : names) {
+            String path = name.replace('\\', '/');
+            if (Files.isRegularFile(folder.resolve(path))) paths.add(path);
+        }
+        int parallelism = Math.max(1, Math.min(paths.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<Entry>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("manifest-", 0).daemon().factory())) {
+            for (String path : paths) futures.add(executor.submit(() -> hash(folder.resolve(path), path)));
+        }
+        List<Entry> entries = new ArrayList<>(futures.size());
+        try {
+            for (Future<Entry> future : futures) entries.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Manifest calculation is interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            throw new IOException(e.getCause());
+        }
+        return new ContentManifest(entries);
+    }
+
+    /**
+     * Calculates checksums of file by one read
+     *
+     * @param file file path
+     * @param path path of entry in manifest
+     * @return manifest entry
+     * @throws IOException on reading errors
+     */
+    public static Entry hash(Path file, String path) throws IOException {
+        CRC32C crc = new CRC32C();
+        MessageDigest sha256 = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, count);
+                sha256.update(buffer, 0, count);
+                size += count;
+            }
+        }
+        return new Entry(path, size, (int) crc.getValue(), sha256.digest());
+    }
+
+    /**
+     * Writes manifest to the file. The file is replaced atomically
+     *
+     * @param file sidecar file path
+     * @throws IOException on writing errors
+     */
+    public void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.path());
+                    out.writeLong(entry.size());
+                    out.writeInt(entry.crc32c());
+                    out.write(entry.sha256());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads manifest from the sidecar file
+     *
+     * @param file sidecar file path
+     * @return manifest
+     * @throws IOException on reading errors, if the file is not manifest
+     */
+    public static ContentManifest read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT) throw new IOException("Not a manifest file: " + file);
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                int crc32c = in.readInt();
+                byte[] sha256 = new byte[32];
+                in.readFully(sha256);
+                entries.add(new Entry(path, size, crc32c, sha256));
+            }
+            return new ContentManifest(entries);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContentManifest{entries=" + entries.size() + '}';
+    }
+}
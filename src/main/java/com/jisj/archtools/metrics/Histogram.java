@@ -0,0 +1,69 @@
+package com.jisj.archtools.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram with fixed bucket upper bounds
+ */
+public class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param bounds ascending upper bounds of buckets. The {@code +Inf} bucket is added implicitly
+     */
+    public Histogram(double... bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length];
+        Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    /**
+     * Adds the value to histogram
+     *
+     * @param value observed value
+     */
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        if (index < 0) index = -index - 1;
+        if (index < buckets.length) buckets[index].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Returns upper bounds of buckets without {@code +Inf}
+     *
+     * @return copy of bounds
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Returns cumulative counts of buckets without {@code +Inf}
+     *
+     * @return counts of values less than or equal to the bound of each bucket
+     */
+    public long[] getCumulativeCounts() {
+        long[] result = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            result[i] = total;
+        }
+        return result;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+}
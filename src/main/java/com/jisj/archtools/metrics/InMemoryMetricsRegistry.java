@@ -0,0 +1,175 @@
+package com.jisj.archtools.metrics;
+
+import com.jisj.archtools.Type;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link MetricsRecorder}. Aggregates samples per operation, archive type and engine in memory.
+ * <p>The metrics are exported in <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text format</a>
+ * by {@link #toPrometheusText()} and {@link #writePrometheus(Path)}
+ */
+public class InMemoryMetricsRegistry implements MetricsRecorder {
+    static final double[] SECONDS_BOUNDS = {0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600};
+    static final double[] SPAWN_BOUNDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1};
+    static final double[] RATE_BOUNDS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final Map<Key, Series> series = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(OperationSample sample) {
+        series.computeIfAbsent(new Key(sample.operation(), sample.type(), sample.engine()), k -> new Series())
+                .add(sample);
+    }
+
+    /**
+     * Returns aggregated series
+     *
+     * @return unmodifiable view of series by key
+     */
+    public Map<Key, Series> getSeries() {
+        return Collections.unmodifiableMap(series);
+    }
+
+    /**
+     * Removes all series
+     */
+    public void clear() {
+        series.clear();
+    }
+
+    /**
+     * Returns all metrics in Prometheus text format
+     *
+     * @return text of metrics
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+        header(sb, "archtools_operations_total", "counter", "Count of archive operations by outcome");
+        series.forEach((key, s) -> s.outcomes.forEach((outcome, counter) -> {
+            if (counter.sum() > 0)
+                sb.append("archtools_operations_total{").append(key.labels())
+                        .append(",outcome=\"").append(outcome.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                        .append(counter.sum()).append('\n');
+        }));
+        header(sb, "archtools_bytes_read_total", "counter", "Bytes read by archive operations");
+        series.forEach((key, s) -> sb.append("archtools_bytes_read_total{").append(key.labels()).append("} ")
+                .append(s.bytesRead.sum()).append('\n'));
+        header(sb, "archtools_bytes_written_total", "counter", "Bytes written by archive operations");
+        series.forEach((key, s) -> sb.append("archtools_bytes_written_total{").append(key.labels()).append("} ")
+                .append(s.bytesWritten.sum()).append('\n'));
+        header(sb, "archtools_operation_seconds", "histogram", "Wall time of archive operations");
+        series.forEach((key, s) -> histogram(sb, "archtools_operation_seconds", key, s.wallTime));
+        header(sb, "archtools_process_spawn_seconds", "histogram", "Start latency of native archive processes");
+        series.forEach((key, s) -> histogram(sb, "archtools_process_spawn_seconds", key, s.spawnLatency));
+        header(sb, "archtools_entries_per_second", "histogram", "Throughput of archive operations in entries per second");
+        series.forEach((key, s) -> histogram(sb, "archtools_entries_per_second", key, s.entriesRate));
+        return sb.toString();
+    }
+
+    /**
+     * Writes metrics in Prometheus text format to file. The file is replaced atomically,
+     * so it can be read by the textfile collector at any moment
+     *
+     * @param file target file
+     * @throws IOException on file operations
+     */
+    public void writePrometheus(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        Files.writeString(tmp, toPrometheusText());
+        Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder sb, String name, Key key, Histogram histogram) {
+        if (histogram.getCount() == 0) return;
+        double[] bounds = histogram.getBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++)
+            sb.append(name).append("_bucket{").append(key.labels()).append(",le=\"").append(bounds[i]).append("\"} ")
+                    .append(counts[i]).append('\n');
+        sb.append(name).append("_bucket{").append(key.labels()).append(",le=\"+Inf\"} ")
+                .append(histogram.getCount()).append('\n');
+        sb.append(name).append("_sum{").append(key.labels()).append("} ").append(histogram.getSum()).append('\n');
+        sb.append(name).append("_count{").append(key.labels()).append("} ").append(histogram.getCount()).append('\n');
+    }
+
+    /**
+     * Key of series
+     *
+     * @param operation measured operation
+     * @param type      archive type
+     * @param engine    archive engine name
+     */
+    public record Key(Operation operation, Type type, String engine) {
+        String labels() {
+            return "operation=\"" + operation.name().toLowerCase(Locale.ROOT) +
+                    "\",type=\"" + type.name().toLowerCase(Locale.ROOT) +
+                    "\",engine=\"" + engine.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+
+    /**
+     * Aggregated measurements of one key
+     */
+    public static class Series {
+        private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final Histogram wallTime = new Histogram(SECONDS_BOUNDS);
+        private final Histogram spawnLatency = new Histogram(SPAWN_BOUNDS);
+        private final Histogram entriesRate = new Histogram(RATE_BOUNDS);
+
+        Series() {
+            for (Outcome outcome : Outcome.values()) outcomes.put(outcome, new LongAdder());
+        }
+
+        void add(OperationSample sample) {
+            outcomes.get(sample.outcome()).increment();
+            bytesRead.add(sample.bytesRead());
+            bytesWritten.add(sample.bytesWritten());
+            wallTime.observe(sample.wallNanos() / 1e9);
+            if (sample.spawnNanos() >= 0) spawnLatency.observe(sample.spawnNanos() / 1e9);
+            if (sample.outcome() == Outcome.SUCCESS && sample.entriesPerSecond() > 0)
+                entriesRate.observe(sample.entriesPerSecond());
+        }
+
+        public long getCount(Outcome outcome) {
+            return outcomes.get(outcome).sum();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+
+        public Histogram getWallTime() {
+            return wallTime;
+        }
+
+        public Histogram getSpawnLatency() {
+            return spawnLatency;
+        }
+
+        public Histogram getEntriesRate() {
+            return entriesRate;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.jisj.archtools.metrics;
+
+import com.jisj.archtools.Type;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Global access point of the operation metrics.
+ * <p>Default recorder is {@link InMemoryMetricsRegistry}. Usage: <pre>{@code
+ *     InMemoryMetricsRegistry registry = (InMemoryMetricsRegistry) Metrics.getRecorder();
+ *     ...
+ *     registry.writePrometheus(Path.of("/var/lib/node_exporter/arch-tools.prom"));
+ * }</pre>
+ */
+public final class Metrics {
+    private static volatile MetricsRecorder recorder = new InMemoryMetricsRegistry();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns current recorder
+     *
+     * @return {@code MetricsRecorder}
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Sets the global recorder
+     *
+     * @param recorder new recorder. Use {@link MetricsRecorder#NOOP} to switch off the metrics
+     */
+    public static void setRecorder(MetricsRecorder recorder) {
+        Metrics.recorder = Objects.requireNonNull(recorder);
+    }
+
+    /**
+     * Starts measurement of the operation
+     *
+     * @param operation measured operation
+     * @param archive   archive path. The type is detected by {@link Type#getType(Path)}
+     * @param engine    name of archive engine
+     * @return started timer
+     */
+    public static OperationTimer start(Operation operation, Path archive, String engine) {
+        return new OperationTimer(recorder, operation, Type.getType(archive), engine, archive);
+    }
+
+    /**
+     * Starts measurement of the operation
+     *
+     * @param operation measured operation
+     * @param type      archive type
+     * @param engine    name of archive engine
+     * @return started timer
+     */
+    public static OperationTimer start(Operation operation, Type type, String engine) {
+        return new OperationTimer(recorder, operation, type, engine, null);
+    }
+
+    /**
+     * Returns the engine name of native util: file name without extension
+     *
+     * @param utilPath path of native util
+     * @return engine name. Example: {@code 7z} for {@code C:/Program Files/7-Zip/7z.exe}
+     */
+    public static String engineOf(Path utilPath) {
+        String name = utilPath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jisj.archtools.metrics;
+
+/**
+ * Service provider interface for metrics of archive operations
+ *
+ * @see Metrics#setRecorder(MetricsRecorder)
+ */
+@FunctionalInterface
+public interface MetricsRecorder {
+    /**
+     * Recorder which ignores all samples
+     */
+    MetricsRecorder NOOP = sample -> {
+    };
+
+    /**
+     * Records measurements of completed operation. Called by the thread which performed the operation
+     *
+     * @param sample operation measurements
+     */
+    void record(OperationSample sample);
+}
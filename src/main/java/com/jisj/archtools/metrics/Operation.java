@@ -0,0 +1,39 @@
+package com.jisj.archtools.metrics;
+
+/**
+ * Measured archive operations
+ */
+public enum Operation {
+    /**
+     * {@link com.jisj.archtools.Extractor#extractTo(java.nio.file.Path, java.nio.file.Path) Extractor.extractTo}
+     */
+    EXTRACT,
+    /**
+     * {@link com.jisj.archtools.Extractor#getFileList(java.nio.file.Path) Extractor.getFileList}
+     */
+    LIST,
+    /**
+     * {@link com.jisj.archtools.Extractor#test(java.nio.file.Path) Extractor.test}
+     */
+    TEST,
+    /**
+     * {@link com.jisj.archtools.Packer#packOfFolder(java.nio.file.Path, java.nio.file.Path) Packer.packOfFolder}
+     */
+    PACK,
+    /**
+     * {@link com.jisj.archtools.Controller#create(java.nio.file.Path) Controller.create}
+     */
+    CREATE,
+    /**
+     * {@link com.jisj.archtools.Controller#addFiles Controller.addFiles}
+     */
+    ADD,
+    /**
+     * {@link com.jisj.archtools.Controller#removeFiles Controller.removeFiles}
+     */
+    REMOVE,
+    /**
+     * {@link com.jisj.archtools.conv.Converter#convert() Converter.convert}
+     */
+    CONVERT
+}
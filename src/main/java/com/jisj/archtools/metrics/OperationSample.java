@@ -0,0 +1,37 @@
+package com.jisj.archtools.metrics;
+
+import com.jisj.archtools.Type;
+
+/**
+ * Measurements of one completed operation
+ *
+ * @param operation    measured operation
+ * @param type         archive type
+ * @param engine       name of archive engine: native util name, {@code zipfs}, {@code tar}
+ * @param spawnNanos   native process start latency in nanoseconds. {@code -1} if no process was started
+ * @param wallNanos    wall time of the operation in nanoseconds
+ * @param bytesRead    bytes read by the operation. {@code 0} if unknown
+ * @param bytesWritten bytes written by the operation. {@code 0} if unknown
+ * @param entries      count of processed archive entries. {@code 0} if unknown
+ * @param outcome      operation result
+ */
+public record OperationSample(Operation operation,
+                              Type type,
+                              String engine,
+                              long spawnNanos,
+                              long wallNanos,
+                              long bytesRead,
+                              long bytesWritten,
+                              long entries,
+                              Outcome outcome) {
+
+    /**
+     * Returns processed entries per second
+     *
+     * @return entries per second or {@code 0} if entries count or wall time is unknown
+     */
+    public double entriesPerSecond() {
+        if (entries <= 0 || wallNanos <= 0) return 0;
+        return entries * 1e9 / wallNanos;
+    }
+}
@@ -0,0 +1,127 @@
+package com.jisj.archtools.metrics;
+
+import com.jisj.archtools.Type;
+import com.jisj.archtools.jfr.ArchiveOperationEvent;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Collects measurements of one operation and emits {@link ArchiveOperationEvent} to JDK Flight Recorder. Not thread-safe.
+ * <p>Outcome is {@link Outcome#FAILURE} until {@link #success()} or {@link #timeout()} is called.
+ * Usage: <pre>{@code
+ *     OperationTimer timer = Metrics.start(Operation.EXTRACT, archive, "7z");
+ *     try {
+ *         Process process = builder.start();
+ *         timer.spawned(process);
+ *         ...
+ *         timer.success();
+ *     } catch (TimeOutException e) {
+ *         timer.timeout();
+ *         throw e;
+ *     } finally {
+ *         timer.stop();
+ *     }
+ * }</pre>
+ */
+public class OperationTimer {
+    private final MetricsRecorder recorder;
+    private final Operation operation;
+    private final Type type;
+    private final String engine;
+    private final Path archive;
+    private final ArchiveOperationEvent event = new ArchiveOperationEvent();
+    private final long startNanos = System.nanoTime();
+    private long spawnNanos = -1;
+    private List<String> command;
+    private Process process;
+    private long bytesRead;
+    private long bytesWritten;
+    private long entries;
+    private Outcome outcome = Outcome.FAILURE;
+    private boolean stopped;
+
+    OperationTimer(MetricsRecorder recorder, Operation operation, Type type, String engine, Path archive) {
+        this.recorder = recorder;
+        this.operation = operation;
+        this.type = type;
+        this.engine = engine;
+        this.archive = archive;
+        event.begin();
+    }
+
+    /**
+     * Marks the moment when the native process was started
+     */
+    public void spawned() {
+        spawnNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Marks the moment when the native process was started. Exit code of the process is taken on {@link #stop()}
+     *
+     * @param process started process
+     */
+    public void spawned(Process process) {
+        spawned();
+        this.process = process;
+    }
+
+    /**
+     * Sets command line of native process
+     *
+     * @param command command and arguments
+     */
+    public void command(List<String> command) {
+        this.command = command;
+    }
+
+    public void bytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    public void bytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    public void entries(long count) {
+        entries += count;
+    }
+
+    public void success() {
+        outcome = Outcome.SUCCESS;
+    }
+
+    public void timeout() {
+        outcome = Outcome.TIMEOUT;
+    }
+
+    /**
+     * Stops the measurement and passes the sample to recorder. Next calls are ignored
+     */
+    public void stop() {
+        if (stopped) return;
+        stopped = true;
+        recorder.record(new OperationSample(operation, type, engine, spawnNanos, System.nanoTime() - startNanos,
+                bytesRead, bytesWritten, entries, outcome));
+        commitEvent();
+    }
+
+    private void commitEvent() {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.operation = operation.name();
+        event.archiveType = type.name();
+        event.engine = engine;
+        event.archive = archive == null ? null : archive.toAbsolutePath().toString();
+        event.command = command == null ? null : String.join(" ", command);
+        event.pid = process == null ? -1 : process.pid();
+        event.exitCode = process == null || process.isAlive() ? -1 : process.exitValue();
+        event.spawnDuration = spawnNanos;
+        event.bytesRead = bytesRead;
+        event.bytesWritten = bytesWritten;
+        event.entries = entries;
+        event.outcome = outcome.name();
+        event.commit();
+    }
+}
@@ -0,0 +1,19 @@
+package com.jisj.archtools.metrics;
+
+/**
+ * Result of the measured operation
+ */
+public enum Outcome {
+    /**
+     * Operation completed successfully
+     */
+    SUCCESS,
+    /**
+     * Operation failed with exception or non-zero exit code
+     */
+    FAILURE,
+    /**
+     * Operation was broken by timeout
+     */
+    TIMEOUT
+}
@@ -0,0 +1,97 @@
+package com.jisj.archtools;
+
+import com.jisj.archtools.cmd.CmdExtractUtil;
+import com.jisj.archtools.impl.ExtractorNative;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static com.jisj.archtools.cmd.CmdUtil.encloseInQuotations;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ArchiveFutureTest {
+    private static final Path testFolder = Path.of("target/test-data/async-test");
+    private static final Path script = testFolder.resolve("slow-util.sh");
+    private static final Path archive = testFolder.resolve("archive.zip");
+
+    /**
+     * Writes files to destination and hangs
+     */
+    record SlowCmd(Path utilPath) implements CmdExtractUtil {
+        @Override
+        public String extractToDestinationCmd(Path archive, Path destination) {
+            return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " " +
+                    encloseInQuotations(destination.toAbsolutePath().toString());
+        }
+
+        @Override
+        public String getFileListCmd(Path archive) {
+            return encloseInQuotations(utilPath.toAbsolutePath().toString()) + " " +
+                    encloseInQuotations(archive.toAbsolutePath().getParent().resolve("list").toString());
+        }
+
+        @Override
+        public Path getUtilPath() {
+            return utilPath;
+        }
+    }
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.writeString(script, """
+                #!/bin/sh
+                mkdir -p "$1/partial"
+                echo data > "$1/partial/file.txt"
+                sleep 30
+                """);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Files.writeString(archive, "fake");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) Thread.sleep(50);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void extractToAsync_cancel() throws Exception {
+        Path destination = Files.createDirectories(testFolder.resolve("destination"));
+        Files.writeString(destination.resolve("existing.txt"), "keep");
+        ExtractorNative extractor = new ExtractorNative(new SlowCmd(script));
+
+        CompletableFuture<Void> future = extractor.extractToAsync(archive, destination);
+        await(() -> Files.exists(destination.resolve("partial/file.txt")));
+        assertTrue(future.cancel(true));
+        assertThrows(CancellationException.class, future::join);
+
+        await(() -> !Files.exists(destination.resolve("partial")));
+        assertTrue(Files.exists(destination.resolve("existing.txt")));
+        await(() -> ProcessHandle.current().descendants().noneMatch(ProcessHandle::isAlive));
+    }
+
+    @Test
+    void getFileListAsync() throws Exception {
+        ExtractorNative extractor = new ExtractorNative(new SlowCmd(script));
+        CompletableFuture<List<String>> future = extractor.getFileListAsync(archive);
+        await(() -> Files.exists(testFolder.resolve("list/partial/file.txt")));
+        future.cancel(true);
+        await(() -> ProcessHandle.current().descendants().noneMatch(ProcessHandle::isAlive));
+
+        ArchiveFuture<String> done = ArchiveFuture.callAsync(() -> "result");
+        assertEquals("result", done.get());
+    }
+}
@@ -0,0 +1,60 @@
+package com.jisj.archtools.cache;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+    static Path testFolder = Path.of("target/test-data/blob-store-test");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+    }
+
+    @Test
+    void putAndCopy() throws IOException {
+        Path file = Files.writeString(testFolder.resolve("a.txt"), "shared content");
+        Path copy = Files.writeString(testFolder.resolve("b.txt"), "shared content");
+        BlobStore store = new BlobStore(testFolder.resolve("blobs"));
+        assertEquals(1.0, store.getDedupeRatio());
+
+        BlobStore.BlobKey key = store.put(file);
+        CRC32 crc = new CRC32();
+        crc.update("shared content".getBytes());
+        assertEquals(14, key.size());
+        assertEquals(crc.getValue(), key.crc32());
+        assertEquals(key, store.put(copy));
+        assertEquals(Optional.of(key), store.find(14, crc.getValue()));
+        assertEquals(Optional.empty(), store.find(14, 0));
+
+        Path target = testFolder.resolve("out").resolve("c.txt");
+        FileTime time = FileTime.fromMillis(1_000_000_000_000L);
+        FileTime stored = Files.getLastModifiedTime(file);
+        store.copyTo(key, target, time);
+        assertEquals("shared content", Files.readString(target));
+        assertEquals(time, Files.getLastModifiedTime(target));
+        assertEquals(stored, Files.getLastModifiedTime(file));
+        assertEquals(14, store.getStoredBytes());
+        assertEquals(42, store.getLogicalBytes());
+        assertEquals(28, store.getReusedBytes());
+        assertEquals(3.0, store.getDedupeRatio());
+
+        BlobStore reopened = new BlobStore(testFolder.resolve("blobs"));
+        assertTrue(reopened.contains(key));
+        assertEquals(Optional.of(key), reopened.find(14, crc.getValue()));
+        assertThrows(NoSuchFileException.class,
+                () -> reopened.copyTo(new BlobStore.BlobKey(1, 0, "0".repeat(64)), testFolder.resolve("none.txt"), null));
+    }
+}
@@ -0,0 +1,117 @@
+package com.jisj.archtools.cache;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.EntryHandler;
+import com.jisj.archtools.EntryVisitor;
+import com.jisj.archtools.Extractor;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.conv.NativeProvider;
+import com.jisj.archtools.impl.ExtractorTar;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListingCacheTest {
+    static Path testFolder = Path.of("target/test-data/listing-cache-test");
+    static Path filesFolder = testFolder.resolve("files");
+    static Path archive = testFolder.resolve("archive.tar");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder);
+        Files.writeString(filesFolder.resolve("file1.txt"), "Text from file1.txt");
+        new PackerTar().packOfFolder(archive, filesFolder);
+    }
+
+    @Test
+    void getFileList() throws IOException {
+        ListingCache cache = new ListingCache();
+        cache.setPersistentFolder(testFolder.resolve("cache"));
+        Extractor extractor = new NativeProvider().withListingCache(cache).getExtractor(Type.TAR).orElseThrow();
+        assertInstanceOf(CachingExtractor.class, extractor);
+
+        List<String> names = extractor.getFileList(archive);
+        assertEquals(names, extractor.getFileList(archive));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        ListingCache restored = new ListingCache();
+        restored.setPersistentFolder(testFolder.resolve("cache"));
+        assertEquals(names, new CachingExtractor(extractor, restored).getFileList(archive));
+        assertEquals(1, restored.getPersistentHits());
+
+        Files.writeString(filesFolder.resolve("file2.txt"), "Text from file2.txt");
+        new PackerTar().packOfFolder(archive, filesFolder);
+        assertEquals(2, extractor.getFileList(archive).size());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void delegation() throws IOException {
+        // own archive: getFileList test repacks the shared one
+        Path archive = testFolder.resolve("delegation.tar");
+        Path folder = Files.createDirectories(testFolder.resolve("delegation"));
+        Files.writeString(folder.resolve("file1.txt"), "Text from file1.txt");
+        new PackerTar().packOfFolder(archive, folder);
+        List<String> calls = new ArrayList<>();
+        CachingExtractor extractor = new CachingExtractor(new ExtractorTar() {
+            @Override
+            public void readEntries(Path archive, Collection<String> names, EntryHandler handler) throws ArchiveException {
+                calls.add("readEntries");
+                super.readEntries(archive, names, handler);
+            }
+
+            @Override
+            public void forEachEntry(Path archive, EntryVisitor visitor) throws ArchiveException {
+                calls.add("forEachEntry");
+                super.forEachEntry(archive, visitor);
+            }
+
+            @Override
+            public Map<String, ByteBuffer> extractToMemory(Path archive, long maxBytes) throws ArchiveException {
+                calls.add("extractToMemory");
+                return super.extractToMemory(archive, maxBytes);
+            }
+        }, new ListingCache());
+        List<Long> done = new ArrayList<>();
+        extractor.setBytesProgressListener((bytesDone, bytesTotal) -> done.add(bytesDone));
+        extractor.extractTo(archive, Files.createDirectories(testFolder.resolve("extracted")));
+        assertFalse(done.isEmpty());
+        assertEquals(Files.size(archive), done.getLast());
+
+        List<String> read = new ArrayList<>();
+        extractor.readEntries(archive, List.of("file1.txt"), (entry, content) -> read.add(new String(content.readAllBytes())));
+        assertEquals(List.of("Text from file1.txt"), read);
+        assertEquals(List.of("file1.txt"), List.copyOf(extractor.extractToMemory(archive, 1024).keySet()));
+        extractor.forEachEntry(archive, (entry, content) -> read.add(entry.name()));
+        assertEquals(List.of("Text from file1.txt", "file1.txt"), read);
+        assertEquals(List.of("readEntries", "extractToMemory", "forEachEntry"), calls);
+    }
+
+    @Test
+    void eviction() {
+        ListingCache cache = new ListingCache(3);
+        ArchiveKey first = new ArchiveKey("a", 1, 1, "null");
+        ArchiveKey second = new ArchiveKey("b", 1, 1, "null");
+        cache.put(first, List.of("1", "2"));
+        cache.put(second, List.of("3", "4"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.get(first).isEmpty());
+        assertTrue(cache.get(second).isPresent());
+    }
+}
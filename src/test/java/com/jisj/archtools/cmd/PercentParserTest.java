@@ -0,0 +1,34 @@
+package com.jisj.archtools.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentParserTest {
+
+    private static List<Integer> parse(String output) {
+        List<Integer> result = new ArrayList<>();
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        new PercentParser(result::add).accept(bytes, 0, bytes.length);
+        return result;
+    }
+
+    @Test
+    void sevenZip() {
+        assertEquals(List.of(0, 12, 100), parse("  0%\b\b\b\b 12% 3 - file_50.txt\b\b\b\b\b\b\b\b 12% 4 - a\b\b\b100%\nEverything is Ok\n"));
+    }
+
+    @Test
+    void unrar() {
+        assertEquals(List.of(5, 47, 99), parse("Extracting  file.txt      5%\b\b\b\b 47%\b\b\b\b 99%\b\b\b\b  OK \n"));
+    }
+
+    @Test
+    void notPercentage() {
+        assertEquals(List.of(), parse("file50%.txt 1234% x%"));
+    }
+}
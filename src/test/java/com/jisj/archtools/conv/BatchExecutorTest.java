@@ -0,0 +1,61 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.Type;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchExecutorTest {
+    static Path testFolder = Path.of("target/test-data/batch-executor-test");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Path files = Files.createDirectories(testFolder.resolve("files"));
+        Files.writeString(files.resolve("a.txt"), "a");
+        Files.writeString(files.resolve("b.txt"), "b");
+        for (int i = 0; i < 3; i++) new PackerTar().packOfFolder(testFolder.resolve("archive" + i + ".tar"), files);
+    }
+
+    @Test
+    void runAll() throws InterruptedException {
+        List<String> steps = Collections.synchronizedList(new ArrayList<>());
+        List<Converter> converters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Converter converter = Converter.builder(new NativeProvider())
+                    .sourceArchive(testFolder.resolve("archive" + i + ".tar"))
+                    .destinationFolder(testFolder.resolve("out"))
+                    .temporaryFolder(testFolder.resolve("tmp"))
+                    .targetFormat(Type.TAR_GZ)
+                    .options(Converter.Options.TEST_BEFORE, Converter.Options.COMPARE)
+                    .build();
+            converter.setStepMessageListener(steps::add);
+            converters.add(converter);
+        }
+        Map<Converter, Boolean> results = new BatchExecutor().runAll(converters);
+
+        assertEquals(converters, List.copyOf(results.keySet()));
+        assertTrue(results.values().stream().allMatch(Boolean::booleanValue));
+        assertTrue(steps.contains("Converting : Testing - archive0.tar"));
+        assertTrue(steps.contains("Converting : Tested ahead - archive1.tar"));
+        assertTrue(steps.contains("Converting : Tested ahead - archive2.tar"));
+        assertTrue(Files.exists(testFolder.resolve("out").resolve("archive2.tar.gz")));
+    }
+
+    @Test
+    void setPrefetchDepth() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchExecutor().setPrefetchDepth(-1));
+    }
+}
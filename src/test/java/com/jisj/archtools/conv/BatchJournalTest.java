@@ -0,0 +1,154 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.Extractor;
+import com.jisj.archtools.Packer;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.cache.ArchiveKey;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchJournalTest {
+    static Path testFolder = Path.of("target/test-data/journal-test");
+    static Path filesFolder = testFolder.resolve("files");
+    static Path journalFile = testFolder.resolve("batch.journal");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder);
+        Files.writeString(filesFolder.resolve("file1.txt"), "Text from file1.txt");
+        new PackerTar().packOfFolder(testFolder.resolve("done.tar"), filesFolder);
+        new PackerTar().packOfFolder(testFolder.resolve("interrupted.tar"), filesFolder);
+        new PackerTar().packOfFolder(testFolder.resolve("workspace.tar"), filesFolder);
+        new PackerTar().packOfFolder(testFolder.resolve("failed.tar"), filesFolder);
+    }
+
+    private static Converter converter(Path archive) {
+        return Converter.builder(new NativeProvider())
+                .sourceArchive(archive)
+                .destinationFolder(testFolder.resolve("out"))
+                .temporaryFolder(testFolder.resolve("tmp"))
+                .targetFormat(Type.TAR_GZ)
+                .options(Converter.Options.COMPARE)
+                .build();
+    }
+
+    @Test
+    void resume() throws IOException {
+        Converter done = converter(testFolder.resolve("done.tar"));
+        try (BatchJournal journal = BatchJournal.open(journalFile)) {
+            assertTrue(journal.convert(done));
+        }
+        Files.setLastModifiedTime(done.getDestinationArchive(), FileTime.fromMillis(0));
+
+        Converter interrupted = converter(testFolder.resolve("interrupted.tar"));
+        Files.writeString(interrupted.getDestinationArchive(), "partial");
+        Files.createDirectories(interrupted.getTemporaryArchiveFolder());
+        Files.writeString(journalFile, String.join("\t", "1", "STARTED",
+                ArchiveKey.of(interrupted.getSourceArchive()).id(),
+                interrupted.getSourceArchive().toString(), interrupted.getDestinationArchive().toString(),
+                interrupted.getTemporaryArchiveFolder().toString(), "-1", "") + "\n1\tDO", StandardOpenOption.APPEND);
+
+        try (BatchJournal journal = BatchJournal.open(journalFile)) {
+            assertTrue(journal.isDone(done.getSourceArchive()));
+            assertEquals(BatchJournal.Status.VERIFIED, journal.lastEntry(done.getSourceArchive()).orElseThrow().status());
+            assertEquals(1, journal.recoverInterrupted().size());
+            assertFalse(Files.exists(interrupted.getDestinationArchive()));
+            assertFalse(Files.exists(interrupted.getTemporaryArchiveFolder()));
+
+            assertTrue(journal.convert(converter(done.getSourceArchive())));
+            assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(done.getDestinationArchive()));
+            assertTrue(journal.convert(interrupted));
+            journal.compact();
+        }
+        try (BatchJournal journal = BatchJournal.open(journalFile)) {
+            assertEquals(2, journal.entries().size());
+            assertTrue(journal.isDone(interrupted.getSourceArchive()));
+        }
+    }
+
+    @Test
+    void workspace() throws IOException {
+        Path journalFile = testFolder.resolve("workspace.journal");
+        try (WorkspaceManager workspaces = new WorkspaceManager(testFolder.resolve("workspaces"))) {
+            Converter converter = Converter.builder(new NativeProvider())
+                    .sourceArchive(testFolder.resolve("workspace.tar"))
+                    .destinationFolder(testFolder.resolve("workspace-out"))
+                    .workspaceManager(workspaces)
+                    .targetFormat(Type.TAR_GZ)
+                    .build();
+            try (BatchJournal journal = BatchJournal.open(journalFile)) {
+                assertTrue(journal.convert(converter));
+            }
+            workspaces.awaitCleanup().join();
+
+            // crash after the workspace acquiring: the journal ends with STARTED record of the workspace
+            List<String> lines = new ArrayList<>(Files.readAllLines(journalFile));
+            lines.removeLast();
+            String started = lines.getLast();
+            assertTrue(started.contains("\tSTARTED\t"));
+            Path folder = converter.getTemporaryArchiveFolder();
+            assertTrue(started.contains(folder.toString()));
+            Files.write(journalFile, lines);
+            Files.createDirectories(folder.resolve("files"));
+
+            try (BatchJournal journal = BatchJournal.open(journalFile)) {
+                assertEquals(folder, journal.recoverInterrupted().getFirst().temporaryFolder());
+                assertFalse(Files.exists(folder));
+            }
+        }
+    }
+
+    @Test
+    void failed() throws IOException {
+        Path journalFile = testFolder.resolve("failed.journal");
+        UtilProvider provider = new UtilProvider() {
+            @Override
+            public Optional<Packer> getPacker(Type archiveType) {
+                return Optional.of(new PackerTar() {
+                    @Override
+                    public void packOfFolder(Path archive, Path filesFolder) throws ArchiveException {
+                        try {
+                            Files.writeString(archive, "partial");
+                        } catch (IOException e) {
+                            throw new ArchiveException(e);
+                        }
+                        throw new ArchiveException("Packing is broken");
+                    }
+                });
+            }
+
+            @Override
+            public Optional<Extractor> getExtractor(Type archiveType) {
+                return new NativeProvider().getExtractor(archiveType);
+            }
+        };
+        Converter converter = Converter.builder(provider)
+                .sourceArchive(testFolder.resolve("failed.tar"))
+                .destinationFolder(testFolder.resolve("failed-out"))
+                .temporaryFolder(testFolder.resolve("failed-tmp"))
+                .targetFormat(Type.TAR_GZ)
+                .build();
+        try (BatchJournal journal = BatchJournal.open(journalFile)) {
+            assertFalse(journal.convert(converter));
+            assertEquals(BatchJournal.Status.FAILED, journal.lastEntry(converter.getSourceArchive()).orElseThrow().status());
+            assertFalse(Files.exists(converter.getDestinationArchive()));
+            assertEquals(Converter.Options.PACKING, converter.getState().step());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionSchedulerTest {
+    static Path testFolder = Path.of("target/test-data/scheduler-test");
+    static Path filesFolder = testFolder.resolve("files");
+    static List<Path> archives = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder);
+        for (int i = 1; i <= 3; i++) {
+            Files.writeString(filesFolder.resolve("file" + i + ".txt"), "Text from file".repeat(100 * i));
+            Path archive = testFolder.resolve("archive" + i + ".tar");
+            new PackerTar().packOfFolder(archive, filesFolder);
+            archives.add(archive);
+        }
+    }
+
+    private static Converter converter(Path archive) {
+        return Converter.builder(new NativeProvider())
+                .sourceArchive(archive)
+                .destinationFolder(testFolder.resolve("out"))
+                .temporaryFolder(testFolder.resolve("tmp"))
+                .targetFormat(Type.TAR_GZ)
+                .build();
+    }
+
+    @Test
+    void runAll() throws Exception {
+        ConversionScheduler scheduler = new ConversionScheduler();
+        ConversionScheduler.Estimate estimate = scheduler.estimate(converter(archives.get(2)));
+        assertTrue(estimate.exact());
+        assertEquals(1400 * 6, estimate.temporaryBytes());
+
+        List<Converter> converters = archives.stream().map(ConversionSchedulerTest::converter).toList();
+        Map<Converter, Boolean> results = scheduler.runAll(converters);
+        assertEquals(converters, List.copyOf(results.keySet()));
+        assertTrue(results.values().stream().allMatch(r -> r));
+        for (Converter converter : converters) assertTrue(Files.exists(converter.getDestinationArchive()));
+    }
+
+    @Test
+    void notEnoughSpace() throws Exception {
+        ConversionScheduler scheduler = new ConversionScheduler();
+        scheduler.setBudgetRatio(Double.MIN_VALUE);
+        Converter converter = Converter.builder(new NativeProvider())
+                .sourceArchive(archives.getFirst())
+                .destinationFolder(testFolder.resolve("out-none"))
+                .temporaryFolder(testFolder.resolve("tmp"))
+                .targetFormat(Type.TAR_GZ)
+                .build();
+        assertFalse(scheduler.runAll(List.of(converter)).get(converter));
+        assertFalse(Files.exists(converter.getDestinationArchive()));
+        assertEquals(Converter.Options.START, converter.getState().step());
+        assertInstanceOf(ArchiveException.class, converter.getState().exception());
+    }
+}
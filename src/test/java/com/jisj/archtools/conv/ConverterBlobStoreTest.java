@@ -0,0 +1,82 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.Extractor;
+import com.jisj.archtools.Packer;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.cache.BlobStore;
+import com.jisj.archtools.cache.ListingCache;
+import com.jisj.archtools.cmd.ZipCmd;
+import com.jisj.archtools.impl.ExtractorNative;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConverterBlobStoreTest {
+    static Path testFolder = Path.of("target/test-data/converter-blob-store-test");
+    static Path script = testFolder.resolve("fake-7z.sh");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        // Stand-in for 7z: archive is a text file with "name size" lines, the extracted file content is its name with line feed
+        Files.writeString(script, """
+                #!/bin/sh
+                cmd=$1; shift
+                while [ "${1#-}" != "$1" ]; do shift; done
+                archive=$1; shift
+                case "$cmd" in
+                  l) echo "Listing archive: $archive"; echo "--"; echo "Path = $archive"; echo "Type = 7z"
+                     echo "Solid = -"; echo; echo "----------"
+                     while read -r name size; do echo "Path = $name"; echo "Size = $size"; echo; done < "$archive" ;;
+                  x) dest="${1#-o}"
+                     while read -r name size; do echo "$name" > "$dest/$name"; done < "$archive" ;;
+                esac
+                """);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void unPack_cachingExtractor() throws IOException {
+        Path archive = Files.write(testFolder.resolve("source.7z"), List.of("a.txt 6"));
+        UtilProvider provider = new UtilProvider() {
+            @Override
+            public Optional<Packer> getPacker(Type archiveType) {
+                return Optional.of(new PackerTar());
+            }
+
+            @Override
+            public Optional<Extractor> getExtractor(Type archiveType) {
+                return Optional.of(new ExtractorNative(new ZipCmd(script)));
+            }
+        };
+        BlobStore store = new BlobStore(testFolder.resolve("blobs"));
+        Converter converter = Converter.builder(provider.withListingCache(new ListingCache()))
+                .sourceArchive(archive)
+                .destinationFolder(testFolder.resolve("out"))
+                .temporaryFolder(testFolder.resolve("tmp"))
+                .targetFormat(Type.TAR)
+                .blobStore(store, false)
+                .build();
+        List<String> steps = new ArrayList<>();
+        converter.setStepMessageListener(steps::add);
+
+        assertTrue(converter.unPack());
+        assertTrue(steps.stream().anyMatch(step -> step.contains("Reused 0 of 1 files from blob store")), steps.toString());
+        assertEquals(6, store.getStoredBytes());
+    }
+}
@@ -0,0 +1,56 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.Type;
+import com.jisj.archtools.impl.PackerTar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConverterProgressTest {
+    static Path testFolder = Path.of("target/test-data/progress-test");
+    static Path archive = testFolder.resolve("archive.tar");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Path files = Files.createDirectories(testFolder.resolve("files"));
+        byte[] data = new byte[4 * 1024 * 1024];
+        new Random(1).nextBytes(data);
+        Files.write(files.resolve("big.bin"), data);
+        Files.writeString(files.resolve("small.txt"), "small");
+        new PackerTar().packOfFolder(archive, files);
+    }
+
+    @Test
+    void conversionProgress() {
+        Converter converter = Converter.builder(new NativeProvider())
+                .sourceArchive(archive)
+                .destinationFolder(testFolder.resolve("out"))
+                .temporaryFolder(testFolder.resolve("tmp"))
+                .targetFormat(Type.TAR_GZ)
+                .options(Converter.Options.COMPARE)
+                .build();
+        List<ConversionProgress> progress = new ArrayList<>();
+        converter.setConversionProgressListener(progress::add);
+        assertTrue(converter.convert());
+
+        assertTrue(progress.size() > 4);
+        for (int i = 1; i < progress.size(); i++)
+            assertTrue(progress.get(i).percent() >= progress.get(i - 1).percent());
+        assertTrue(progress.stream().anyMatch(p -> p.step() == Converter.Options.PACKING && p.percent() > 20 && p.percent() < 95));
+        ConversionProgress last = progress.getLast();
+        assertEquals(Converter.Options.ALL, last.step());
+        assertEquals(100.0, last.percent());
+        assertEquals(last.bytesTotal(), last.bytesDone());
+    }
+}
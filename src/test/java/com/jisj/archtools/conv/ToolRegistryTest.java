@@ -0,0 +1,64 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.Type;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ToolRegistryTest {
+    static Path testFolder = Path.of("target/test-data/tool-registry-test");
+    static Path bin = testFolder.resolve("bin");
+    static Path probes = testFolder.resolve("probes.log");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(bin);
+        Path script = bin.resolve("7zz");
+        Files.writeString(script, """
+                #!/bin/sh
+                echo probe >> "%s"
+                echo "7-Zip (z) 23.01 (x64) : Copyright (c) 1999-2023 Igor Pavlov"
+                echo "Usage: 7zz <command> [<switches>...] <archive_name>"
+                echo "  -ai[r[-|0]]{@listfile|!wildcard} : Include archives"
+                echo "  -bs{o|e|p}{0|1|2} : set output stream for output/error/progress line"
+                """.formatted(probes.toAbsolutePath()));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    void findOnPath() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("ZIP_EXTRACTOR", "/not/existing/7z");
+        ToolRegistry registry = new ToolRegistry(properties, Map.of("PATH", "/not/existing:" + bin.toAbsolutePath()));
+
+        ToolRegistry.ToolInfo info = registry.find(ToolRegistry.Tool.SEVEN_ZIP_EXTRACTOR).orElseThrow();
+        assertEquals(bin.resolve("7zz").toAbsolutePath(), info.path());
+        assertEquals("PATH", info.source());
+        assertEquals("23.01", info.version());
+        assertEquals(23, info.majorVersion());
+        assertTrue(info.supports("-ai"));
+        assertTrue(info.supports("-bs"));
+        assertTrue(registry.find(ToolRegistry.Tool.SEVEN_ZIP_PACKER).isPresent());
+        assertTrue(registry.find(ToolRegistry.Tool.RAR_EXTRACTOR).isEmpty());
+        assertEquals(1, Files.readAllLines(probes).size());
+
+        NativeProvider provider = new NativeProvider(registry);
+        assertTrue(provider.getExtractor(Type.ZIP).isPresent());
+        assertTrue(provider.getPacker(Type.S7Z).isPresent());
+        assertTrue(provider.getExtractor(Type.RAR).isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.jisj.archtools.conv;
+
+import com.jisj.archtools.ArchiveException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceManagerTest {
+    static Path testFolder = Path.of("target/test-data/workspace-test");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+    }
+
+    @Test
+    void acquireAndRelease() throws IOException {
+        Path root1 = testFolder.resolve("root1");
+        Path root2 = testFolder.resolve("root2");
+        try (WorkspaceManager manager = new WorkspaceManager(2, root1, root2)) {
+            manager.setQuota(100);
+            WorkspaceManager.Workspace first = manager.acquire("archive", 60);
+            WorkspaceManager.Workspace second = manager.acquire("archive", 60);
+            assertNotEquals(first.folder(), second.folder());
+            assertNotEquals(first.root(), second.root());
+            assertThrowsExactly(ArchiveException.class, () -> manager.acquire("archive", 60));
+
+            Files.createDirectories(first.folder().resolve("a/b/c"));
+            Files.writeString(first.folder().resolve("a/b/c/file.txt"), "text");
+            Files.writeString(first.folder().resolve("a/file.txt"), "text");
+            manager.release(first).join();
+            assertFalse(Files.exists(first.folder()));
+            assertEquals(0, manager.getReserved(first.root()));
+            assertEquals(60, manager.getReserved(second.root()));
+
+            manager.release(second);
+            manager.awaitCleanup().join();
+            assertFalse(Files.exists(second.folder()));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.Controller;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentClassifierTest {
+    static Path testFolder = Path.of("target/test-data/classifier-test");
+    static byte[] random = new byte[8192];
+    static byte[] text = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(100).getBytes();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        new Random(1).nextBytes(random);
+    }
+
+    @Test
+    void isIncompressible() {
+        ContentClassifier classifier = ContentClassifier.getDefault();
+        assertTrue(classifier.isIncompressible(random, "random.bin"));
+        assertFalse(classifier.isIncompressible(text, "text.txt"));
+        byte[] jpeg = text.clone();
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+        assertTrue(classifier.isIncompressible(jpeg, "photo"));
+        byte[] docx = text.clone();
+        System.arraycopy(new byte[]{'P', 'K', 3, 4}, 0, docx, 0, 4);
+        assertTrue(classifier.isIncompressible(docx, "report.docx"));
+        assertTrue(classifier.isIncompressible("ftyp".getBytes(), "small.JPG"));
+        assertFalse(classifier.isIncompressible("small".getBytes(), "small.txt"));
+
+        assertEquals(0, ContentClassifier.entropy(new byte[100]));
+        assertTrue(ContentClassifier.entropy(random) > 7.9);
+        assertThrows(IllegalArgumentException.class, () -> new ContentClassifier(100, 7.5));
+        assertThrows(IllegalArgumentException.class, () -> new ContentClassifier(4096, 9));
+    }
+
+    @Test
+    void addFilesStored() throws IOException {
+        Path randomFile = Files.write(testFolder.resolve("random.bin"), random);
+        Path textFile = Files.write(testFolder.resolve("text.txt"), text);
+        Path archive = testFolder.resolve("archive.zip");
+        ZipFileSystemController controller = new ZipFileSystemController();
+        controller.setContentClassifier(ContentClassifier.getDefault());
+        controller.create(archive);
+        assertEquals(List.of(), controller.addFiles(archive, List.of(randomFile, textFile), "", Controller.CopyOptions.REPLACE_EXISTING));
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("random.bin").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("text.txt").getMethod());
+        }
+    }
+}
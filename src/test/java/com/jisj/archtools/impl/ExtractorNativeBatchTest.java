@@ -0,0 +1,104 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.cmd.RarExtractCmd;
+import com.jisj.archtools.cmd.ZipCmd;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ExtractorNativeBatchTest {
+    static Path testFolder = Path.of("target/test-data/native-batch-test");
+    static Path script = testFolder.resolve("fake-7z.sh");
+    static Path starts = testFolder.resolve("starts.log");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        // Stand-in for 7z: archive is a text file with the list of names, "BROKEN" archive cannot be opened
+        Files.writeString(script, """
+                #!/bin/sh
+                echo start >> "%s"
+                for arg; do
+                  case "$arg" in
+                    -ai@*) list="${arg#-ai@}" ;;
+                    -o*) dest="${arg#-o}"; dest="${dest%%/\\*}" ;;
+                  esac
+                done
+                while read -r archive; do
+                  echo "Extracting archive: $archive"
+                  if grep -q BROKEN "$archive"; then echo "ERROR: $archive : Can not open the file as archive" >&2; continue; fi
+                  name="${archive##*/}"; out="$dest/${name%%.*}"; mkdir -p "$out"
+                  while read -r file; do echo "$file" > "$out/$file"; echo "- $file"; done < "$archive"
+                  echo "Everything is Ok"
+                done < "$list"
+                exit 0
+                """.formatted(starts.toAbsolutePath()));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    void extractBatch() throws IOException {
+        List<Path> archives = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path archive = testFolder.resolve("archive" + i + ".7z");
+            Files.write(archive, i == 7 ? List.of("BROKEN") : List.of("a" + i + ".txt", "b" + i + ".txt"));
+            archives.add(archive);
+        }
+        Path destination = Files.createDirectories(testFolder.resolve("out"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+
+        List<ExtractorNative.BatchResult> results = extractor.extractBatch(archives, destination);
+
+        assertEquals(1, Files.readAllLines(starts).size());
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            ExtractorNative.BatchResult result = results.get(i);
+            assertEquals(archives.get(i), result.archive());
+            assertEquals(destination.resolve("archive" + i), result.destination());
+            assertEquals(i != 7, result.success(), result.toString());
+            if (i != 7) assertTrue(Files.exists(result.destination().resolve("b" + i + ".txt")));
+        }
+        assertTrue(results.get(7).messages().getFirst().contains("Can not open"));
+
+        ZipCmd cmd = new ZipCmd(script);
+        assertTrue(cmd.isBatchError("ERROR: Data Error : a.txt"));
+        assertTrue(cmd.isBatchError("Open ERROR: Can not open the file as [7z] archive"));
+        assertFalse(cmd.isBatchError("- notes ERROR: draft.txt"));
+        assertFalse(cmd.isBatchError("Archives with Errors: 1"));
+    }
+
+    @Test
+    void rarBatchCommand() throws IOException {
+        Path folder = Files.createDirectories(testFolder.resolve("rar"));
+        Path first = Files.writeString(folder.resolve("first.rar"), "");
+        Path second = Files.writeString(folder.resolve("second.rar"), "");
+        RarExtractCmd cmd = new RarExtractCmd(Path.of("unrar"));
+
+        assertTrue(cmd.extractBatchCmd(List.of(first, second), Path.of("list"), testFolder).orElseThrow()
+                .contains(" x -y -ad "));
+        assertTrue(cmd.extractBatchCmd(List.of(first), Path.of("list"), testFolder).isEmpty());
+        assertEquals(first.toAbsolutePath().toString(),
+                cmd.parseBatchArchive("Extracting from " + first.toAbsolutePath()));
+        assertTrue(cmd.isBatchError("first.txt - CRC failed"));
+        assertFalse(cmd.isBatchError("Total errors: 1"));
+        assertFalse(cmd.isBatchError("Extracting  logs/error.txt                                    OK"));
+        assertFalse(cmd.isBatchError("Extracting  corrupt-data.bin                                  OK"));
+        assertTrue(cmd.isBatchError("Checksum error in the encrypted file logs/error.txt. Corrupt file or wrong password."));
+        assertTrue(cmd.isBatchError("Cannot open /data/missing.rar"));
+        assertTrue(cmd.isBatchError("/data/fake.rar is not RAR archive"));
+        assertTrue(cmd.isBatchError("Unexpected end of archive"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.cmd.ZipCmd;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ExtractorNativeConcurrencyTest {
+    static Path testFolder = Path.of("target/test-data/native-concurrency-test");
+    static Path script = testFolder.resolve("fake-7z.sh");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        // Stand-in for 7z: archive is a text file with the list of names
+        Files.writeString(script, """
+                #!/bin/sh
+                cmd=$1; shift
+                while [ "${1#-}" != "$1" ]; do shift; done
+                case "$cmd" in
+                  l) cat "$1" ;;
+                  x) dest="${2#-o}"; while read -r name; do echo "$name" > "$dest/$name"; echo "- $name"; done < "$1" ;;
+                esac
+                """);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    void concurrentCallsWithOwnOptions() throws Exception {
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<AtomicLong> counters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path archive = testFolder.resolve("archive" + i + ".7z");
+            List<String> names = new ArrayList<>();
+            for (int j = 0; j <= i; j++) names.add("file" + i + "_" + j + ".txt");
+            Files.write(archive, names);
+            Path destination = Files.createDirectories(testFolder.resolve("out" + i));
+            AtomicLong lines = new AtomicLong();
+            counters.add(lines);
+            NativeOptions options = extractor.getOptions().withProgressListener(lines::set);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    assertEquals(names, extractor.getFileList(archive));
+                    extractor.extractTo(archive, destination, options);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + 1, counters.get(i).get());
+            try (var files = Files.list(testFolder.resolve("out" + i))) {
+                assertEquals(i + 1, files.count());
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.EntryHandler;
+import com.jisj.archtools.EntryVisitor;
+import com.jisj.archtools.UnsupportedCommand;
+import com.jisj.archtools.cache.BlobStore;
+import com.jisj.archtools.cache.EntryCache;
+import com.jisj.archtools.cmd.CmdExtractUtil;
+import com.jisj.archtools.cmd.RarExtractCmd;
+import com.jisj.archtools.cmd.TechnicalListing;
+import com.jisj.archtools.cmd.ZipCmd;
+import com.jisj.archtools.manifest.ContentManifest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractorNativeParallelTest {
+    static Path testFolder = Path.of("target/test-data/native-parallel-test");
+    static Path script = testFolder.resolve("fake-7z.sh");
+    static Path starts = testFolder.resolve("starts.log");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        // Stand-in for 7z: archive is a text file with "name size [block [crc]]" lines, first line is "solid" or "not-solid"
+        Files.writeString(script, """
+                #!/bin/sh
+                cmd=$1; shift
+                so=""
+                while [ "${1#-}" != "$1" ]; do [ "$1" = -so ] && so=1; shift; done
+                archive=$1; shift
+                case "$cmd" in
+                  l) echo "Listing archive: $archive"; echo "--"; echo "Path = $archive"; echo "Type = 7z"
+                     [ "$(head -n 1 "$archive")" = solid ] && echo "Solid = +" || echo "Solid = -"
+                     echo; echo "----------"
+                     tail -n +2 "$archive" | while read -r name size block crc; do
+                       echo "Path = $name"; echo "Size = $size"; echo "Folder = -"
+                       [ -n "$block" ] && echo "Block = $block"; [ -n "$crc" ] && echo "CRC = $crc"; echo; done ;;
+                  x) echo "$*" >> "%s"
+                     if [ -n "$so" ]; then
+                       tail -n +2 "$archive" | while read -r name size block; do
+                         head -c "$size" /dev/zero | tr '\\0' "$(echo "$name" | cut -c1)"; done
+                       exit 0
+                     fi
+                     dest="${1#-o}"; list=""
+                     [ -n "$2" ] && list="${2#@}"
+                     tail -n +2 "$archive" | while read -r name size block; do
+                       if [ -z "$list" ] || grep -qx "$name" "$list"; then echo "$name" > "$dest/$name"; fi
+                     done
+                     if [ -n "$list" ] && grep -q '^fail' "$list"; then exit 2; fi
+                     if [ -n "$list" ] && grep -q '^slow' "$list"; then exec sleep 30; fi ;;
+                esac
+                """.formatted(starts.toAbsolutePath()));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void extractParallel() throws IOException {
+        List<String> lines = new ArrayList<>(List.of("not-solid"));
+        for (int i = 0; i < 10; i++) lines.add("file" + i + ".txt " + (i + 1) * 1000);
+        Path archive = Files.write(testFolder.resolve("archive.7z"), lines);
+        Path solid = Files.write(testFolder.resolve("solid.7z"), List.of("solid", "a.txt 10", "b.txt 20"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        long before = startCount();
+
+        Path destination = Files.createDirectories(testFolder.resolve("out"));
+        extractor.extractParallel(archive, destination, 3);
+        assertEquals(before + 3, startCount());
+        for (int i = 0; i < 10; i++) assertTrue(Files.exists(destination.resolve("file" + i + ".txt")));
+
+        Path manifestDestination = Files.createDirectories(testFolder.resolve("manifest-out"));
+        extractor.extractParallel(archive, manifestDestination, 2, extractor.getOptions().withManifest(true));
+        ContentManifest manifest = ContentManifest.read(ContentManifest.sidecarOf(manifestDestination));
+        assertEquals(10, manifest.getEntries().size());
+        assertEquals(10, manifest.get("file3.txt").orElseThrow().size());
+
+        Path solidDestination = Files.createDirectories(testFolder.resolve("solid-out"));
+        extractor.extractParallel(solid, solidDestination, 3);
+        assertEquals(before + 6, startCount());
+        assertTrue(Files.exists(solidDestination.resolve("b.txt")));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void extractParallel_failure() throws IOException {
+        Path archive = Files.write(testFolder.resolve("failing.7z"), List.of("not-solid", "fail.txt 10", "slow.txt 10"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        Path destination = Files.createDirectories(testFolder.resolve("failing-out"));
+        Path logFile = testFolder.resolve("failing.log");
+
+        ProcessScheduler scheduler = ProcessScheduler.getDefault();
+        // both parts must run at once on the single CPU hosts, the parts share one I/O slot
+        ProcessScheduler.setDefault(new ProcessScheduler(2, 1024L * 1024 * 1024, 1));
+        long started = System.nanoTime();
+        ArchiveException e;
+        try {
+            e = assertThrows(ArchiveException.class, () ->
+                    extractor.extractParallel(archive, destination, 2, extractor.getOptions().withLogFile(logFile)));
+        } finally {
+            ProcessScheduler.setDefault(scheduler);
+        }
+        assertTrue(System.nanoTime() - started < 20_000_000_000L);
+        assertTrue(e.getMessage().contains("failing.part"));
+        assertFalse(Files.exists(logFile));
+        assertEquals(Path.of("a/x.part1.log"), ExtractorNative.partLog(Path.of("a/x.log"), 1));
+        assertEquals(Path.of("x.7z.part0"), ExtractorNative.partLog(Path.of("x.7z"), 0));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void readEntries() throws IOException {
+        Path archive = Files.write(testFolder.resolve("blocks.7z"),
+                List.of("solid", "a.txt 6 0", "b.txt 6 0", "c.txt 6 1", "d.txt 6 2"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        EntryCache cache = new EntryCache(1024, 16);
+        extractor.setEntryCache(cache);
+        long before = startCount();
+
+        Map<String, String> contents = new LinkedHashMap<>();
+        EntryHandler handler = (entry, content) -> contents.put(entry.name(), new String(content.readAllBytes()).trim());
+        extractor.readEntries(archive, List.of("c.txt", "a.txt", "b.txt"), handler);
+        assertEquals(Map.of("a.txt", "a.txt", "b.txt", "b.txt", "c.txt", "c.txt"), contents);
+        assertEquals(before + 2, startCount());
+
+        contents.clear();
+        ArchiveException e = assertThrows(ArchiveException.class,
+                () -> extractor.readEntries(archive, List.of("a.txt", "none.txt"), handler));
+        assertTrue(e.getMessage().contains("none.txt"));
+        assertEquals(Map.of("a.txt", "a.txt"), contents);
+        assertEquals(before + 2, startCount());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void extractToMemory() throws IOException {
+        Path archive = Files.write(testFolder.resolve("memory.7z"), List.of("solid", "a.txt 3 0", "b.txt 5 0"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        long before = startCount();
+
+        Map<String, ByteBuffer> files = extractor.extractToMemory(archive, 8);
+        assertEquals(List.of("a.txt", "b.txt"), List.copyOf(files.keySet()));
+        assertEquals("aaa", StandardCharsets.US_ASCII.decode(files.get("a.txt")).toString());
+        assertEquals("bbbbb", StandardCharsets.US_ASCII.decode(files.get("b.txt")).toString());
+        assertTrue(files.get("a.txt").isReadOnly());
+        assertEquals(before + 1, startCount());
+
+        assertThrows(ArchiveException.class, () -> extractor.extractToMemory(archive, 7));
+        assertEquals(before + 1, startCount());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void forEachEntry() throws IOException {
+        Path archive = Files.write(testFolder.resolve("visit.7z"), List.of("solid", "a.txt 3 0", "b.bin 4 0", "c.txt 2 0"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        Map<String, String> contents = new LinkedHashMap<>();
+        extractor.forEachEntry(archive, new EntryVisitor() {
+            @Override
+            public boolean readContent(ArchiveEntry entry) {
+                return entry.name().endsWith(".txt");
+            }
+
+            @Override
+            public void visit(ArchiveEntry entry, InputStream content) throws IOException {
+                contents.put(entry.name(), new String(content.readAllBytes()));
+            }
+        });
+        assertEquals(List.of("a.txt", "c.txt"), List.copyOf(contents.keySet()));
+        assertEquals("aaa", contents.get("a.txt"));
+        assertEquals("cc", contents.get("c.txt"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void extractWithStore() throws IOException {
+        // the extracted file content is its name with line feed
+        CRC32 crc = new CRC32();
+        crc.update("shared.txt\n".getBytes());
+        String shared = "shared.txt 11 0 " + Long.toHexString(crc.getValue());
+        Path first = Files.write(testFolder.resolve("first.7z"), List.of("not-solid", shared, "one.txt 8 1 0"));
+        Path second = Files.write(testFolder.resolve("second.7z"), List.of("not-solid", shared, "two.txt 8 1 0"));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        BlobStore store = new BlobStore(testFolder.resolve("blobs"));
+        long before = startCount();
+
+        Path firstDestination = Files.createDirectories(testFolder.resolve("store-first"));
+        assertEquals(new ExtractorNative.StoreResult(2, 0),
+                extractor.extractWithStore(first, firstDestination, store, true, extractor.getOptions()));
+        Path secondDestination = Files.createDirectories(testFolder.resolve("store-second"));
+        assertEquals(new ExtractorNative.StoreResult(1, 1),
+                extractor.extractWithStore(second, secondDestination, store, true, extractor.getOptions()));
+        assertEquals(before + 2, startCount());
+        assertEquals("shared.txt\n", Files.readString(secondDestination.resolve("shared.txt")));
+        assertEquals("two.txt\n", Files.readString(secondDestination.resolve("two.txt")));
+        assertEquals(11 + 8 + 8, store.getStoredBytes());
+        assertEquals(11 + 8 + 11 + 8, store.getLogicalBytes());
+
+        Path verifiedDestination = Files.createDirectories(testFolder.resolve("store-verified"));
+        assertEquals(new ExtractorNative.StoreResult(2, 0),
+                extractor.extractWithStore(second, verifiedDestination, store, false, extractor.getOptions()));
+        assertEquals("shared.txt\n", Files.readString(verifiedDestination.resolve("shared.txt")));
+        assertEquals(11 + 8 + 8, store.getStoredBytes());
+        assertEquals(11 + 8 + 11 + 8 + 11 + 8, store.getLogicalBytes());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void extractWithStore_outsideEntry() throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update("stored.txt\n".getBytes());
+        String stored = "stored.txt 11 0 " + Long.toHexString(crc.getValue());
+        Path first = Files.write(testFolder.resolve("stored.7z"), List.of("not-solid", stored));
+        Path evil = Files.write(testFolder.resolve("evil.7z"),
+                List.of("not-solid", "../escape.txt 11 0 " + Long.toHexString(crc.getValue())));
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script));
+        BlobStore store = new BlobStore(testFolder.resolve("blobs-outside"));
+        extractor.extractWithStore(first, Files.createDirectories(testFolder.resolve("outside-first")), store, true,
+                extractor.getOptions());
+
+        Path destination = Files.createDirectories(testFolder.resolve("outside-second"));
+        for (boolean crcMatching : new boolean[]{true, false}) {
+            ArchiveException e = assertThrows(ArchiveException.class,
+                    () -> extractor.extractWithStore(evil, destination, store, crcMatching, extractor.getOptions()));
+            assertTrue(e.getMessage().contains("outside of the destination"), e.getMessage());
+        }
+        assertFalse(Files.exists(testFolder.resolve("escape.txt")));
+    }
+
+    @Test
+    void partition() {
+        TechnicalListing listing = new ZipCmd(script).parseTechnicalList(List.of(
+                "Solid = -", "----------",
+                "Path = a", "Size = 100", "",
+                "Path = b", "Size = 60", "",
+                "Path = c", "Size = 50", "",
+                "Path = d", "Folder = +", "",
+                "Path = e", "Size = 10"));
+        assertFalse(listing.solid());
+        assertEquals(5, listing.entries().size());
+        assertEquals(-1, listing.entries().get(3).block());
+        List<List<String>> groups = ExtractorNative.partition(listing, 2).stream()
+                .map(group -> group.stream().map(ArchiveEntry::name).toList())
+                .toList();
+        assertEquals(List.of(List.of("a", "e"), List.of("b", "c")), groups);
+    }
+
+    @Test
+    void rarTechnicalList() {
+        TechnicalListing listing = new RarExtractCmd(Path.of("unrar")).parseTechnicalList(List.of(
+                "Archive: test.rar",
+                "Details: RAR 5, solid",
+                "",
+                "        Name: folder",
+                "        Type: Directory",
+                "",
+                "        Name: folder/file.txt",
+                "        Type: File",
+                "        Size: 19",
+                "       mtime: 2024-01-31 12:00:00,000000000"));
+        assertTrue(listing.solid());
+        assertTrue(listing.entries().get(0).entry().directory());
+        assertEquals(19, listing.entries().get(1).entry().size());
+        assertEquals(0, listing.entries().get(1).block());
+        assertNotNull(listing.entries().get(1).entry().lastModifiedTime());
+    }
+
+    @Test
+    void capabilities() {
+        CmdExtractUtil plain = new CmdExtractUtil() {
+            @Override
+            public String extractToDestinationCmd(Path archive, Path destination) {
+                return "";
+            }
+
+            @Override
+            public String getFileListCmd(Path archive) {
+                return "";
+            }
+
+            @Override
+            public Path getUtilPath() {
+                return Path.of("util");
+            }
+        };
+        assertFalse(plain.supportsTechnicalList());
+        assertFalse(plain.supportsEntryExtraction());
+        assertThrows(UnsupportedCommand.class, () -> plain.parseTechnicalList(List.of()));
+        assertTrue(new ZipCmd(script).supportsTechnicalList());
+        assertTrue(new RarExtractCmd(Path.of("unrar")).supportsEntryExtraction());
+    }
+
+    private static long startCount() throws IOException {
+        return Files.exists(starts) ? Files.readAllLines(starts).size() : 0;
+    }
+}
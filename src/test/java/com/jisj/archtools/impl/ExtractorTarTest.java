@@ -0,0 +1,205 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveEntry;
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.EntryVisitor;
+import com.jisj.archtools.Type;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractorTarTest {
+    static Path testFolder = Path.of("target/test-data/tar-test");
+    static Path filesFolder = testFolder.resolve("files");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder.resolve("child"));
+        Files.writeString(filesFolder.resolve("file1.txt"), "Text from file1.txt");
+        Files.writeString(filesFolder.resolve("child").resolve("child_file.txt"), "Text from child_file.txt");
+        Files.writeString(filesFolder.resolve("child").resolve("long-name-".repeat(12) + ".txt"), "Long name");
+        byte[] big = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(big);
+        Files.write(filesFolder.resolve("big.bin"), big);
+    }
+
+    @Test
+    void getType() {
+        assertEquals(Type.TAR, Type.getType(Path.of("a.tar")));
+        assertEquals(Type.TAR_GZ, Type.getType(Path.of("a.TAR.GZ")));
+        assertEquals(Type.TAR_ZST, Type.getType(Path.of("a.b.tar.zst")));
+        assertEquals(Type.UNKNOWN, Type.getType(Path.of("a.gz")));
+        assertEquals("a.b", Type.getBaseName(Path.of("a.b.tar.zst")));
+        assertEquals("a", Type.getBaseName(Path.of("a.zip")));
+    }
+
+    @Test
+    void packAndExtract() throws IOException {
+        for (Type type : new Type[]{Type.TAR, Type.TAR_GZ, Type.TAR_ZST}) {
+            Path archive = testFolder.resolve("archive" + type.getExt());
+            PackerTar packer = new PackerTar();
+            packer.setBlockSize(64 * 1024);
+            packer.packOfFolder(archive, filesFolder);
+
+            ExtractorTar extractor = new ExtractorTar();
+            assertEquals(5, extractor.getFileList(archive).size());
+            extractor.test(archive);
+
+            Path destination = Files.createDirectories(testFolder.resolve("extracted-" + type));
+            extractor.extractTo(archive, destination);
+            assertEquals("Text from child_file.txt", Files.readString(destination.resolve("child/child_file.txt")));
+            assertEquals("Long name", Files.readString(destination.resolve("child").resolve("long-name-".repeat(12) + ".txt")));
+            assertArrayEquals(Files.readAllBytes(filesFolder.resolve("big.bin")), Files.readAllBytes(destination.resolve("big.bin")));
+        }
+    }
+
+    @Test
+    void extractToMemory() throws IOException {
+        Path archive = testFolder.resolve("memory.tar.gz");
+        new PackerTar().packOfFolder(archive, filesFolder);
+        ExtractorTar extractor = new ExtractorTar();
+        long total = 19 + 24 + 9 + Files.size(filesFolder.resolve("big.bin"));
+
+        Map<String, ByteBuffer> files = extractor.extractToMemory(archive, total);
+        assertEquals(4, files.size());
+        assertEquals("Text from child_file.txt",
+                StandardCharsets.UTF_8.decode(files.get("child/child_file.txt")).toString());
+        ByteBuffer big = files.get("big.bin");
+        byte[] bytes = new byte[big.remaining()];
+        big.get(bytes);
+        assertArrayEquals(Files.readAllBytes(filesFolder.resolve("big.bin")), bytes);
+        assertThrows(ArchiveException.class, () -> extractor.extractToMemory(archive, total - 1));
+    }
+
+    @Test
+    void forEachEntry() throws IOException {
+        Path archive = testFolder.resolve("visit.tar.zst");
+        new PackerTar().packOfFolder(archive, filesFolder);
+        List<String> skipped = new ArrayList<>();
+        Map<String, String> contents = new LinkedHashMap<>();
+        new ExtractorTar().forEachEntry(archive, new EntryVisitor() {
+            @Override
+            public boolean readContent(ArchiveEntry entry) {
+                if (entry.name().endsWith(".txt")) return true;
+                skipped.add(entry.name());
+                return false;
+            }
+
+            @Override
+            public void visit(ArchiveEntry entry, InputStream content) throws IOException {
+                contents.put(entry.name(), new String(content.readNBytes(9)));
+                content.close();
+            }
+        });
+        assertEquals(List.of("big.bin"), skipped);
+        assertEquals(3, contents.size());
+        assertEquals("Text from", contents.get("child/child_file.txt"));
+        assertEquals("Long name", contents.get("child/" + "long-name-".repeat(12) + ".txt"));
+    }
+
+    @Test
+    void streamEntries() throws Exception {
+        Path archive = testFolder.resolve("stream.tar.gz");
+        new PackerTar().packOfFolder(archive, filesFolder);
+        ExtractorTar extractor = new ExtractorTar();
+        try (Stream<ArchiveEntry> entries = extractor.streamEntries(archive)) {
+            ArchiveEntry big = entries.filter(e -> e.name().equals("big.bin")).findFirst().orElseThrow();
+            assertEquals(3 * 1024 * 1024 + 17, big.size());
+            assertFalse(big.directory());
+        }
+
+        List<ArchiveEntry> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        extractor.publishEntries(archive).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(ArchiveEntry item) {
+                received.add(item);
+                if (received.size() == 2) {
+                    subscription.cancel();
+                    done.complete(null);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.completeExceptionally(new AssertionError("Completed after cancel"));
+            }
+        });
+        done.get(10, TimeUnit.SECONDS);
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void extractTo_errors() throws IOException {
+        ExtractorTar extractor = new ExtractorTar();
+        Path fake = testFolder.resolve("fake.tar");
+        Files.writeString(fake, "not a tar archive");
+        assertThrowsExactly(ArchiveException.class, () -> extractor.getFileList(fake));
+        assertThrowsExactly(ArchiveException.class, () -> extractor.extractTo(testFolder.resolve("not-exist.tar"), testFolder));
+        assertThrows(IllegalArgumentException.class, () -> new PackerTar().packOfFolder(testFolder.resolve("a.zip"), filesFolder));
+    }
+
+    @Test
+    void forEachEntry_cancel() throws Exception {
+        Path archive = testFolder.resolve("cancel.tar");
+        new PackerTar().packOfFolder(archive, filesFolder);
+        CountDownLatch visiting = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        List<String> visited = new CopyOnWriteArrayList<>();
+        ArchiveFuture<Void> future = ArchiveFuture.execAsync(() -> {
+            try {
+                new ExtractorTar().forEachEntry(archive, (entry, content) -> {
+                    visited.add(entry.name());
+                    visiting.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException ignored) {
+                        // the next entry breaks the cancelled operation
+                    }
+                });
+            } finally {
+                finished.countDown();
+            }
+        });
+        assertTrue(visiting.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(1, visited.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.Type;
+import com.jisj.archtools.cmd.ZipCmd;
+import com.jisj.archtools.metrics.InMemoryMetricsRegistry;
+import com.jisj.archtools.metrics.Metrics;
+import com.jisj.archtools.metrics.MetricsRecorder;
+import com.jisj.archtools.metrics.Operation;
+import com.jisj.archtools.metrics.Outcome;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackOrderTest {
+    static Path testFolder = Path.of("target/test-data/pack-order-test");
+    static Path filesFolder = testFolder.resolve("files");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder.resolve("sub"));
+        Files.writeString(filesFolder.resolve("b.txt"), "bb");
+        Files.writeString(filesFolder.resolve("sub").resolve("a.txt"), "a");
+        Files.writeString(filesFolder.resolve("a.xml"), "<a/>");
+        Files.writeString(filesFolder.resolve("photo.JPG"), "jpeg");
+        Files.writeString(filesFolder.resolve("README"), "readme");
+        Files.createDirectories(filesFolder.resolve("empty").resolve("nested"));
+    }
+
+    @Test
+    void of() throws IOException {
+        PackOrder order = PackOrder.of(filesFolder);
+        assertEquals(List.of("README", Path.of("sub", "a.txt").toString(), "b.txt", "a.xml",
+                Path.of("empty", "nested").toString()), order.compressed());
+        assertEquals(13, order.compressedSize());
+        assertEquals(List.of("photo.JPG"), order.stored());
+        assertEquals(4, order.storedSize());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void packOrdered() throws IOException {
+        Path log = testFolder.resolve("calls.log").toAbsolutePath();
+        Path script = testFolder.resolve("fake-7z.sh");
+        // Stand-in for 7z: logs the working folder, the arguments and the list file
+        Files.writeString(script, """
+                #!/bin/sh
+                echo "$(basename "$PWD") $*" >> "%s"
+                for last; do archive=$previous; previous=$last; done
+                cat "${last#@}" >> "%s"
+                touch "$archive"
+                """.formatted(log, log));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        PackerNative packer = new PackerNative(new ZipCmd(script));
+        packer.setOrdered(true);
+        Path archive = testFolder.resolve("out").resolve("archive.7z");
+        MetricsRecorder recorder = Metrics.getRecorder();
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        Metrics.setRecorder(registry);
+        List<String> lines;
+        try {
+            packer.packOfFolder(archive, filesFolder);
+            lines = Files.readAllLines(log);
+            packer.setOrdered(false);
+            packer.packOfFolder(testFolder.resolve("out").resolve("plain.7z"), filesFolder);
+        } finally {
+            Metrics.setRecorder(recorder);
+        }
+        var series = registry.getSeries().get(new InMemoryMetricsRegistry.Key(Operation.PACK, Type.S7Z, "fake-7z"));
+        assertEquals(2, series.getCount(Outcome.SUCCESS));
+        assertEquals(2 * 17, series.getBytesRead());
+        assertEquals(2, series.getEntriesRate().getCount());
+
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(0).startsWith("files a -y -bsp1 -scsUTF-8 -mx0 "));
+        assertEquals("photo.JPG", lines.get(1));
+        assertTrue(lines.get(2).startsWith("files a -y -bsp1 -scsUTF-8 " + archive.toAbsolutePath()));
+        assertEquals(List.of("README", "sub/a.txt", "b.txt", "a.xml", "empty/nested"), lines.subList(3, 8));
+        assertTrue(Files.exists(archive));
+    }
+}
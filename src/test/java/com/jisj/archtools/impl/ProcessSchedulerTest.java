@@ -0,0 +1,109 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.ArchiveException;
+import com.jisj.archtools.ArchiveFuture;
+import com.jisj.archtools.Type;
+import com.jisj.archtools.metrics.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessSchedulerTest {
+    static final long MB = 1024 * 1024;
+
+    @Test
+    void estimate() {
+        ProcessScheduler.Demand pack = ProcessScheduler.estimate(Operation.PACK, Type.S7Z, List.of("7z", "a", "-mx9", "-mmt4"));
+        assertEquals(4, pack.cpus());
+        assertEquals(11 * 64 * MB + 16 * MB, pack.memory());
+        assertEquals(11 * 256 * MB + 16 * MB,
+                ProcessScheduler.estimate(Operation.PACK, Type.S7Z, List.of("7z", "a", "-md=256m")).memory());
+        assertEquals(11 * 16 * MB + 16 * MB,
+                ProcessScheduler.estimate(Operation.PACK, Type.S7Z, List.of("7z", "a", "-md24")).memory());
+        assertEquals(1, ProcessScheduler.estimate(Operation.EXTRACT, Type.ZIP, List.of("7z", "x")).cpus());
+        assertEquals(32 * MB + 16 * MB, ProcessScheduler.estimate(Operation.EXTRACT, Type.RAR, List.of("unrar", "x")).memory());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void fairQueue() throws Exception {
+        ProcessScheduler scheduler = new ProcessScheduler(1, 1024 * MB, 4);
+        ProcessScheduler.Demand demand = ProcessScheduler.Demand.of(1, MB, Path.of("target"));
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Process first = scheduler.start(new ProcessBuilder("sleep", "0.3"), demand);
+        assertEquals(1, scheduler.getUsedCpu());
+        List<ArchiveFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(ArchiveFuture.execAsync(() -> ProcessScheduler.callAs("batch", () -> {
+                Process process = scheduler.start(new ProcessBuilder("true"), demand);
+                order.add("batch");
+                process.onExit().join();
+                return null;
+            })));
+            waitQueued(scheduler, i + 1);
+        }
+        futures.add(ArchiveFuture.execAsync(() -> ProcessScheduler.callAs("user", () -> {
+            Process process = scheduler.start(new ProcessBuilder("true"), demand);
+            order.add("user");
+            process.onExit().join();
+            return null;
+        })));
+        waitQueued(scheduler, 4);
+        first.waitFor();
+        futures.forEach(ArchiveFuture::join);
+
+        assertEquals(List.of("batch", "user", "batch", "batch"), order);
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void cancelInQueue() throws Exception {
+        ProcessScheduler scheduler = new ProcessScheduler(1, 1024 * MB, 4);
+        ProcessScheduler.Demand demand = ProcessScheduler.Demand.of(1, MB);
+        Process first = scheduler.start(new ProcessBuilder("sleep", "0.3"), demand);
+        ArchiveFuture<Process> queued = ArchiveFuture.callAsync(() -> scheduler.start(new ProcessBuilder("true"), demand));
+        waitQueued(scheduler, 1);
+        queued.cancel(true);
+        waitQueued(scheduler, 0);
+        first.waitFor();
+        first.onExit().join();
+        assertThrows(ArchiveException.class, () -> scheduler.start(new ProcessBuilder("/not/existing/util"), demand));
+        assertEquals(0, scheduler.getUsedCpu());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void sharedIo() throws Exception {
+        ProcessScheduler scheduler = new ProcessScheduler(4, 1024 * MB, 1);
+        ProcessScheduler.Demand demand = ProcessScheduler.Demand.of(1, MB, Path.of("target"));
+        Object group = new Object();
+        Process first = ProcessScheduler.shareIo(group, () -> scheduler.start(new ProcessBuilder("sleep", "0.3"), demand));
+        Process second = ProcessScheduler.shareIo(group, () -> scheduler.start(new ProcessBuilder("sleep", "0.3"), demand));
+        assertEquals(2, scheduler.getUsedCpu());
+        ArchiveFuture<Process> other = ArchiveFuture.callAsync(() -> scheduler.start(new ProcessBuilder("true"), demand));
+        waitQueued(scheduler, 1);
+        first.waitFor();
+        first.onExit().join();
+        assertEquals(1, scheduler.getQueued());
+        second.waitFor();
+        other.join().onExit().join();
+        assertEquals(0, scheduler.getQueued());
+        // the resources are released by the exit callback
+        for (int i = 0; i < 200 && scheduler.getUsedCpu() != 0; i++) Thread.sleep(5);
+        assertEquals(0, scheduler.getUsedCpu());
+    }
+
+    private static void waitQueued(ProcessScheduler scheduler, int count) throws InterruptedException {
+        for (int i = 0; i < 200 && scheduler.getQueued() != count; i++) Thread.sleep(5);
+        assertEquals(count, scheduler.getQueued());
+    }
+}
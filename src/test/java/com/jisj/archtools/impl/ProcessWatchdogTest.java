@@ -0,0 +1,84 @@
+package com.jisj.archtools.impl;
+
+import com.jisj.archtools.TimeOutException;
+import com.jisj.archtools.cmd.ZipCmd;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ProcessWatchdogTest {
+    static Path testFolder = Path.of("target/test-data/watchdog-test");
+
+    @Test
+    void inactivity() throws Exception {
+        ProcessWatchdog watchdog = new ProcessWatchdog(Duration.ofMillis(50));
+        Process process = new ProcessBuilder("sh", "-c", "echo first; echo last; sleep 10").start();
+        try (ProcessWatchdog.Watch watch = watchdog.watch(process, "test", Duration.ofMillis(300), null)) {
+            watch.monitor(process.getInputStream()).transferTo(OutputStream.nullOutputStream());
+            process.waitFor();
+            assertTrue(watch.isExpired());
+            assertTrue(watch.getReason().startsWith("No output"), watch.getReason());
+            assertThrows(TimeOutException.class, watch::check);
+        }
+        assertEquals(0, watchdog.getWatched());
+    }
+
+    @Test
+    void deadline() throws Exception {
+        ProcessWatchdog watchdog = new ProcessWatchdog(Duration.ofMillis(50));
+        Process process = new ProcessBuilder("sh", "-c", "while true; do echo tick; sleep 0.05; done").start();
+        try (ProcessWatchdog.Watch watch = watchdog.watch(process, "test", Duration.ofSeconds(5), Duration.ofMillis(400))) {
+            watch.monitor(process.getInputStream()).transferTo(OutputStream.nullOutputStream());
+            process.waitFor();
+            assertTrue(watch.getReason().startsWith("Deadline"), watch.getReason());
+            assertTrue(watch.getReason().endsWith("> tick"), watch.getReason());
+        }
+        assertEquals(Duration.ofSeconds(30 + 4), ProcessWatchdog.deadline(4 * 1024 * 1024, 1024 * 1024));
+        assertNull(ProcessWatchdog.deadline(1, 0));
+    }
+
+    @Test
+    void pause() throws Exception {
+        ProcessWatchdog watchdog = new ProcessWatchdog(Duration.ofMillis(50));
+        Process process = new ProcessBuilder("sh", "-c", "exec sleep 10").start();
+        try (ProcessWatchdog.Watch watch = watchdog.watch(process, "test", null, Duration.ofMillis(400))) {
+            watch.pause();
+            Thread.sleep(800);
+            assertFalse(watch.isExpired());
+            watch.resume();
+            process.waitFor();
+            assertTrue(watch.getReason().startsWith("Deadline"), watch.getReason());
+        }
+    }
+
+    @Test
+    void extractorReason() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Path script = testFolder.resolve("fake-7z.sh");
+        Files.writeString(script, """
+                #!/bin/sh
+                echo "Extracting archive: $4"
+                echo "- stuck.bin"
+                sleep 10
+                """);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Path archive = Files.writeString(testFolder.resolve("archive.7z"), "content");
+        ExtractorNative extractor = new ExtractorNative(new ZipCmd(script, false));
+        extractor.setBreakTimeOutSec(1);
+
+        TimeOutException e = assertThrows(TimeOutException.class, () -> extractor.extractTo(archive, testFolder));
+        assertTrue(e.getMessage().contains("> - stuck.bin"), e.getMessage());
+    }
+}
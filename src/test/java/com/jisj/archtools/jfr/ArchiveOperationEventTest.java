@@ -0,0 +1,47 @@
+package com.jisj.archtools.jfr;
+
+import com.jisj.archtools.impl.ExtractorTar;
+import com.jisj.archtools.impl.PackerTar;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveOperationEventTest {
+    static Path testFolder = Path.of("target/test-data/jfr-test");
+
+    @Test
+    void recording() throws IOException {
+        Files.createDirectories(testFolder.resolve("files"));
+        clearFolder(testFolder);
+        Files.createDirectories(testFolder.resolve("files"));
+        Files.writeString(testFolder.resolve("files/file1.txt"), "Text from file1.txt");
+        Path archive = testFolder.resolve("archive.tar.gz");
+        Path dump = testFolder.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(ArchiveOperationEvent.class).withoutThreshold();
+            recording.start();
+            new PackerTar().packOfFolder(archive, testFolder.resolve("files"));
+            new ExtractorTar().getFileList(archive);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(List.of("PACK", "LIST"), events.stream().map(e -> e.getString("operation")).toList());
+        RecordedEvent list = events.get(1);
+        assertEquals("TAR_GZ", list.getString("archiveType"));
+        assertEquals("SUCCESS", list.getString("outcome"));
+        assertEquals(1, list.getLong("entries"));
+        assertEquals(archive.toAbsolutePath().toString(), list.getString("archive"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.jisj.archtools.manifest;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.jisj.archtools.Uils.clearFolder;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentManifestTest {
+    static Path testFolder = Path.of("target/test-data/manifest-test");
+    static Path filesFolder = testFolder.resolve("files");
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(testFolder);
+        clearFolder(testFolder);
+        Files.createDirectories(filesFolder.resolve("child"));
+        Files.writeString(filesFolder.resolve("abc.txt"), "abc");
+        Files.writeString(filesFolder.resolve("child").resolve("empty.txt"), "");
+    }
+
+    @Test
+    void ofFolder() throws IOException {
+        ContentManifest manifest = ContentManifest.ofFolder(filesFolder);
+        assertEquals(List.of("abc.txt", "child/empty.txt"),
+                manifest.getEntries().stream().map(ContentManifest.Entry::path).toList());
+        ContentManifest.Entry abc = manifest.get("abc.txt").orElseThrow();
+        assertEquals(3, abc.size());
+        assertEquals(0x364b3fb7, abc.crc32c());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", abc.sha256Hex());
+
+        Path sidecar = ContentManifest.sidecarOf(filesFolder);
+        assertEquals("files.manifest", sidecar.getFileName().toString());
+        manifest.write(sidecar);
+        assertEquals(manifest.getEntries(), ContentManifest.read(sidecar).getEntries());
+        assertThrows(IOException.class, () -> ContentManifest.read(filesFolder.resolve("abc.txt")));
+    }
+
+    @Test
+    void of() throws IOException {
+        ContentManifest manifest = ContentManifest.of(filesFolder, List.of("child\\empty.txt", "child", "none.txt"));
+        assertEquals(1, manifest.getEntries().size());
+        assertEquals(0, manifest.get("child/empty.txt").orElseThrow().size());
+    }
+}
@@ -0,0 +1,59 @@
+package com.jisj.archtools.metrics;
+
+import com.jisj.archtools.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryMetricsRegistryTest {
+    static Path testFolder = Path.of("target/test-data/metrics-test");
+
+    @Test
+    void record() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        registry.record(new OperationSample(Operation.EXTRACT, Type.ZIP, "7z", 2_000_000, 1_500_000_000L,
+                1000, 5000, 30, Outcome.SUCCESS));
+        registry.record(new OperationSample(Operation.EXTRACT, Type.ZIP, "7z", 3_000_000, 120_000_000_000L,
+                1000, 0, 0, Outcome.TIMEOUT));
+
+        var series = registry.getSeries().get(new InMemoryMetricsRegistry.Key(Operation.EXTRACT, Type.ZIP, "7z"));
+        assertEquals(1, series.getCount(Outcome.SUCCESS));
+        assertEquals(1, series.getCount(Outcome.TIMEOUT));
+        assertEquals(0, series.getCount(Outcome.FAILURE));
+        assertEquals(2000, series.getBytesRead());
+        assertEquals(2, series.getWallTime().getCount());
+        assertEquals(1, series.getEntriesRate().getCount());
+        assertEquals(20, series.getEntriesRate().getSum(), 0.001);
+    }
+
+    @Test
+    void toPrometheusText() throws IOException {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        OperationTimer timer = new OperationTimer(registry, Operation.LIST, Type.RAR, "unrar", null);
+        timer.spawned();
+        timer.entries(7);
+        timer.success();
+        timer.stop();
+        timer.stop();
+
+        String text = registry.toPrometheusText();
+        assertTrue(text.contains("archtools_operations_total{operation=\"list\",type=\"rar\",engine=\"unrar\",outcome=\"success\"} 1"));
+        assertTrue(text.contains("archtools_process_spawn_seconds_count{operation=\"list\",type=\"rar\",engine=\"unrar\"} 1"));
+        assertTrue(text.contains("archtools_operation_seconds_bucket{operation=\"list\",type=\"rar\",engine=\"unrar\",le=\"+Inf\"} 1"));
+
+        Files.createDirectories(testFolder);
+        Path file = testFolder.resolve("arch-tools.prom");
+        registry.writePrometheus(file);
+        assertEquals(text, Files.readString(file));
+    }
+
+    @Test
+    void engineOf() {
+        assertEquals("7z", Metrics.engineOf(Path.of("C:/Program Files/7-Zip/7z.exe")));
+        assertEquals("unrar", Metrics.engineOf(Path.of("/usr/bin/unrar")));
+    }
+}